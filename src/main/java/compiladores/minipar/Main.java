@@ -1,6 +1,10 @@
 package compiladores.minipar;
 
 import compiladores.minipar.interpreter.Interpreter;
+import compiladores.minipar.interpreter.Output;
+import compiladores.minipar.interpreter.ParScheduler;
+import compiladores.minipar.interpreter.SpecializingInterpreter;
+import compiladores.minipar.jit.Jit;
 import compiladores.minipar.lexer.CLexer;
 import compiladores.minipar.lexer.ILexer;
 import compiladores.minipar.parser.CParser;
@@ -8,6 +12,10 @@ import compiladores.minipar.parser.IParser;
 import compiladores.minipar.parser.ParseException;
 import compiladores.minipar.ast.core.ProgramNode;
 import compiladores.minipar.semantic.SemanticAnalyzer;
+import compiladores.minipar.vm.BytecodeCompiler;
+import compiladores.minipar.vm.CompileException;
+import compiladores.minipar.vm.CompiledProgram;
+import compiladores.minipar.vm.VirtualMachine;
 
 import java.io.IOException;
 import java.nio.file.Files;
@@ -15,13 +23,68 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 
 public class Main {
+    private static final String USO = "Uso: java Main [--engine ast|vm|spec] [--jit] [--jit-log] [--threads N|virtual] <arquivo.minipar>";
+
     public static void main(String[] args) throws IOException {
-        if (args.length == 0) {
-            System.out.println("Uso: java Main <arquivo.minipar>");
+        String engine = "ast";
+        String arquivo = null;
+        boolean jit = false;
+        boolean jitLog = false;
+        ParScheduler scheduler = null;
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (isOption(arg, "--engine")) {
+                engine = optionValue(args, i, "--engine");
+                if (engine == null) {
+                    System.out.println(USO);
+                    return;
+                }
+                if (!arg.contains("=")) i++;
+            } else if (isOption(arg, "--threads")) {
+                String value = optionValue(args, i, "--threads");
+                if (value == null) {
+                    System.out.println(USO);
+                    return;
+                }
+                if (!arg.contains("=")) i++;
+                scheduler = scheduler(value);
+                if (scheduler == null) {
+                    System.err.println("Número de threads inválido: " + value);
+                    System.out.println(USO);
+                    return;
+                }
+            } else if (arg.equals("--jit")) {
+                jit = true;
+            } else if (arg.equals("--jit-log")) {
+                jit = true;
+                jitLog = true;
+            } else if (arg.startsWith("--")) {
+                System.err.println("Opção desconhecida: " + arg);
+                System.out.println(USO);
+                return;
+            } else {
+                arquivo = arg;
+            }
+        }
+
+        if (arquivo == null) {
+            System.out.println(USO);
+            return;
+        }
+        if (!engine.equals("ast") && !engine.equals("vm") && !engine.equals("spec")) {
+            System.err.println("Motor de execução desconhecido: " + engine);
+            System.out.println(USO);
+            return;
+        }
+        if (jit && engine.equals("vm")) {
+            // a VM não tem JIT; ignorar a opção daria a impressão de que ele rodou
+            System.err.println("--jit não é suportado com --engine vm");
+            System.out.println(USO);
             return;
         }
 
-        Path caminho = Paths.get(args[0]);
+        Path caminho = Paths.get(arquivo);
 
         if (!Files.exists(caminho)) {
             System.err.println("Arquivo não encontrado: " + caminho);
@@ -37,8 +100,25 @@ public class Main {
 
             new SemanticAnalyzer().analyze(ast);
 
-            Interpreter exec = new Interpreter();
-            exec.run(ast);
+            try {
+                if (engine.equals("vm")) {
+                    runVm(ast, scheduler);
+                } else if (engine.equals("spec")) {
+                    runSpecializing(ast, jit ? new Jit(ast, jitLog) : null, scheduler);
+                } else {
+                    Interpreter exec = new Interpreter();
+                    if (jit) {
+                        exec.setJit(new Jit(ast, jitLog));
+                    }
+                    if (scheduler != null) {
+                        exec.setScheduler(scheduler);
+                    }
+                    exec.run(ast);
+                }
+            } finally {
+                // o print guarda a saída em buffer; o que sobrou sai antes de uma mensagem de erro
+                Output.flush();
+            }
 
         } catch (ParseException e) {
             System.err.println("Erro sintático: " + e.getMessage());
@@ -46,4 +126,65 @@ public class Main {
             System.err.println(e.getMessage());
         }
     }
+
+    private static void runVm(ProgramNode ast, ParScheduler scheduler) {
+        CompiledProgram compiled;
+        try {
+            compiled = new BytecodeCompiler().compile(ast);
+        } catch (CompileException e) {
+            // o Interpreter continua sendo o motor de referência
+            System.err.println("VM: " + e.getMessage() + "; executando com o interpretador");
+            Interpreter exec = new Interpreter();
+            if (scheduler != null) {
+                exec.setScheduler(scheduler);
+            }
+            exec.run(ast);
+            return;
+        }
+        new VirtualMachine(compiled).run();
+    }
+
+    private static void runSpecializing(ProgramNode ast, Jit jit, ParScheduler scheduler) {
+        SpecializingInterpreter exec = new SpecializingInterpreter();
+        exec.setJit(jit);
+        if (scheduler != null) {
+            exec.setScheduler(scheduler);
+        }
+        try {
+            exec.run(ast);
+        } finally {
+            // relatório vai para stderr para não misturar com a saída do programa
+            System.err.print(exec.getStats().report());
+        }
+    }
+
+    /** --threads N: pool de N threads da plataforma; --threads virtual: threads virtuais */
+    private static ParScheduler scheduler(String value) {
+        if (value.equals("virtual")) {
+            return ParScheduler.virtualThreads();
+        }
+        try {
+            int threads = Integer.parseInt(value);
+            return threads >= 1 ? ParScheduler.forkJoin(threads) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static boolean isOption(String arg, String name) {
+        return arg.equals(name) || arg.startsWith(name + "=");
+    }
+
+    /** Aceita tanto "--opcao valor" quanto "--opcao=valor"; null se o valor faltar */
+    private static String optionValue(String[] args, int i, String name) {
+        String arg = args[i];
+        if (arg.startsWith(name + "=")) {
+            return arg.substring(name.length() + 1);
+        }
+        if (i + 1 >= args.length) {
+            System.err.println("Opção " + name + " requer um valor");
+            return null;
+        }
+        return args[i + 1];
+    }
 }
@@ -11,6 +11,10 @@ import java.util.stream.Collectors;
  */
 public class ProgramNode extends ASTNode {
     private final List<StmtNode> statements;
+    // preenchidos pelo SemanticAnalyzer
+    private int frameSize;
+    private int numberFrameSize;
+    private int functionCount;
 
     public ProgramNode(List<StmtNode> statements, int line) {
         super(line);
@@ -24,6 +28,33 @@ public class ProgramNode extends ASTNode {
         return statements;
     }
 
+    /**
+     * Quantidade de slots de objetos do quadro global
+     */
+    public int getFrameSize() {
+        return frameSize;
+    }
+
+    /**
+     * Quantidade de slots numéricos do quadro global
+     */
+    public int getNumberFrameSize() {
+        return numberFrameSize;
+    }
+
+    /**
+     * Quantidade de funções declaradas no programa
+     */
+    public int getFunctionCount() {
+        return functionCount;
+    }
+
+    public void setLayout(int frameSize, int numberFrameSize, int functionCount) {
+        this.frameSize = frameSize;
+        this.numberFrameSize = numberFrameSize;
+        this.functionCount = functionCount;
+    }
+
     @Override
     public String toString() {
         return statements.stream()
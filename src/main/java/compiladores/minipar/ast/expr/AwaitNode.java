@@ -0,0 +1,35 @@
+package compiladores.minipar.ast.expr;
+
+import compiladores.minipar.interpreter.InterpreterVisitor;
+import compiladores.minipar.semantic.ASTVisitor;
+import compiladores.minipar.semantic.ExprType;
+import compiladores.minipar.semantic.SemanticException;
+
+/** await h: espera a chamada do future h terminar e devolve o resultado dela */
+public class AwaitNode extends ExprNode {
+    private final ExprNode future;
+
+    public AwaitNode(ExprNode future, int line) {
+        super(line);
+        this.future = future;
+    }
+
+    public ExprNode getFuture() {
+        return future;
+    }
+
+    @Override
+    public ExprType accept(ASTVisitor visitor) throws SemanticException {
+        return visitor.visit(this);
+    }
+
+    @Override
+    public Object acceptExecution(InterpreterVisitor visitor) {
+        return visitor.visit(this);
+    }
+
+    @Override
+    public String toString() {
+        return "await " + future;
+    }
+}
@@ -0,0 +1,35 @@
+package compiladores.minipar.ast.expr;
+
+/**
+ * Operadores binários, resolvidos pelo parser a partir do token.
+ */
+public enum BinaryOp {
+    ADD("+"),
+    SUB("-"),
+    MUL("*"),
+    DIV("/"),
+    MOD("%"),
+    EQ("=="),
+    NE("!="),
+    LT("<"),
+    LE("<="),
+    GT(">"),
+    GE(">="),
+    AND("&&"),
+    OR("||");
+
+    private final String symbol;
+
+    BinaryOp(String symbol) {
+        this.symbol = symbol;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    @Override
+    public String toString() {
+        return symbol;
+    }
+}
@@ -1,21 +1,24 @@
 package compiladores.minipar.ast.expr;
 
 import compiladores.minipar.interpreter.InterpreterVisitor;
+import compiladores.minipar.interpreter.Specialization;
 import compiladores.minipar.semantic.ASTVisitor;
 import compiladores.minipar.semantic.ExprType;
 import compiladores.minipar.semantic.SemanticException;
 
 public class BinaryOpNode extends ExprNode {
-    private final String op;
+    private final BinaryOp op;
     private final ExprNode left, right;
-    public BinaryOpNode(String op, ExprNode left, ExprNode right, int line) {
+    // versão especializada instalada pelo SpecializingInterpreter
+    private Specialization<BinaryOpNode> specialization;
+    public BinaryOpNode(BinaryOp op, ExprNode left, ExprNode right, int line) {
         super(line);
         this.op = op;
         this.left = left;
         this.right = right;
     }
 
-    public String getOp() {
+    public BinaryOp getOp() {
         return op;
     }
 
@@ -27,6 +30,14 @@ public class BinaryOpNode extends ExprNode {
         return right;
     }
 
+    public Specialization<BinaryOpNode> getSpecialization() {
+        return specialization;
+    }
+
+    public void setSpecialization(Specialization<BinaryOpNode> specialization) {
+        this.specialization = specialization;
+    }
+
     @Override
     public ExprType accept(ASTVisitor visitor) throws SemanticException {
         return visitor.visit(this);
@@ -37,6 +48,16 @@ public class BinaryOpNode extends ExprNode {
         return visitor.visit(this);
     }
 
+    @Override
+    public double acceptDouble(InterpreterVisitor visitor) {
+        return visitor.visitDouble(this);
+    }
+
+    @Override
+    public boolean acceptBoolean(InterpreterVisitor visitor) {
+        return visitor.visitBoolean(this);
+    }
+
     @Override
     public String toString() {
         return "(" + left.toString() + " " + op + " " + right.toString() + ")";
@@ -1,5 +1,6 @@
 package compiladores.minipar.ast.expr;
 
+import compiladores.minipar.ast.stmt.FuncDefNode;
 import compiladores.minipar.interpreter.InterpreterVisitor;
 import compiladores.minipar.semantic.ASTVisitor;
 import compiladores.minipar.semantic.ExprType;
@@ -10,6 +11,9 @@ import java.util.List;
 public class CallNode extends ExprNode {
     private final String funcName;
     private final List<ExprNode> args;
+    private FuncDefNode function; // função do usuário resolvida pelo SemanticAnalyzer
+    private IdentifierNode callee; // variável func chamada, quando não é nome de função
+
     public CallNode(String funcName, List<ExprNode> args, int line) {
         super(line);
         this.funcName = funcName;
@@ -24,6 +28,22 @@ public class CallNode extends ExprNode {
         return args;
     }
 
+    public FuncDefNode getFunction() {
+        return function;
+    }
+
+    public void setFunction(FuncDefNode function) {
+        this.function = function;
+    }
+
+    public IdentifierNode getCallee() {
+        return callee;
+    }
+
+    public void setCallee(IdentifierNode callee) {
+        this.callee = callee;
+    }
+
     @Override
     public ExprType accept(ASTVisitor visitor) throws SemanticException {
         return visitor.visit(this);
@@ -34,6 +54,11 @@ public class CallNode extends ExprNode {
         return visitor.visit(this);
     }
 
+    @Override
+    public double acceptDouble(InterpreterVisitor visitor) {
+        return visitor.visitDouble(this);
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
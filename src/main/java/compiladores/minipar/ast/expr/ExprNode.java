@@ -7,11 +7,43 @@ import compiladores.minipar.semantic.ExprType;
 import compiladores.minipar.semantic.SemanticException;
 
 public abstract class ExprNode extends ASTNode {
+    // tipo estático preenchido pelo SemanticAnalyzer
+    private ExprType exprType;
+
     protected ExprNode(int line) { super(line); }
 
+    public ExprType getExprType() {
+        return exprType;
+    }
+
+    public void setExprType(ExprType exprType) {
+        this.exprType = exprType;
+    }
+
     public abstract ExprType accept(ASTVisitor visitor) throws SemanticException;
     public abstract Object acceptExecution(InterpreterVisitor visitor);
 
+    /**
+     * Avalia uma expressão NUMBER sem boxing. Nós aritméticos sobrescrevem;
+     * os demais passam pelo caminho genérico.
+     */
+    public double acceptDouble(InterpreterVisitor visitor) {
+        Object value = acceptExecution(visitor);
+        if (value instanceof Number n) {
+            return n.doubleValue();
+        }
+        throw new RuntimeException("Linha " + getLine() + ": valor numérico esperado");
+    }
+
+    /** Avalia uma expressão BOOL sem boxing */
+    public boolean acceptBoolean(InterpreterVisitor visitor) {
+        Object value = acceptExecution(visitor);
+        if (value instanceof Boolean b) {
+            return b;
+        }
+        throw new RuntimeException("Linha " + getLine() + ": valor booleano esperado");
+    }
+
     @Override
     public String toString() {
         return "expr";
@@ -1,5 +1,6 @@
 package compiladores.minipar.ast.expr;
 
+import compiladores.minipar.ast.stmt.FuncDefNode;
 import compiladores.minipar.interpreter.InterpreterVisitor;
 import compiladores.minipar.semantic.ASTVisitor;
 import compiladores.minipar.semantic.ExprType;
@@ -7,6 +8,16 @@ import compiladores.minipar.semantic.SemanticException;
 
 public class IdentifierNode extends ExprNode {
     private final String name;
+    // endereço léxico preenchido pelo SemanticAnalyzer
+    private int depth = -1;
+    private int slot = -1;
+    // variável acessada por ramos de 'par' ao mesmo tempo: leitura e escrita voláteis
+    private boolean concurrent;
+    // nome de função usado como valor (func), em vez de variável
+    private FuncDefNode function;
+    // variável atômica de fora de 'par for' no mesmo quadro: cópias do quadro a desfazer
+    private int loopCopies;
+
     public IdentifierNode(String name, int line) {
         super(line);
         this.name = name;
@@ -16,6 +27,51 @@ public class IdentifierNode extends ExprNode {
         return name;
     }
 
+    /**
+     * @return quantos quadros acima do quadro atual a variável está
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    public int getSlot() {
+        return slot;
+    }
+
+    public void resolve(int depth, int slot) {
+        this.depth = depth;
+        this.slot = slot;
+    }
+
+    public FuncDefNode getFunction() {
+        return function;
+    }
+
+    public void setFunction(FuncDefNode function) {
+        this.function = function;
+    }
+
+    /**
+     * Cada pedaço de um 'par for' roda numa cópia do quadro do laço. Uma
+     * variável que o corpo atualiza com atomic_add é lida e gravada no
+     * quadro original, {@code loopCopies} cópias acima.
+     */
+    public int getLoopCopies() {
+        return loopCopies;
+    }
+
+    public void setLoopCopies(int loopCopies) {
+        this.loopCopies = loopCopies;
+    }
+
+    public boolean isConcurrent() {
+        return concurrent;
+    }
+
+    public void setConcurrent(boolean concurrent) {
+        this.concurrent = concurrent;
+    }
+
     @Override
     public ExprType accept(ASTVisitor visitor) throws SemanticException {
         return visitor.visit(this);
@@ -26,6 +82,11 @@ public class IdentifierNode extends ExprNode {
         return visitor.visit(this);
     }
 
+    @Override
+    public double acceptDouble(InterpreterVisitor visitor) {
+        return visitor.visitDouble(this);
+    }
+
     @Override
     public String toString() {
         return name;
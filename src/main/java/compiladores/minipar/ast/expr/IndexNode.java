@@ -1,12 +1,15 @@
 package compiladores.minipar.ast.expr;
 
 import compiladores.minipar.interpreter.InterpreterVisitor;
+import compiladores.minipar.interpreter.Specialization;
 import compiladores.minipar.semantic.ASTVisitor;
 import compiladores.minipar.semantic.ExprType;
 import compiladores.minipar.semantic.SemanticException;
 
 public class IndexNode extends ExprNode {
     private final ExprNode target, index;
+    // versão especializada instalada pelo SpecializingInterpreter
+    private Specialization<IndexNode> specialization;
     public IndexNode(ExprNode target, ExprNode index, int line) {
         super(line);
         this.target = target;
@@ -21,6 +24,14 @@ public class IndexNode extends ExprNode {
         return index;
     }
 
+    public Specialization<IndexNode> getSpecialization() {
+        return specialization;
+    }
+
+    public void setSpecialization(Specialization<IndexNode> specialization) {
+        this.specialization = specialization;
+    }
+
     @Override
     public ExprType accept(ASTVisitor visitor) throws SemanticException {
         return visitor.visit(this);
@@ -31,6 +42,11 @@ public class IndexNode extends ExprNode {
         return visitor.visit(this);
     }
 
+    @Override
+    public double acceptDouble(InterpreterVisitor visitor) {
+        return visitor.visitDouble(this);
+    }
+
     @Override
     public String toString() {
         return target.toString() + "[" + index.toString() + "]";
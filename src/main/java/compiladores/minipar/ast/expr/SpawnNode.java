@@ -0,0 +1,38 @@
+package compiladores.minipar.ast.expr;
+
+import compiladores.minipar.interpreter.InterpreterVisitor;
+import compiladores.minipar.semantic.ASTVisitor;
+import compiladores.minipar.semantic.ExprType;
+import compiladores.minipar.semantic.SemanticException;
+
+/**
+ * spawn f(args): começa a chamada no pool de threads e devolve na hora um
+ * future&lt;T&gt;, de onde 'await' tira o resultado.
+ */
+public class SpawnNode extends ExprNode {
+    private final CallNode call;
+
+    public SpawnNode(CallNode call, int line) {
+        super(line);
+        this.call = call;
+    }
+
+    public CallNode getCall() {
+        return call;
+    }
+
+    @Override
+    public ExprType accept(ASTVisitor visitor) throws SemanticException {
+        return visitor.visit(this);
+    }
+
+    @Override
+    public Object acceptExecution(InterpreterVisitor visitor) {
+        return visitor.visit(this);
+    }
+
+    @Override
+    public String toString() {
+        return "spawn " + call;
+    }
+}
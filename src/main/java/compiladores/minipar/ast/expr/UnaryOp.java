@@ -0,0 +1,24 @@
+package compiladores.minipar.ast.expr;
+
+/**
+ * Operadores unários, resolvidos pelo parser a partir do token.
+ */
+public enum UnaryOp {
+    NEG("-"),
+    NOT("!");
+
+    private final String symbol;
+
+    UnaryOp(String symbol) {
+        this.symbol = symbol;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    @Override
+    public String toString() {
+        return symbol;
+    }
+}
@@ -6,15 +6,15 @@ import compiladores.minipar.semantic.ExprType;
 import compiladores.minipar.semantic.SemanticException;
 
 public class UnaryOpNode extends ExprNode {
-    private final String op;
+    private final UnaryOp op;
     private final ExprNode expr;
-    public UnaryOpNode(String op, ExprNode expr, int line) {
+    public UnaryOpNode(UnaryOp op, ExprNode expr, int line) {
         super(line);
         this.op = op;
         this.expr = expr;
     }
 
-    public String getOp() {
+    public UnaryOp getOp() {
         return op;
     }
 
@@ -32,6 +32,16 @@ public class UnaryOpNode extends ExprNode {
         return visitor.visit(this);
     }
 
+    @Override
+    public double acceptDouble(InterpreterVisitor visitor) {
+        return visitor.visitDouble(this);
+    }
+
+    @Override
+    public boolean acceptBoolean(InterpreterVisitor visitor) {
+        return visitor.visitBoolean(this);
+    }
+
     @Override
     public String toString() {
         return op + expr.toString();
@@ -8,6 +8,8 @@ import compiladores.minipar.semantic.SemanticException;
 public class AssignmentNode extends StmtNode {
     private final ExprNode target;       // antes String id
     private final ExprNode value;
+    // a = a + x com 'a' nunca compartilhado: anexa no próprio array
+    private boolean appendInPlace;
 
     public AssignmentNode(ExprNode target, ExprNode value, int line) {
         super(line);
@@ -23,6 +25,14 @@ public class AssignmentNode extends StmtNode {
         return value;
     }
 
+    public boolean isAppendInPlace() {
+        return appendInPlace;
+    }
+
+    public void setAppendInPlace(boolean appendInPlace) {
+        this.appendInPlace = appendInPlace;
+    }
+
     @Override
     public void accept(ASTVisitor visitor) throws SemanticException {
         visitor.visit(this);
@@ -6,10 +6,20 @@ import compiladores.minipar.semantic.ASTVisitor;
 import compiladores.minipar.semantic.SemanticException;
 
 public class CChannelNode extends ChannelNode {
+    private int slot = -1; // slot da variável com o nome do canal
+
     public CChannelNode(String name, ExprNode host, ExprNode port, int line) {
         super(name, host, port, line);
     }
 
+    public int getSlot() {
+        return slot;
+    }
+
+    public void setSlot(int slot) {
+        this.slot = slot;
+    }
+
     @Override
     public void accept(ASTVisitor visitor) throws SemanticException {
         visitor.visit(this);
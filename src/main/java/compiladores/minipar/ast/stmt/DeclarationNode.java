@@ -8,6 +8,8 @@ import compiladores.minipar.semantic.SemanticException;
 public class DeclarationNode extends StmtNode {
     private final String id, typeName;
     private final ExprNode init;
+    private int slot = -1; // slot no quadro atual, preenchido pelo SemanticAnalyzer
+
     public DeclarationNode(String id, String typeName, ExprNode init, int line) {
         super(line);
         this.id = id;
@@ -27,6 +29,14 @@ public class DeclarationNode extends StmtNode {
         return init;
     }
 
+    public int getSlot() {
+        return slot;
+    }
+
+    public void setSlot(int slot) {
+        this.slot = slot;
+    }
+
     @Override
     public void accept(ASTVisitor visitor) throws SemanticException {
         visitor.visit(this);
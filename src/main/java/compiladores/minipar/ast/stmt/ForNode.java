@@ -10,13 +10,19 @@ public class ForNode extends StmtNode {
     private final ExprNode condition;     // Ex: i < 10
     private final StmtNode update;        // Ex: i = i + 1
     private final BlockNode body;         // Corpo do laço
+    // par for: iterações independentes divididas entre as threads
+    private final boolean parallel;
+    // incremento constante do índice, validado pelo SemanticAnalyzer no par for
+    private double step;
 
-    public ForNode(StmtNode init, ExprNode condition, StmtNode update, BlockNode body, int line) {
+    public ForNode(StmtNode init, ExprNode condition, StmtNode update, BlockNode body,
+                   boolean parallel, int line) {
         super(line);
         this.init = init;
         this.condition = condition;
         this.update = update;
         this.body = body;
+        this.parallel = parallel;
     }
 
     public StmtNode getInit() {
@@ -35,6 +41,18 @@ public class ForNode extends StmtNode {
         return body;
     }
 
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    public double getStep() {
+        return step;
+    }
+
+    public void setStep(double step) {
+        this.step = step;
+    }
+
     @Override
     public void accept(ASTVisitor visitor) throws SemanticException {
         visitor.visit(this);
@@ -47,6 +65,6 @@ public class ForNode extends StmtNode {
 
     @Override
     public String toString() {
-        return String.format("(for %s; %s; %s %s)", init, condition, update, body);
+        return String.format("(%s %s; %s; %s %s)", parallel ? "par for" : "for", init, condition, update, body);
     }
 }
@@ -13,6 +13,13 @@ public class FuncDefNode extends StmtNode {
     private final String name, returnType;
     private final Map<String, Pair<String, ExprNode>> params;
     private final BlockNode body;
+    // preenchidos pelo SemanticAnalyzer
+    private int index = -1;
+    private int level;
+    private int frameSize;
+    private int numberFrameSize;
+    private int[] paramSlots;
+
     public FuncDefNode(String name, String returnType,
                        Map<String, Pair<String, ExprNode>> params,
                        BlockNode body, int line) {
@@ -39,6 +46,49 @@ public class FuncDefNode extends StmtNode {
         return body;
     }
 
+    /**
+     * @return número sequencial da função no programa
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return nível do quadro da função (funções globais têm nível 1)
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * @return quantidade de slots de objetos do quadro
+     */
+    public int getFrameSize() {
+        return frameSize;
+    }
+
+    /**
+     * @return quantidade de slots numéricos do quadro
+     */
+    public int getNumberFrameSize() {
+        return numberFrameSize;
+    }
+
+    /**
+     * @return slot de cada parâmetro, na ordem da declaração
+     */
+    public int[] getParamSlots() {
+        return paramSlots;
+    }
+
+    public void setLayout(int index, int level, int frameSize, int numberFrameSize, int[] paramSlots) {
+        this.index = index;
+        this.level = level;
+        this.frameSize = frameSize;
+        this.numberFrameSize = numberFrameSize;
+        this.paramSlots = paramSlots;
+    }
+
     @Override
     public void accept(ASTVisitor visitor) throws SemanticException {
         visitor.visit(this);
@@ -4,17 +4,48 @@ import compiladores.minipar.interpreter.InterpreterVisitor;
 import compiladores.minipar.semantic.ASTVisitor;
 import compiladores.minipar.semantic.SemanticException;
 
+import java.util.List;
+
 public class ParNode extends StmtNode {
     private final BlockNode body;
-    public ParNode(BlockNode body, int line) {
+    // par snapshot: cada ramo vê uma cópia do ambiente e só publica com 'publish'
+    private final boolean snapshot;
+    // linha em que começa cada ramo, para os erros dos ramos
+    private final int[] branchLines;
+    // par snapshot: variáveis do ambiente que outras threads podem alterar enquanto os ramos rodam
+    private List<Capture> captured = List.of();
+
+    /** Variável copiada para a visão dos ramos quando o 'par snapshot' começa */
+    public record Capture(int level, int slot, boolean number) {
+    }
+
+    public ParNode(BlockNode body, boolean snapshot, int[] branchLines, int line) {
         super(line);
         this.body = body;
+        this.snapshot = snapshot;
+        this.branchLines = branchLines;
     }
 
     public BlockNode getBody() {
         return body;
     }
 
+    public boolean isSnapshot() {
+        return snapshot;
+    }
+
+    public int getBranchLine(int branch) {
+        return branchLines[branch];
+    }
+
+    public List<Capture> getCaptured() {
+        return captured;
+    }
+
+    public void setCaptured(List<Capture> captured) {
+        this.captured = captured;
+    }
+
     @Override
     public void accept(ASTVisitor visitor) throws SemanticException {
         visitor.visit(this);
@@ -27,6 +58,6 @@ public class ParNode extends StmtNode {
 
     @Override
     public String toString() {
-        return "par " + body.toString();
+        return (snapshot ? "par snapshot " : "par ") + body.toString();
     }
 }
\ No newline at end of file
@@ -0,0 +1,38 @@
+package compiladores.minipar.ast.stmt;
+
+import compiladores.minipar.ast.expr.IdentifierNode;
+import compiladores.minipar.interpreter.InterpreterVisitor;
+import compiladores.minipar.semantic.ASTVisitor;
+import compiladores.minipar.semantic.SemanticException;
+
+/**
+ * publish x: num ramo de 'par snapshot', entrega o valor atual de x ao
+ * ambiente que envolve o 'par' quando o bloco terminar.
+ */
+public class PublishNode extends StmtNode {
+    private final IdentifierNode target;
+
+    public PublishNode(IdentifierNode target, int line) {
+        super(line);
+        this.target = target;
+    }
+
+    public IdentifierNode getTarget() {
+        return target;
+    }
+
+    @Override
+    public void accept(ASTVisitor visitor) throws SemanticException {
+        visitor.visit(this);
+    }
+
+    @Override
+    public void acceptExecution(InterpreterVisitor visitor) {
+        visitor.visit(this);
+    }
+
+    @Override
+    public String toString() {
+        return "publish " + target;
+    }
+}
@@ -8,6 +8,8 @@ import compiladores.minipar.semantic.SemanticException;
 public class SChannelNode extends ChannelNode {
     private final String funcName;
     private final ExprNode description;
+    // função que atende cada linha recebida; preenchida pela análise semântica
+    private FuncDefNode function;
     public SChannelNode(String name, String funcName,
                         ExprNode host, ExprNode port,
                         ExprNode description, int line) {
@@ -24,6 +26,14 @@ public class SChannelNode extends ChannelNode {
         return description;
     }
 
+    public FuncDefNode getFunction() {
+        return function;
+    }
+
+    public void setFunction(FuncDefNode function) {
+        this.function = function;
+    }
+
     @Override
     public void accept(ASTVisitor visitor) throws SemanticException {
         visitor.visit(this);
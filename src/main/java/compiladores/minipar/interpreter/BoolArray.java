@@ -0,0 +1,69 @@
+package compiladores.minipar.interpreter;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/** Array [bool] sobre um boolean[] */
+public final class BoolArray extends MiniParArray {
+    private boolean[] data;
+
+    public BoolArray(int capacity) {
+        this.data = new boolean[Math.max(capacity, MIN_CAPACITY)];
+    }
+
+    private BoolArray(boolean[] data, int size) {
+        this.data = data;
+        this.size = size;
+    }
+
+    public static BoolArray filled(int n, boolean value) {
+        BoolArray array = new BoolArray(n);
+        Arrays.fill(array.data, 0, n, value);
+        array.size = n;
+        return array;
+    }
+
+    public boolean getBoolean(int index) {
+        Objects.checkIndex(index, size);
+        return data[index];
+    }
+
+    public void setBoolean(int index, boolean value) {
+        Objects.checkIndex(index, size);
+        data[index] = value;
+    }
+
+    @Override
+    public Object get(int index) {
+        return getBoolean(index);
+    }
+
+    @Override
+    public Object set(int index, Object value) {
+        Object old = get(index);
+        data[index] = bool(value);
+        return old;
+    }
+
+    @Override
+    public boolean add(Object value) {
+        boolean b = bool(value);
+        if (size == data.length) {
+            data = Arrays.copyOf(data, grow(data.length, size + 1));
+        }
+        data[size++] = b;
+        return true;
+    }
+
+    @Override
+    public BoolArray copy(int extra) {
+        return new BoolArray(Arrays.copyOf(data, Math.max(size + extra, MIN_CAPACITY)), size);
+    }
+
+    private static boolean bool(Object value) {
+        if (value instanceof Boolean b) {
+            return b;
+        }
+        throw wrongElement("bool", value);
+    }
+}
@@ -0,0 +1,323 @@
+package compiladores.minipar.interpreter;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Implementação das funções embutidas, compartilhada pelos motores de execução
+ * (interpretador de árvore e VM). Recebe os argumentos já avaliados.
+ */
+public class Builtins {
+    /**
+     * Tamanho dos blocos de sum, map, filter e reduce_assoc. O interpretador divide
+     * os blocos entre as threads, mas combina os resultados sempre na ordem
+     * dos blocos, então o resultado não depende de quantas threads havia.
+     */
+    public static final int BLOCK = 4096;
+
+    private final Map<String, ClientConnection> channels;
+    // mensagem que o último select tirou do canal, guardada para o chan_recv seguinte
+    private Channel selected;
+    private Object selectedValue;
+    // canal por onde o próximo select começa a procurar, para não favorecer o primeiro
+    private int selectStart;
+
+    public Builtins(Map<String, ClientConnection> channels) {
+        this.channels = channels;
+    }
+
+    public Object call(String funcName, Object[] args) {
+        switch (funcName) {
+            case "print": {
+                StringBuilder output = Output.buffer();
+                for (int i = 0; i < args.length; i++) {
+                    formatTo(output, args[i]);
+                    if (i < args.length - 1) {
+                        output.append(" ");
+                    }
+                }
+                Output.endLine(output);
+                return null;
+            }
+            case "input": {
+                Scanner scanner = new Scanner(System.in);
+                return ParScheduler.blocking(scanner::nextLine);
+            }
+            case "sleep":
+                long millis = ((Number) args[0]).longValue();
+                return ParScheduler.blocking(() -> {
+                    Thread.sleep(millis);
+                    return null;
+                });
+            case "split": {
+                if (!(args[0] instanceof String) || !(args[1] instanceof String)) {
+                    throw new RuntimeException("split requer duas strings como argumentos");
+                }
+                String str = (String) args[0];
+                String delim = (String) args[1];
+                String[] parts = str.split(delim);
+                return MiniParArray.copyOf(Arrays.asList(parts), 0);
+            }
+            case "zeros":
+                return NumberArray.filled(count(args[0], "zeros"), 0);
+            case "fill": {
+                int n = count(args[0], "fill");
+                if (args[1] instanceof Number v) {
+                    return NumberArray.filled(n, v.doubleValue());
+                } else if (args[1] instanceof Boolean v) {
+                    return BoolArray.filled(n, v);
+                } else if (args[1] instanceof String v) {
+                    return StringArray.filled(n, v);
+                }
+                throw new RuntimeException("fill requer number, string ou bool como valor");
+            }
+            case "isnum": {
+                if (!(args[0] instanceof String)) {
+                    throw new RuntimeException("isnum requer uma string como argumento");
+                }
+                String str = (String) args[0];
+                try {
+                    Double.parseDouble(str);
+                    return true;
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            }
+            case "isalpha": {
+                if (!(args[0] instanceof String)) {
+                    throw new RuntimeException("isalpha requer uma string como argumento");
+                }
+                String str = (String) args[0];
+                return str.chars().allMatch(Character::isLetter);
+            }
+            case "to_number": {
+                if (!(args[0] instanceof String)) {
+                    throw new RuntimeException("to_number requer uma string como argumento");
+                }
+                String str = (String) args[0];
+                try {
+                    return Double.parseDouble(str);
+                } catch (NumberFormatException e) {
+                    throw new RuntimeException("Não é possível converter para número: " + str);
+                }
+            }
+            case "to_string":
+                return formatValue(args[0]);
+            case "to_bool": {
+                if (args[0] instanceof Boolean) {
+                    return args[0];
+                }
+                if (args[0] instanceof Number) {
+                    return ((Number) args[0]).doubleValue() != 0;
+                }
+                String str = String.valueOf(args[0]).trim();
+                if (str.equalsIgnoreCase("true")) {
+                    return true;
+                }
+                if (str.equalsIgnoreCase("false")) {
+                    return false;
+                }
+                throw new RuntimeException("Não é possível converter para bool: " + str);
+            }
+            case "sum": {
+                NumberArray array = (NumberArray) args[0];
+                double total = 0;
+                for (int from = 0; from < array.size(); from += BLOCK) {
+                    total += sum(array, from, Math.min(array.size(), from + BLOCK));
+                }
+                return total;
+            }
+            case "chan": {
+                double capacity = ((Number) args[0]).doubleValue();
+                if (capacity < 1 || capacity > Integer.MAX_VALUE - 8 || capacity != Math.floor(capacity)) {
+                    throw new RuntimeException("chan requer uma capacidade inteira positiva");
+                }
+                return new Channel((int) capacity);
+            }
+            case "chan_send":
+                ((Channel) args[0]).send(args[1]);
+                return null;
+            case "chan_recv": {
+                Channel channel = (Channel) args[0];
+                if (channel == selected) {
+                    Object value = selectedValue;
+                    selected = null;
+                    selectedValue = null;
+                    return value;
+                }
+                return channel.receive();
+            }
+            case "select":
+                return (double) select(args);
+            case "len": {
+                Object obj = args[0];
+                if (obj instanceof List) {
+                    return (double) ((List<?>) obj).size();
+                } else if (obj instanceof String) {
+                    return (double) ((String) obj).length();
+                }
+                throw new RuntimeException("len requer uma lista ou string como argumento");
+            }
+            case "send": {
+                if (args.length != 2) {
+                    throw new RuntimeException("send requer exatamente 2 argumentos");
+                }
+                if (!(args[0] instanceof String) || !(args[1] instanceof String)) {
+                    throw new RuntimeException("send requer c_channel e string como argumentos");
+                }
+                try {
+                    return connection((String) args[0]).send((String) args[1]);
+                } catch (IOException e) {
+                    throw new RuntimeException("Erro ao enviar mensagem: " + e.getMessage());
+                }
+            }
+            case "send_batch": {
+                if (!(args[0] instanceof String) || !(args[1] instanceof List)) {
+                    throw new RuntimeException("send_batch requer c_channel e [string] como argumentos");
+                }
+                try {
+                    String[] replies = connection((String) args[0]).sendBatch((List<?>) args[1]);
+                    StringArray result = new StringArray(replies.length);
+                    Collections.addAll(result, replies);
+                    return result;
+                } catch (IOException e) {
+                    throw new RuntimeException("Erro ao enviar mensagens: " + e.getMessage());
+                }
+            }
+            case "send_async": {
+                if (!(args[0] instanceof String) || !(args[1] instanceof String)) {
+                    throw new RuntimeException("send_async requer c_channel e string como argumentos");
+                }
+                try {
+                    return FutureValue.reply(connection((String) args[0]).sendAsync((String) args[1]));
+                } catch (IOException e) {
+                    throw new RuntimeException("Erro ao enviar mensagem: " + e.getMessage());
+                }
+            }
+            case "recv":
+                return ((FutureValue) args[0]).await();
+            case "close": {
+                if (args.length != 1) {
+                    throw new RuntimeException("close requer exatamente 1 argumento");
+                }
+                if (!(args[0] instanceof String)) {
+                    throw new RuntimeException("close requer c_channel como argumento");
+                }
+                String channelName = (String) args[0];
+                ClientConnection connection = channels.get(channelName);
+                if (connection != null) {
+                    try {
+                        connection.close();
+                        channels.remove(channelName);
+                    } catch (IOException e) {
+                        throw new RuntimeException("Erro ao fechar canal: " + e.getMessage());
+                    }
+                }
+                return null;
+            }
+            default:
+                throw new RuntimeException("Função não definida: " + funcName);
+        }
+    }
+
+    private ClientConnection connection(String channelName) {
+        ClientConnection connection = channels.get(channelName);
+        if (connection == null) {
+            throw new RuntimeException("Canal não encontrado: " + channelName);
+        }
+        return connection;
+    }
+
+    /**
+     * Espera uma mensagem em qualquer um dos canais e retorna o índice do
+     * canal. A mensagem já sai do canal aqui (outro consumidor poderia
+     * levá-la antes) e fica reservada para o próximo chan_recv dele.
+     */
+    private int select(Object[] args) {
+        Channel[] candidates = new Channel[args.length];
+        for (int i = 0; i < args.length; i++) {
+            candidates[i] = (Channel) args[i];
+            if (candidates[i] == selected) {
+                return i; // a reserva anterior ainda não foi recebida
+            }
+        }
+        if (selected != null) {
+            throw new RuntimeException("select: a mensagem do select anterior ainda não foi recebida com chan_recv");
+        }
+        while (true) {
+            for (int k = 0; k < candidates.length; k++) {
+                int i = (selectStart + k) % candidates.length;
+                Object value = candidates[i].poll();
+                if (value != null) {
+                    selectStart = i + 1;
+                    selected = candidates[i];
+                    selectedValue = value;
+                    selected.handOff();
+                    return i;
+                }
+            }
+            Channel.awaitAny(candidates);
+        }
+    }
+
+    /** Soma dos elementos [from, to), um bloco de sum */
+    static double sum(NumberArray array, int from, int to) {
+        double total = 0;
+        for (int i = from; i < to; i++) {
+            total += array.getDouble(i);
+        }
+        return total;
+    }
+
+    /** Tamanho pedido a zeros/fill: número inteiro não negativo */
+    private static int count(Object arg, String funcName) {
+        if (!(arg instanceof Number n) || n.doubleValue() < 0 || n.doubleValue() > Integer.MAX_VALUE - 8) {
+            throw new RuntimeException(funcName + " requer um tamanho não negativo");
+        }
+        return n.intValue();
+    }
+
+    public static String formatValue(Object value) {
+        StringBuilder sb = new StringBuilder();
+        formatTo(sb, value);
+        return sb.toString();
+    }
+
+    /** Escreve o valor formatado direto em {@code sb}, sem uma String por elemento */
+    public static void formatTo(StringBuilder sb, Object value) {
+        if (value instanceof Number num) {
+            formatNumber(sb, num.doubleValue());
+        } else if (value instanceof NumberArray numbers) {
+            // sem boxing: cada elemento sai do double[] direto para o buffer
+            sb.append('[');
+            for (int i = 0; i < numbers.size(); i++) {
+                if (i > 0) {
+                    sb.append(", ");
+                }
+                formatNumber(sb, numbers.getDouble(i));
+            }
+            sb.append(']');
+        } else if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            sb.append('[');
+            for (int i = 0; i < list.size(); i++) {
+                formatTo(sb, list.get(i));
+                if (i < list.size() - 1) {
+                    sb.append(", ");
+                }
+            }
+            sb.append(']');
+        } else {
+            sb.append(value);
+        }
+    }
+
+    /** Inteiros sem ".0" */
+    private static void formatNumber(StringBuilder sb, double d) {
+        if (d == Math.floor(d) && !Double.isInfinite(d)) {
+            sb.append((long) d);
+        } else {
+            sb.append(d);
+        }
+    }
+}
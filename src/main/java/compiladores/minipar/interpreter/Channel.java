@@ -0,0 +1,187 @@
+package compiladores.minipar.interpreter;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Canal em memória entre ramos de 'par' (chan_send, chan_recv e select).
+ *
+ * <p>A fila é um buffer circular limitado e sem locks: cada posição tem um
+ * número de sequência que diz se ela está livre para a volta {@code pos} do
+ * produtor ou preenchida para o consumidor. Produtores e consumidores só
+ * disputam um CAS no contador do seu lado, então vários consumidores (e
+ * também vários produtores) podem usar o mesmo canal. Quem encontra o canal
+ * cheio ou vazio estaciona a thread até a operação do outro lado acordá-la.
+ */
+public final class Channel {
+    private final int capacity;
+    private final Object[] items;
+    // sequence[i] == pos: livre para o envio pos; == pos + 1: mensagem do envio pos
+    private final AtomicLongArray sequence;
+    private final AtomicLong sendPos = new AtomicLong();
+    private final AtomicLong recvPos = new AtomicLong();
+    // threads estacionadas esperando espaço ou mensagem
+    private final Queue<Thread> senders = new ConcurrentLinkedQueue<>();
+    private final Queue<Thread> receivers = new ConcurrentLinkedQueue<>();
+
+    public Channel(int capacity) {
+        this.capacity = capacity;
+        this.items = new Object[capacity];
+        this.sequence = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequence.set(i, i);
+        }
+    }
+
+    /** Envia {@code value}, esperando enquanto o canal está cheio */
+    public void send(Object value) {
+        while (!offer(value)) {
+            await(senders, () -> !isFull());
+        }
+        if (!isFull()) {
+            wakeOne(senders);
+        }
+    }
+
+    /** Recebe a próxima mensagem, esperando enquanto o canal está vazio */
+    public Object receive() {
+        Object value;
+        while ((value = poll()) == null) {
+            await(receivers, () -> !isEmpty());
+        }
+        handOff();
+        return value;
+    }
+
+    /**
+     * Um envio acorda só uma thread, e ela pode ter sido um select que saiu
+     * por outro canal ou alguém que perdeu a mensagem para outro consumidor.
+     * Quem recebe repassa o aviso se ainda sobrou mensagem.
+     */
+    void handOff() {
+        if (!isEmpty()) {
+            wakeOne(receivers);
+        }
+    }
+
+    /** Envia sem esperar; false se o canal está cheio */
+    public boolean offer(Object value) {
+        long pos = sendPos.get();
+        while (true) {
+            int index = (int) (pos % capacity);
+            long diff = sequence.get(index) - pos;
+            if (diff == 0) {
+                if (sendPos.compareAndSet(pos, pos + 1)) {
+                    items[index] = value;
+                    sequence.set(index, pos + 1);
+                    wakeOne(receivers);
+                    return true;
+                }
+                pos = sendPos.get();
+            } else if (diff < 0) {
+                return false; // a posição ainda guarda a mensagem de uma volta atrás
+            } else {
+                pos = sendPos.get(); // outro produtor passou na frente
+            }
+        }
+    }
+
+    /** Recebe sem esperar; null se o canal está vazio */
+    public Object poll() {
+        long pos = recvPos.get();
+        while (true) {
+            int index = (int) (pos % capacity);
+            long diff = sequence.get(index) - (pos + 1);
+            if (diff == 0) {
+                if (recvPos.compareAndSet(pos, pos + 1)) {
+                    Object value = items[index];
+                    items[index] = null;
+                    sequence.set(index, pos + capacity);
+                    wakeOne(senders);
+                    return value;
+                }
+                pos = recvPos.get();
+            } else if (diff < 0) {
+                return null;
+            } else {
+                pos = recvPos.get();
+            }
+        }
+    }
+
+    boolean isEmpty() {
+        long pos = recvPos.get();
+        return sequence.get((int) (pos % capacity)) != pos + 1;
+    }
+
+    private boolean isFull() {
+        long pos = sendPos.get();
+        return sequence.get((int) (pos % capacity)) != pos;
+    }
+
+    /**
+     * Espera por {@code select}: a thread fica na fila de todos os canais até
+     * um deles receber uma mensagem.
+     */
+    static void awaitAny(Channel[] channels) {
+        Thread thread = Thread.currentThread();
+        for (Channel channel : channels) {
+            channel.receivers.add(thread);
+        }
+        try {
+            for (Channel channel : channels) {
+                if (!channel.isEmpty()) {
+                    return;
+                }
+            }
+            park();
+        } finally {
+            for (Channel channel : channels) {
+                channel.receivers.remove(thread);
+            }
+        }
+    }
+
+    private interface Ready {
+        boolean test();
+    }
+
+    private static void await(Queue<Thread> waiters, Ready ready) {
+        Thread thread = Thread.currentThread();
+        waiters.add(thread);
+        try {
+            // a condição é conferida depois de entrar na fila: quem mudar o
+            // canal a partir daqui já vê esta thread e a acorda
+            if (!ready.test()) {
+                park();
+            }
+        } finally {
+            waiters.remove(thread);
+        }
+    }
+
+    private static void park() {
+        ParScheduler.blocking(() -> {
+            LockSupport.park();
+            if (Thread.interrupted()) {
+                throw new InterruptedException(); // ramo cancelado
+            }
+            return null;
+        });
+    }
+
+    private static void wakeOne(Queue<Thread> waiters) {
+        Thread thread = waiters.poll();
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "<chan " + capacity + ">";
+    }
+}
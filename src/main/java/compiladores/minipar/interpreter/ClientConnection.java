@@ -0,0 +1,279 @@
+package compiladores.minipar.interpreter;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Conexão de um c_channel. Os fluxos com buffer são criados uma vez e duram
+ * a conexão inteira: criar um leitor novo a cada send descartaria o que o
+ * anterior já tinha lido adiantado do socket.
+ *
+ * <p>send_async marca o pedido com um id ("#id mensagem") e o servidor
+ * responde com o mesmo id, então vários pedidos podem estar em andamento
+ * na mesma conexão e as respostas podem voltar fora de ordem. O primeiro
+ * send_async liga as marcas da conexão ({@link LineServer#MARKED}): daí em
+ * diante os pedidos de send e send_batch saem como "=mensagem", e nenhuma
+ * mensagem é confundida com um id. Uma thread passa a ler todas as
+ * respostas e as entrega: "#id" ao future do id, "=" em ordem a quem
+ * chamou send.
+ */
+public final class ClientConnection implements Closeable {
+    /**
+     * Pedidos de um send_batch escritos antes de ler as respostas. O limite
+     * evita que cliente e servidor fiquem os dois parados escrevendo, com
+     * os buffers do socket cheios, num lote muito grande.
+     */
+    static final int WINDOW = 256;
+
+    private final Socket socket;
+    private final BufferedReader in;
+    private final BufferedWriter out;
+
+    // null até o primeiro send_async; depois só ela lê do socket
+    private volatile Thread reader;
+    private volatile boolean ended;
+    private final AtomicLong nextId = new AtomicLong();
+    // respostas esperadas: por id (send_async) e na ordem dos pedidos (send, send_batch)
+    private final Map<Long, CompletableFuture<String>> pending = new ConcurrentHashMap<>();
+    private final Queue<CompletableFuture<String>> inOrder = new ConcurrentLinkedQueue<>();
+    // linhas esperando a escrita; quem está escrevendo leva as dos outros no mesmo flush
+    private final Queue<String> outgoing = new ConcurrentLinkedQueue<>();
+    private final ReentrantLock writing = new ReentrantLock();
+    // send e send_batch: leitura direta do socket e ordem em inOrder. Não é synchronized: uma
+    // thread virtual parada no socket com um monitor preso prende também a thread que a carrega
+    private final ReentrantLock sending = new ReentrantLock();
+
+    public ClientConnection(String host, int port) throws IOException {
+        this.socket = new Socket(host, port);
+        socket.setTcpNoDelay(true); // os pedidos já saem inteiros a cada flush
+        this.in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        this.out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+    }
+
+    /** Envia uma linha e espera a resposta; null se o servidor fechou a conexão */
+    public String send(String message) throws IOException {
+        CompletableFuture<String> reply;
+        sending.lock();
+        try {
+            if (reader == null) {
+                writeLine(message);
+                out.flush();
+                String[] replies = new String[1];
+                readReplies(replies, 0, 1);
+                return replies[0];
+            }
+            reply = expectInOrder();
+            outgoing.add(LineServer.IN_ORDER + message);
+        } finally {
+            sending.unlock();
+        }
+        drainWrites();
+        return await(reply);
+    }
+
+    /**
+     * Envia os pedidos em sequência e só então lê as respostas, na mesma
+     * ordem, de {@link #WINDOW} em {@link #WINDOW}.
+     */
+    public String[] sendBatch(List<?> messages) throws IOException {
+        String[] replies = new String[messages.size()];
+        List<CompletableFuture<String>> futures = new ArrayList<>(replies.length);
+        sending.lock();
+        try {
+            if (reader == null) {
+                for (int from = 0; from < replies.length; from += WINDOW) {
+                    int to = Math.min(replies.length, from + WINDOW);
+                    for (int i = from; i < to; i++) {
+                        writeLine(String.valueOf(messages.get(i)));
+                    }
+                    out.flush();
+                    readReplies(replies, from, to);
+                    if (replies[to - 1] == null) {
+                        throw new IOException("o servidor fechou a conexão antes de responder o lote");
+                    }
+                }
+                return replies;
+            }
+            // a thread de leitura consome as respostas enquanto os pedidos saem: não precisa de janela
+            for (Object message : messages) {
+                futures.add(expectInOrder());
+                outgoing.add(LineServer.IN_ORDER + message);
+            }
+        } finally {
+            sending.unlock();
+        }
+        drainWrites();
+        for (int i = 0; i < replies.length; i++) {
+            replies[i] = await(futures.get(i));
+            if (replies[i] == null) {
+                throw new IOException("o servidor fechou a conexão antes de responder o lote");
+            }
+        }
+        return replies;
+    }
+
+    /** Envia um pedido marcado com id e retorna sem esperar; o future completa com a resposta */
+    public CompletableFuture<String> sendAsync(String message) throws IOException {
+        if (reader == null) {
+            startReader();
+        }
+        long id = nextId.getAndIncrement();
+        CompletableFuture<String> reply = new CompletableFuture<>();
+        pending.put(id, reply);
+        outgoing.add("#" + id + " " + message);
+        drainWrites();
+        if (ended) {
+            failPending();
+        }
+        return reply;
+    }
+
+    /** Só depois que nenhum send está lendo direto do socket */
+    private void startReader() {
+        sending.lock();
+        try {
+            if (reader == null) {
+                outgoing.add(LineServer.MARKED); // antes de qualquer linha marcada: quem vê o reader já vem depois
+                // thread de plataforma: acordar quem espera a resposta é mais rápido que a partir de uma virtual
+                reader = Thread.ofPlatform().daemon().name("c_channel-reader").start(this::readLoop);
+            }
+        } finally {
+            sending.unlock();
+        }
+    }
+
+    /**
+     * Escreve as linhas da fila. Se outra thread já está escrevendo, ela
+     * leva estas também: com muitos ramos enviando ao mesmo tempo, as linhas
+     * saem juntas em poucos flush, em vez de um por pedido.
+     */
+    private void drainWrites() throws IOException {
+        while (!outgoing.isEmpty()) {
+            if (!writing.tryLock()) {
+                return;
+            }
+            try {
+                String line;
+                while ((line = outgoing.poll()) != null) {
+                    writeLine(line);
+                }
+                out.flush();
+            } finally {
+                writing.unlock();
+            }
+        }
+    }
+
+    private CompletableFuture<String> expectInOrder() {
+        CompletableFuture<String> reply = new CompletableFuture<>();
+        inOrder.add(reply); // antes de escrever: a resposta pode chegar antes de o write retornar
+        if (ended) {
+            failPending();
+        }
+        return reply;
+    }
+
+    private void writeLine(String message) throws IOException {
+        out.write(message);
+        out.newLine();
+    }
+
+    private void readLoop() {
+        try {
+            String line;
+            while ((line = in.readLine()) != null) {
+                dispatch(line);
+            }
+        } catch (IOException e) {
+            // socket fechado por close(): os pedidos pendentes falham abaixo
+        } finally {
+            ended = true;
+            failPending();
+        }
+    }
+
+    /** Entrega uma resposta: "#id resposta" ao send_async do id, "=resposta" ao send mais antigo */
+    private void dispatch(String line) {
+        if (line.startsWith(LineServer.IN_ORDER)) {
+            CompletableFuture<String> reply = inOrder.poll();
+            if (reply != null) {
+                reply.complete(line.substring(LineServer.IN_ORDER.length()));
+            }
+            return;
+        }
+        int tag = LineServer.tagLength(line);
+        if (tag > 0) {
+            CompletableFuture<String> reply = pending.remove(Long.parseLong(line.substring(1, tag - 1)));
+            if (reply != null) {
+                reply.complete(line.substring(tag));
+            }
+        }
+    }
+
+    /** Fim da conexão: send recebe null, como na leitura direta, e send_async falha */
+    private void failPending() {
+        CompletableFuture<String> reply;
+        while ((reply = inOrder.poll()) != null) {
+            reply.complete(null);
+        }
+        for (Long id : pending.keySet()) {
+            reply = pending.remove(id);
+            if (reply != null) {
+                reply.completeExceptionally(new IOException("a conexão foi encerrada antes da resposta"));
+            }
+        }
+    }
+
+    private static String await(CompletableFuture<String> reply) {
+        return ParScheduler.blocking(() -> {
+            try {
+                return reply.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e); // respostas em ordem completam com null, nunca com erro
+            }
+        });
+    }
+
+    /** Lê as respostas [from, to); para no fim da conexão, deixando null no resto */
+    private void readReplies(String[] replies, int from, int to) throws IOException {
+        try {
+            ParScheduler.blocking(() -> {
+                try {
+                    for (int i = from; i < to; i++) {
+                        replies[i] = in.readLine();
+                        if (replies[i] == null) {
+                            break;
+                        }
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return null;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+}
@@ -0,0 +1,109 @@
+package compiladores.minipar.interpreter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Ramos de 'par' num único ForkJoinPool. Um 'par' dentro de um ramo faz
+ * fork/join no mesmo pool: a thread que espera ajuda a executar os ramos
+ * pendentes, então blocos aninhados ou recursivos não criam threads novas
+ * nem travam esperando uns pelos outros.
+ */
+class ForkJoinScheduler extends ParScheduler {
+    private final ForkJoinPool pool;
+
+    ForkJoinScheduler(int threads) {
+        this.pool = new ForkJoinPool(threads, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, false);
+    }
+
+    @Override
+    public void runAll(List<Runnable> branches) {
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(branches.size());
+        for (Runnable branch : branches) {
+            tasks.add(ForkJoinTask.adapt(branch));
+        }
+        if (ForkJoinTask.getPool() == pool) {
+            // 'par' aninhado: fork/join dentro do próprio pool
+            ForkJoinTask.invokeAll(tasks);
+        } else {
+            pool.invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    invokeAll(tasks);
+                }
+            });
+        }
+    }
+
+    @Override
+    public void forRange(long count, RangeBody body) {
+        RangeTask task = new RangeTask(body, 0, count);
+        if (ForkJoinTask.getPool() == pool) {
+            task.invoke();
+        } else {
+            pool.invoke(task);
+        }
+    }
+
+    @Override
+    public Future<?> spawn(Runnable call) {
+        // pode rodar no join de um ramo de 'par'; o cancelamento do ramo não é dela
+        ForkJoinTask<?> task = ForkJoinTask.adapt(() -> ParGroup.detached(call));
+        if (ForkJoinTask.getPool() == pool) {
+            task.fork(); // vai para a fila desta thread: o await pode executá-la aqui mesmo
+        } else {
+            pool.execute(task);
+        }
+        return task;
+    }
+
+    @Override
+    public void startHandler(Runnable handler) {
+        // a tarefa só executa a função base; quem espera o cliente é o selector do servidor
+        pool.execute(() -> ParGroup.detached(handler));
+    }
+
+    /**
+     * Divisão adaptativa: a tarefa corta a faixa ao meio e deixa uma metade
+     * para roubo enquanto há poucas tarefas sobrando na fila; depois executa o
+     * que restou. Threads ociosas roubam metades grandes e as dividem de novo,
+     * então os pedaços acompanham a carga real em vez de um tamanho fixo.
+     */
+    private static final class RangeTask extends RecursiveAction {
+        // tarefas esperando na fila além das que as threads ociosas já podem pegar
+        private static final int SURPLUS = 3;
+        private static final long serialVersionUID = 1L;
+
+        // tarefas não são serializadas; o corpo é um lambda do interpretador
+        private final transient RangeBody body;
+        private final long from;
+        private final long to;
+
+        RangeTask(RangeBody body, long from, long to) {
+            this.body = body;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            long hi = to;
+            List<RangeTask> forked = new ArrayList<>();
+            while (hi - from > 1 && getSurplusQueuedTaskCount() <= SURPLUS) {
+                long mid = (from + hi) >>> 1;
+                RangeTask right = new RangeTask(body, mid, hi);
+                right.fork();
+                forked.add(right);
+                hi = mid;
+            }
+            body.run(from, hi);
+            for (int i = forked.size() - 1; i >= 0; i--) {
+                forked.get(i).join();
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package compiladores.minipar.interpreter;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Quadro de ativação: variáveis de uma chamada (ou do programa) em slots
+ * indexados, com o endereço léxico calculado pelo SemanticAnalyzer.
+ * {@code parent} é o quadro da função que envolve lexicamente esta.
+ * Variáveis NUMBER ficam em {@code numbers}, sem boxing.
+ *
+ * <p>Variáveis que ramos de 'par' acessam ao mesmo tempo usam os acessos
+ * voláteis abaixo: toda escrita fica visível para os outros ramos na ordem
+ * em que foi feita e um number nunca é lido pela metade. As demais usam os
+ * vetores direto.
+ */
+public final class Frame {
+    private static final VarHandle NUMBERS = MethodHandles.arrayElementVarHandle(double[].class);
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(Object[].class);
+
+    public final Object[] slots;
+    public final double[] numbers;
+    public final int level;
+    public Frame parent;
+    // quadro de onde este foi copiado para um pedaço de 'par for'; null nos demais
+    public Frame origin;
+    // um valor func de função aninhada aponta para este quadro: ele não volta ao pool
+    public boolean captured;
+
+    public Frame(int size, int numberSize, int level, Frame parent) {
+        this.slots = new Object[size];
+        this.numbers = new double[numberSize];
+        this.level = level;
+        this.parent = parent;
+    }
+
+    /** Cópia com os mesmos valores e o mesmo pai, para um pedaço de 'par for' */
+    public Frame copy() {
+        Frame f = new Frame(slots.length, numbers.length, level, parent);
+        System.arraycopy(slots, 0, f.slots, 0, slots.length);
+        System.arraycopy(numbers, 0, f.numbers, 0, numbers.length);
+        f.origin = this;
+        return f;
+    }
+
+    public double numberVolatile(int slot) {
+        return (double) NUMBERS.getVolatile(numbers, slot);
+    }
+
+    public void setNumberVolatile(int slot, double value) {
+        NUMBERS.setVolatile(numbers, slot, value);
+    }
+
+    public Object slotVolatile(int slot) {
+        return SLOTS.getVolatile(slots, slot);
+    }
+
+    public void setSlotVolatile(int slot, Object value) {
+        SLOTS.setVolatile(slots, slot, value);
+    }
+
+    /** atomic_add: soma com CAS sobre os bits do double; retorna o novo valor */
+    public double addNumber(int slot, double delta) {
+        while (true) {
+            double current = (double) NUMBERS.getVolatile(numbers, slot);
+            double next = current + delta;
+            if (NUMBERS.weakCompareAndSet(numbers, slot, current, next)) {
+                return next;
+            }
+        }
+    }
+
+    /** compare_and_set: grava {@code value} se o valor atual é igual (==) a {@code expected} */
+    public boolean compareAndSetNumber(int slot, double expected, double value) {
+        while (true) {
+            double current = (double) NUMBERS.getVolatile(numbers, slot);
+            if (current != expected) {
+                return false;
+            }
+            // o CAS compara bits: repete se 0.0 e -0.0 diferiram
+            if (NUMBERS.compareAndSet(numbers, slot, current, value)) {
+                return true;
+            }
+        }
+    }
+
+    /** Quadro {@code depth} níveis acima deste */
+    public Frame up(int depth) {
+        Frame f = this;
+        for (; depth > 0; depth--) {
+            f = f.parent;
+        }
+        return f;
+    }
+}
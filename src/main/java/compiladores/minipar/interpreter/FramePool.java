@@ -0,0 +1,48 @@
+package compiladores.minipar.interpreter;
+
+import java.util.Arrays;
+
+/**
+ * Quadros livres de uma função, reaproveitados entre chamadas. Cada
+ * Interpreter tem seus próprios pools, então não há concorrência aqui.
+ */
+final class FramePool {
+    private static final int MAX_FREE = 256;
+
+    private final int size;
+    private final int numberSize;
+    private final int level;
+    private Frame[] free = new Frame[8];
+    private int count;
+
+    FramePool(int size, int numberSize, int level) {
+        this.size = size;
+        this.numberSize = numberSize;
+        this.level = level;
+    }
+
+    Frame acquire(Frame parent) {
+        if (count == 0) {
+            return new Frame(size, numberSize, level, parent);
+        }
+        Frame frame = free[--count];
+        free[count] = null;
+        frame.parent = parent;
+        return frame;
+    }
+
+    void release(Frame frame) {
+        if (count == MAX_FREE || frame.captured) {
+            return; // um quadro capturado continua sendo lido pela função aninhada, depois da chamada
+        }
+        // não segura referências (arrays grandes, strings) enquanto o quadro está livre, e a
+        // próxima chamada recebe o quadro como se fosse novo, sem os numbers da anterior
+        Arrays.fill(frame.slots, null);
+        Arrays.fill(frame.numbers, 0);
+        frame.parent = null;
+        if (count == free.length) {
+            free = Arrays.copyOf(free, count * 2);
+        }
+        free[count++] = frame;
+    }
+}
@@ -0,0 +1,15 @@
+package compiladores.minipar.interpreter;
+
+import compiladores.minipar.ast.stmt.FuncDefNode;
+
+/**
+ * Valor func: a função e o quadro que a envolve lexicamente no momento em
+ * que o nome foi avaliado, para que uma função aninhada chamada depois
+ * continue vendo as variáveis da função que a contém.
+ */
+public record FunctionValue(FuncDefNode function, Frame link) {
+    @Override
+    public String toString() {
+        return "<func " + function.getName() + ">";
+    }
+}
@@ -0,0 +1,115 @@
+package compiladores.minipar.interpreter;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Valor de um future&lt;T&gt;: a chamada começada por 'spawn', ou a resposta
+ * de um send_async. 'await' espera o fim e devolve o resultado, ou relança
+ * a falha com a linha do spawn. Num ForkJoinPool, quem espera dentro do
+ * pool executa a própria tarefa se ninguém a roubou ainda, então recursões
+ * como quicksort com spawn não esgotam as threads.
+ */
+public final class FutureValue {
+    private final int line;
+    private final Future<?> task;
+    // send_async: o resultado é o do próprio future, não o de uma tarefa
+    private final boolean reply;
+    // escritos pela tarefa antes de terminar; o fim da tarefa os publica para quem espera
+    private Object value;
+    private RuntimeException failure;
+    private Error error;
+
+    FutureValue(ParScheduler scheduler, Supplier<Object> call, int line) {
+        this.line = line;
+        this.reply = false;
+        Output.flush();
+        this.task = scheduler.spawn(() -> {
+            try {
+                value = call.get();
+            } catch (RuntimeException e) {
+                failure = e;
+            } catch (Error e) {
+                error = e;
+            } finally {
+                Output.flush();
+            }
+        });
+    }
+
+    private FutureValue(CompletableFuture<String> response) {
+        this.line = 0;
+        this.task = response;
+        this.reply = true;
+    }
+
+    /** Resposta de send_async; completa quando chega a linha com o id do pedido */
+    static FutureValue reply(CompletableFuture<String> response) {
+        return new FutureValue(response);
+    }
+
+    public Object await() {
+        if (reply) {
+            return awaitReply();
+        }
+        if (task instanceof ForkJoinTask<?> fj && ForkJoinTask.inForkJoinPool()) {
+            fj.join();
+        } else {
+            ParScheduler.blocking(() -> {
+                try {
+                    return task.get();
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException(e); // a tarefa não lança exceções
+                }
+            });
+        }
+        if (error != null) {
+            throw error;
+        }
+        if (failure != null) {
+            throw new ParBranchException(line, "chamada com 'spawn'", failure);
+        }
+        return value;
+    }
+
+    /**
+     * Espera a resposta sem ParScheduler.blocking: a espera é de uma ida e
+     * volta pela rede, e um 'par for' que faz send_async e recv em cada
+     * iteração faria o ForkJoinPool criar uma thread de reserva por resposta
+     * pendente. Estacionada, a thread só deixa de pegar ramos por esse tempo.
+     */
+    private Object awaitReply() {
+        Output.flush();
+        CompletableFuture<?> response = (CompletableFuture<?>) task;
+        Thread waiter = Thread.currentThread();
+        response.whenComplete((r, e) -> LockSupport.unpark(waiter));
+        ParGroup.Branch branch = ParGroup.enterBlocking();
+        try {
+            while (!response.isDone()) {
+                LockSupport.park(response);
+                if (Thread.interrupted()) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(new InterruptedException()); // ramo cancelado
+                }
+            }
+        } finally {
+            ParGroup.exitBlocking(branch);
+        }
+        try {
+            return response.get();
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Erro ao receber resposta: " + e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e); // já está completo
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "<future>";
+    }
+}
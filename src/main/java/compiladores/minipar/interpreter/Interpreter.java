@@ -3,24 +3,79 @@ package compiladores.minipar.interpreter;
 import compiladores.minipar.ast.core.ProgramNode;
 import compiladores.minipar.ast.stmt.*;
 import compiladores.minipar.ast.expr.*;
+import compiladores.minipar.jit.CompiledFunction;
+import compiladores.minipar.jit.CompiledLoop;
+import compiladores.minipar.jit.Jit;
+import compiladores.minipar.semantic.ExprType;
 import compiladores.minipar.utils.FuncoesEmbutidas;
+import compiladores.minipar.utils.Pair;
 
-import java.net.ServerSocket;
-import java.net.Socket;
 import java.io.*;
 import java.util.*;
-import java.util.concurrent.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.LockSupport;
 
 public class Interpreter implements InterpreterVisitor {
-    private final Deque<Map<String, Object>> env = new ArrayDeque<>();
-    private final Map<String, FuncDefNode> functions = new HashMap<>();
-    private final Map<String, Socket> channels = new HashMap<>();
+    /** Pontos de cancelamento entre duas vezes em que um ramo numa thread virtual larga a portadora */
+    static final int YIELD_EVERY = 1 << 16;
+
+    // conexões dos c_channel, compartilhadas com os ramos de 'par'
+    private final Map<String, ClientConnection> channels;
+    private final Builtins builtins;
+
+    private Frame globals;
+    private Frame frame;
+    // quadros reaproveitados, indexados por FuncDefNode.getIndex()
+    private FramePool[] pools;
+    // null quando o JIT está desligado
+    private Jit jit;
+    private ParScheduler scheduler = ParScheduler.shared();
+    // 'par' cujo ramo este interpretador executa; null na thread principal
+    private ParGroup group;
+    // pontos de cancelamento desde a última vez que o ramo largou a thread portadora
+    private int polls;
+    // visão do ambiente num ramo de 'par snapshot'; null fora dele
+    private Snapshot snapshot;
+    // como terminou o último comando; break/continue/return sobem sem exceções
+    private Completion completion = Completion.NORMAL;
+    private Object returnValue;
 
     public Interpreter() {
-        env.push(new HashMap<>());
+        this.channels = new ConcurrentHashMap<>();
+        this.builtins = new Builtins(channels);
+    }
+
+    /** Interpretador de um ramo de 'par': enxerga os mesmos quadros do pai */
+    protected Interpreter(Interpreter parent) {
+        this.channels = parent.channels;
+        this.builtins = new Builtins(channels);
+        this.globals = parent.globals;
+        this.frame = parent.frame;
+        this.pools = new FramePool[parent.pools.length];
+        this.jit = parent.jit;
+        this.scheduler = parent.scheduler;
+        this.snapshot = parent.snapshot;
+    }
+
+    /** Liga a compilação de funções quentes para bytecode da JVM */
+    public void setJit(Jit jit) {
+        this.jit = jit;
+    }
+
+    /** Pool que executa os ramos de 'par' (--threads) */
+    public void setScheduler(ParScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /** Cria o interpretador que executa um ramo de 'par' */
+    protected Interpreter fork() {
+        return new Interpreter(this);
     }
 
     public void run(ProgramNode program) {
+        globals = new Frame(program.getFrameSize(), program.getNumberFrameSize(), 0, null);
+        frame = globals;
+        pools = new FramePool[program.getFunctionCount()];
         for (StmtNode stmt : program.getStatements()) {
             execute(stmt);
         }
@@ -34,12 +89,13 @@ public class Interpreter implements InterpreterVisitor {
         return expr.acceptExecution(this);
     }
 
-    private void enterScope() {
-        env.push(new HashMap<>());
+    /** Avalia uma expressão NUMBER sem criar Double intermediários */
+    public double evalDouble(ExprNode expr) {
+        return expr.acceptDouble(this);
     }
 
-    private void exitScope() {
-        env.pop();
+    public boolean evalBoolean(ExprNode expr) {
+        return expr.acceptBoolean(this);
     }
 
     @Override
@@ -51,55 +107,56 @@ public class Interpreter implements InterpreterVisitor {
 
     @Override
     public void visit(DeclarationNode node) {
+        // variáveis NUMBER têm slot no vetor numérico (o inicializador tem o mesmo tipo)
+        if (node.getInit().getExprType() == ExprType.NUMBER) {
+            double val = evalDouble(node.getInit());
+            if (snapshot != null && snapshot.isFrozen(frame)) {
+                snapshot.storeNumber(frame, node.getSlot(), val);
+            } else {
+                frame.numbers[node.getSlot()] = val;
+            }
+            return;
+        }
         Object val = eval(node.getInit());
-        env.peek().put(node.getId(), val);
+        if (snapshot != null && snapshot.isFrozen(frame)) {
+            snapshot.store(frame, node.getSlot(), val);
+        } else {
+            frame.slots[node.getSlot()] = val;
+        }
     }
 
     @Override
     public void visit(AssignmentNode node) {
+        ExprNode target = node.getTarget();
+        if (node.isAppendInPlace()) {
+            appendInPlace((IdentifierNode) target, ((BinaryOpNode) node.getValue()).getRight());
+            return;
+        }
+        if (target instanceof IdentifierNode idNode && idNode.getExprType() == ExprType.NUMBER) {
+            storeNumberVariable(idNode, evalDouble(node.getValue()));
+            return;
+        }
+        if (target instanceof IndexNode idxNode && node.getValue().getExprType() == ExprType.NUMBER) {
+            // a[i] = número: direto no double[] do NumberArray
+            double val = evalDouble(node.getValue());
+            Object arrayObj = writableArray(idxNode.getTarget());
+            storeNumber(arrayObj, (int) evalDouble(idxNode.getIndex()), val, node.getLine());
+            return;
+        }
+
         // 1) Avalia o valor a ser atribuído
         Object val = eval(node.getValue());
 
-        ExprNode target = node.getTarget();
         if (target instanceof IdentifierNode idNode) {
-            // variável simples: mesma lógica de antes
-            String name = idNode.getName();
-            for (Map<String, Object> scope : env) {
-                if (scope.containsKey(name)) {
-                    scope.put(name, val);
-                    return;
-                }
-            }
-            throw new RuntimeException("Variável não declarada: " + name);
+            // variável simples: slot resolvido na análise semântica
+            storeVariable(idNode, val);
+            return;
         }
         else if (target instanceof IndexNode idxNode) {
             // array[index] = val
-            // 2.a) resolve o array
-            Object arrayObj = eval(idxNode.getTarget());
-            if (!(arrayObj instanceof List<?>)) {
-                throw new RuntimeException(
-                        "Linha " + node.getLine() + ": tentativa de indexar valor não-array"
-                );
-            }
-            @SuppressWarnings("unchecked")
-            List<Object> array = (List<Object>) arrayObj;
-
-            // 2.b) resolve o índice
-            Object idxVal = eval(idxNode.getIndex());
-            if (!(idxVal instanceof Number)) {
-                throw new RuntimeException(
-                        "Linha " + node.getLine() + ": índice de array não é número"
-                );
-            }
-            int index = ((Number) idxVal).intValue();
-
-            // 2.c) faz o set no array
-            if (index < 0 || index >= array.size()) {
-                throw new RuntimeException(
-                        "Linha " + node.getLine() + ": índice fora dos limites: " + index
-                );
-            }
-            array.set(index, val);
+            Object arrayObj = writableArray(idxNode.getTarget());
+            int index = (int) evalDouble(idxNode.getIndex());
+            storeIndex(arrayObj, index, val, node.getLine());
             return;
         }
         else {
@@ -111,24 +168,109 @@ public class Interpreter implements InterpreterVisitor {
     }
 
 
+    private void storeNumberVariable(IdentifierNode id, double val) {
+        Frame f = frameOf(id);
+        if (snapshot != null && snapshot.isFrozen(f)) {
+            snapshot.storeNumber(f, id.getSlot(), val);
+        } else if (id.isConcurrent()) {
+            f.setNumberVolatile(id.getSlot(), val);
+        } else {
+            f.numbers[id.getSlot()] = val;
+        }
+    }
+
+    /** Quadro que guarda a variável */
+    private Frame frameOf(IdentifierNode id) {
+        Frame f = frame.up(id.getDepth());
+        for (int k = id.getLoopCopies(); k > 0; k--) {
+            f = f.origin;
+        }
+        return f;
+    }
+
+    /** Grava um valor que não é NUMBER na variável */
+    private void storeVariable(IdentifierNode id, Object val) {
+        Frame f = frameOf(id);
+        if (snapshot != null && snapshot.isFrozen(f)) {
+            snapshot.store(f, id.getSlot(), val);
+        } else if (id.isConcurrent()) {
+            f.setSlotVolatile(id.getSlot(), val);
+        } else {
+            f.slots[id.getSlot()] = val;
+        }
+    }
+
+    /** Array a alterar em a[i] = v; num 'par snapshot', a cópia do ramo se o array é do ambiente */
+    private Object writableArray(ExprNode target) {
+        Object array = eval(target);
+        if (snapshot != null && snapshot.isBorrowed(array) && target instanceof IdentifierNode id) {
+            array = snapshot.own(array);
+            storeVariable(id, array);
+        }
+        return array;
+    }
+
+    /**
+     * a = a + x com 'a' local e não compartilhado: cresce o próprio array, O(1)
+     * amortizado. O analisador só marca variáveis do quadro atual que nenhuma
+     * outra thread lê, então o slot é lido e gravado direto, sem o caminho
+     * volátil nem a visão de snapshot.
+     */
+    private void appendInPlace(IdentifierNode id, ExprNode right) {
+        Object[] slots = frame.slots;
+        Object array = slots[id.getSlot()];
+        if (right instanceof ArrayLiteralNode literal && array instanceof NumberArray numbers
+                && !numbers.isEmpty() && literal.getExprType() == ExprType.ARRAY_NUMBER) {
+            // a = a + [x, ...]: sem criar o array literal
+            for (ExprNode elem : literal.getElements()) {
+                numbers.addDouble(evalDouble(elem));
+            }
+            return;
+        }
+        slots[id.getSlot()] = MiniParArray.appendInPlace(array, eval(right));
+    }
+
+    /** Atribuição a elemento de array, com as mesmas verificações em todos os motores */
+    public static void storeIndex(Object arrayObj, int index, Object val, int line) {
+        if (!(arrayObj instanceof List<?>)) {
+            throw new RuntimeException("Linha " + line + ": tentativa de indexar valor não-array");
+        }
+        @SuppressWarnings("unchecked")
+        List<Object> array = (List<Object>) arrayObj;
+        if (index < 0 || index >= array.size()) {
+            throw new RuntimeException("Linha " + line + ": índice fora dos limites: " + index);
+        }
+        array.set(index, val);
+    }
+
+    /** Como {@link #storeIndex}, sem criar o Double quando o array é um NumberArray */
+    public static void storeNumber(Object arrayObj, int index, double val, int line) {
+        if (arrayObj instanceof NumberArray array && index >= 0 && index < array.size()) {
+            array.setDouble(index, val);
+            return;
+        }
+        storeIndex(arrayObj, index, val, line);
+    }
+
     @Override
     public void visit(FuncDefNode node) {
-        functions.put(node.getName(), node);
+        // chamadas já apontam para o FuncDefNode, resolvido na análise semântica
     }
 
     @Override
     public void visit(ReturnNode node) {
-        throw new ReturnSignal(eval(node.getExpr()));
+        returnValue = eval(node.getExpr());
+        completion = Completion.RETURN;
+    }
+
+    /** Verdadeiro depois de um return, até a chamada consumir o valor; usado pelo código do JIT */
+    public boolean isReturning() {
+        return completion == Completion.RETURN;
     }
 
     @Override
     public void visit(IfNode node) {
-        Object condObj = eval(node.getCond());
-        if (!(condObj instanceof Boolean)) {
-            throw new RuntimeException("Condição deve ser booleana");
-        }
-        Boolean cond = (Boolean) condObj;
-        if (cond) {
+        if (evalBoolean(node.getCond())) {
             visitBlock(node.getThenBranch());
         } else if (node.getElseBranch() != null) {
             visitBlock(node.getElseBranch());
@@ -137,72 +279,184 @@ public class Interpreter implements InterpreterVisitor {
 
     @Override
     public void visit(WhileNode node) {
-        while (true) {
-            Object condObj = eval(node.getCond());
-            if (!(condObj instanceof Boolean)) {
-                throw new RuntimeException("Condição deve ser booleana");
+        int iterations = 0;
+        while (evalBoolean(node.getCond())) {
+            visitBlock(node.getBody());
+            if (!endIteration()) {
+                return;
             }
-            Boolean cond = (Boolean) condObj;
-            if (!cond) {
-                break;
+            poll();
+            if (++iterations == Jit.OSR_ITERATIONS && enterCompiledLoop(node)) {
+                return;
             }
-            visitBlock(node.getBody());
         }
     }
 
     @Override
     public void visit(ForNode node) {
+        if (node.isParallel() && snapshot == null) {
+            parFor(node);
+            return;
+        }
         execute(node.getInit());
-        while (true) {
-            Object condObj = eval(node.getCondition());
-            if (!(condObj instanceof Boolean)) {
-                throw new RuntimeException("Condição deve ser booleana");
+        int iterations = 0;
+        while (evalBoolean(node.getCondition())) {
+            visitBlock(node.getBody());
+            if (!endIteration()) {
+                return;
             }
-            Boolean cond = (Boolean) condObj;
-            if (!cond) {
-                break;
+            execute(node.getUpdate());
+            poll();
+            if (++iterations == Jit.OSR_ITERATIONS && enterCompiledLoop(node)) {
+                return;
             }
+        }
+    }
+
+    /**
+     * par for: divide as iterações entre as threads do escalonador. Cada
+     * pedaço roda com uma cópia do quadro atual, onde ficam o índice e os
+     * locais do corpo; o SemanticAnalyzer garante que o corpo (e as funções
+     * que ele chama) não atribui a variáveis de fora, então os quadros
+     * compartilhados são só lidos. Num
+     * ramo de 'par snapshot' o laço roda em sequência.
+     */
+    private void parFor(ForNode node) {
+        poll();
+        DeclarationNode init = (DeclarationNode) node.getInit();
+        BinaryOpNode cond = (BinaryOpNode) node.getCondition();
+        double start = evalDouble(init.getInit());
+        double bound = evalDouble(cond.getRight());
+        double step = node.getStep();
+        boolean inclusive = cond.getOp() == BinaryOp.LE;
+        if (!(start < bound || inclusive && start == bound)) {
+            return;
+        }
+        // a iteração k usa i = início + k * passo, em vez de somar o passo k vezes
+        double span = (bound - start) / step;
+        long count = inclusive ? (long) Math.floor(span) + 1 : (long) Math.ceil(span);
+        ParGroup par = new ParGroup(group);
+        scheduler.forRange(count, (from, to) -> par.runBranch(() -> {
+            Interpreter worker = fork();
+            worker.group = par;
+            worker.frame = frame.copy();
+            worker.runIterations(node, init.getSlot(), start, step, from, to);
+        }, node.getLine(), "iteração de 'par for'"));
+        par.close();
+    }
+
+    private void runIterations(ForNode node, int slot, double start, double step, long from, long to) {
+        for (long k = from; k < to; k++) {
+            frame.numbers[slot] = start + k * step;
             visitBlock(node.getBody());
-            execute(node.getUpdate());
+            endIteration(); // continue
+            poll();
+        }
+    }
+
+    /** Consome o break/continue do corpo; falso se o laço termina (break ou return) */
+    private boolean endIteration() {
+        switch (completion) {
+            case NORMAL:
+                return true;
+            case CONTINUE:
+                completion = Completion.NORMAL;
+                return true;
+            case BREAK:
+                completion = Completion.NORMAL;
+                return false;
+            default:
+                return false; // return sobe até a chamada
         }
     }
 
+    /** OSR: termina o laço quente no código compilado, a partir do próximo teste da condição */
+    private boolean enterCompiledLoop(StmtNode loop) {
+        if (jit == null) {
+            return false;
+        }
+        CompiledLoop code = jit.compiledLoop(loop, frame.level);
+        if (code == null) {
+            return false;
+        }
+        code.run(this, frame);
+        return true;
+    }
+
     @Override
     public void visit(BreakNode node) {
-        throw new BreakSignal();
+        completion = Completion.BREAK;
     }
 
     @Override
     public void visit(ContinueNode node) {
-        throw new ContinueSignal();
+        completion = Completion.CONTINUE;
     }
 
     @Override
     public void visit(SeqNode node) {
-        for (StmtNode stmt : node.getBody().getStmts()) {
-            execute(stmt);
-        }
+        visitBlock(node.getBody());
     }
 
     @Override
     public void visit(ParNode node) {
-        ExecutorService svc = Executors.newFixedThreadPool(node.getBody().getStmts().size());
-        List<Callable<Void>> tasks = new ArrayList<>();
-        for (StmtNode stmt : node.getBody().getStmts()) {
-            tasks.add(() -> {
-                Interpreter e = new Interpreter();
-                e.env.addAll(this.env);
-                e.functions.putAll(this.functions);
-                e.execute(stmt);
-                return null;
-            });
+        poll();
+        ParGroup par = new ParGroup(group);
+        PersistentIntMap view = node.isSnapshot() ? Snapshot.capture(frame, snapshot, node.getCaptured()) : null;
+        List<Runnable> branches = new ArrayList<>();
+        List<StmtNode> stmts = node.getBody().getStmts();
+        for (int i = 0; i < stmts.size(); i++) {
+            StmtNode stmt = stmts.get(i);
+            int line = node.getBranchLine(i);
+            branches.add(() -> par.runBranch(() -> {
+                Interpreter branch = fork();
+                branch.group = par;
+                if (node.isSnapshot()) {
+                    // o JIT lê e grava os quadros direto; o ramo fica no interpretador
+                    branch.snapshot = new Snapshot(par, frame, view);
+                    branch.jit = null;
+                }
+                branch.execute(stmt);
+            }, line));
         }
-        try {
-            svc.invokeAll(tasks);
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
-        } finally {
-            svc.shutdown();
+        scheduler.runAll(branches);
+        par.close();
+        for (Pair<IdentifierNode, Object> publication : par.publications()) {
+            IdentifierNode target = publication.getFirst();
+            if (target.getExprType() == ExprType.NUMBER) {
+                storeNumberVariable(target, (Double) publication.getSecond());
+            } else {
+                storeVariable(target, publication.getSecond());
+            }
+        }
+    }
+
+    @Override
+    public void visit(PublishNode node) {
+        snapshot.publish(node.getTarget(), eval(node.getTarget()));
+    }
+
+    /**
+     * Ponto de cancelamento: num ramo de 'par' cujo irmão falhou, desfaz o
+     * ramo. Chamado nos laços e nas chamadas de função, inclusive pelo JIT.
+     *
+     * <p>Threads virtuais não são preemptadas: um ramo num laço sem fim
+     * prenderia a thread portadora, e com uma só o irmão que falharia nunca
+     * rodaria. Por isso, de {@link #YIELD_EVERY} em {@link #YIELD_EVERY}
+     * pontos, o ramo numa thread virtual estaciona por um instante. Não é
+     * Thread.yield: com uma portadora só, ele devolve a vez à mesma thread
+     * virtual e o irmão acordado continua na fila. Estacionar põe o ramo de
+     * volta no fim da fila, atrás dos outros.
+     */
+    public void poll() {
+        if (group != null) {
+            group.checkCancelled();
+            if (++polls == YIELD_EVERY) {
+                polls = 0;
+                if (Thread.currentThread().isVirtual()) {
+                    LockSupport.parkNanos(1);
+                }
+            }
         }
     }
 
@@ -211,87 +465,33 @@ public class Interpreter implements InterpreterVisitor {
         try {
             int port = ((Number) eval(node.getPort())).intValue();
             String name = node.getName();
+            FunctionValue handler = new FunctionValue(node.getFunction(), staticLink(node.getFunction()));
+            // cada handler do servidor é um interpretador próprio; quadros e JIT ficam prontos entre conexões
+            Interpreter base = fork();
 
-            ServerSocket serverSocket = new ServerSocket(port);
+            LineServer server = new LineServer(port, scheduler, () -> {
+                Interpreter worker = base.fork();
+                return request -> (String) worker.callValue(handler, request);
+            });
+            Output.flush();
             System.out.println("Servidor '" + name + "' escutando na porta " + port);
-
-            // Thread para aceitar conexões sem travar o interpretador
-            new Thread(() -> {
-                while (true) {
-                    try {
-                        Socket clientSocket = serverSocket.accept();
-                        System.out.println("Conexão aceita de: " + clientSocket.getInetAddress());
-
-                        try (BufferedReader in = new BufferedReader(new InputStreamReader(clientSocket.getInputStream()));
-                             PrintWriter out = new PrintWriter(clientSocket.getOutputStream(), true)) {
-
-                            String input;
-                            while ((input = in.readLine()) != null) {
-                                if ("exit".equalsIgnoreCase(input.trim())) {
-                                    out.println("Conexão encerrada.");
-                                    break; // Sai do loop e fecha a conexão
-                                }
-
-                                try {
-                                    String[] parts = input.split(" ");
-                                    if (parts.length == 3) {
-                                        double num1 = Double.parseDouble(parts[0]);
-                                        String operator = parts[1];
-                                        double num2 = Double.parseDouble(parts[2]);
-                                        double result;
-
-                                        switch (operator) {
-                                            case "+":
-                                                result = num1 + num2;
-                                                break;
-                                            case "-":
-                                                result = num1 - num2;
-                                                break;
-                                            case "*":
-                                                result = num1 * num2;
-                                                break;
-                                            case "/":
-                                                if (num2 == 0) {
-                                                    throw new ArithmeticException("Divisão por zero");
-                                                }
-                                                result = num1 / num2;
-                                                break;
-                                            default:
-                                                throw new IllegalArgumentException("Operador inválido: " + operator);
-                                        }
-
-                                        out.println("Resultado: " + result);
-                                    } else {
-                                        out.println("Formato inválido. Use: número operador número (ex: 5 + 3)");
-                                    }
-                                } catch (Exception e) {
-                                    out.println("Erro 1 : " + e.getMessage());
-                                }
-                            }
-                        } catch (IOException e) {
-                            System.err.println("Erro na comunicação com o cliente: " + e.getMessage());
-                        }
-                    } catch (IOException e) {
-                        e.printStackTrace();
-                        break;
-                    }
-                }
-            }).start();
-
+            server.start(name);
         } catch (IOException ex) {
             throw new RuntimeException("Erro ao iniciar servidor: " + ex.getMessage());
         }
     }
 
-
     @Override
     public void visit(CChannelNode node) {
         try {
             String host = (String) eval(node.getHost());
             int port = ((Number) eval(node.getPort())).intValue();
-            Socket client = new Socket(host, port);
-            channels.put(node.getName(), client);
-            env.peek().put(node.getName(), node.getName());
+            channels.put(node.getName(), new ClientConnection(host, port));
+            if (snapshot != null && snapshot.isFrozen(frame)) {
+                snapshot.store(frame, node.getSlot(), node.getName());
+            } else {
+                frame.slots[node.getSlot()] = node.getName();
+            }
         } catch (IOException ex) {
             throw new RuntimeException(ex.getMessage());
         }
@@ -304,104 +504,116 @@ public class Interpreter implements InterpreterVisitor {
 
     @Override
     public Object visit(BinaryOpNode node) {
-        Object left = eval(node.getLeft());
-        Object right = eval(node.getRight());
-        String op = node.getOp();
+        ExprType type = node.getExprType();
+        if (type == ExprType.NUMBER) {
+            return visitDouble(node);
+        }
+        if (type == ExprType.BOOL) {
+            return visitBoolean(node);
+        }
 
+        return binaryValues(node, eval(node.getLeft()), eval(node.getRight()));
+    }
+
+    /** Caminho genérico: operador aplicado a operandos já avaliados */
+    protected Object binaryValues(BinaryOpNode node, Object left, Object right) {
+        BinaryOp op = node.getOp();
         switch (op) {
-            case "+":
+            case ADD:
                 if (left instanceof List && right instanceof List) {
-                    List<Object> result = new ArrayList<>((List<?>) left);
-                    result.addAll((List<?>) right);
-                    return result;
+                    return MiniParArray.concat((List<?>) left, (List<?>) right);
                 } else if (left instanceof List && !(right instanceof List)) {
-                    List<Object> result = new ArrayList<>((List<?>) left);
-                    result.add(right);
-                    return result;
-                } else if (left instanceof Number && right instanceof Number) {
-                    return ((Number) left).doubleValue() + ((Number) right).doubleValue();
-                }
-                break;
-            case "-":
-                if (left instanceof Number && right instanceof Number) {
-                    return ((Number) left).doubleValue() - ((Number) right).doubleValue();
-                }
-                break;
-            case "*":
-                if (left instanceof Number && right instanceof Number) {
-                    return ((Number) left).doubleValue() * ((Number) right).doubleValue();
-                }
-                break;
-            case "/":
-                if (left instanceof Number && right instanceof Number) {
-                    return ((Number) left).doubleValue() / ((Number) right).doubleValue();
-                }
-                break;
-            case "==":
-                return left != null && left.equals(right);
-            case "!=":
-                return left == null ? right != null : !left.equals(right);
-            case ">":
-                if (left instanceof Number && right instanceof Number) {
-                    return ((Number) left).doubleValue() > ((Number) right).doubleValue();
+                    return MiniParArray.append((List<?>) left, right);
+                } else if (left instanceof String && right instanceof String) {
+                    return (String) left + right;
                 }
                 break;
-            case "<":
-                if (left instanceof Number && right instanceof Number) {
-                    return ((Number) left).doubleValue() < ((Number) right).doubleValue();
-                }
-                break;
-            case ">=":
-                if (left instanceof Number && right instanceof Number) {
-                    return ((Number) left).doubleValue() >= ((Number) right).doubleValue();
-                }
-                break;
-            case "<=":
-                if (left instanceof Number && right instanceof Number) {
-                    return ((Number) left).doubleValue() <= ((Number) right).doubleValue();
-                }
-                break;
-            case "&&":
-                if (left instanceof Boolean && right instanceof Boolean) {
-                    return (Boolean) left && (Boolean) right;
-                }
-                break;
-            case "||":
-                if (left instanceof Boolean && right instanceof Boolean) {
-                    return (Boolean) left || (Boolean) right;
-                }
-                break;
-            case "%":
-                if (left instanceof Number && right instanceof Number) {
-                    double l = ((Number) left).doubleValue();
-                    double r = ((Number) right).doubleValue();
-                    return l % r;
-                }
-                break;
-            default:
-                throw new RuntimeException("Operador inválido: " + op);
+            case EQ:
+                return equal(left, right);
+            case NE:
+                return !equal(left, right);
         }
         throw new RuntimeException("Tipos incompatíveis para operação: " + op);
     }
 
     @Override
-    public Object visit(UnaryOpNode node) {
-        Object value = eval(node.getExpr());
-        switch (node.getOp()) {
-            case "-":
-                if (value instanceof Number) {
-                    return -((Number) value).doubleValue();
-                }
-                break;
-            case "!":
-                if (value instanceof Boolean) {
-                    return !(Boolean) value;
-                }
-                break;
-            default:
-                throw new RuntimeException("Operador inválido: " + node.getOp());
+    public double visitDouble(BinaryOpNode node) {
+        double l = evalDouble(node.getLeft());
+        double r = evalDouble(node.getRight());
+        return switch (node.getOp()) {
+            case ADD -> l + r;
+            case SUB -> l - r;
+            case MUL -> l * r;
+            case DIV -> l / r;
+            case MOD -> l % r;
+            default -> throw new RuntimeException("Operador inválido: " + node.getOp());
+        };
+    }
+
+    @Override
+    public boolean visitBoolean(BinaryOpNode node) {
+        BinaryOp op = node.getOp();
+        switch (op) {
+            case EQ:
+                return equalOperands(node.getLeft(), node.getRight());
+            case NE:
+                return !equalOperands(node.getLeft(), node.getRight());
+            case AND: {
+                // os dois lados são sempre avaliados, como no caminho genérico
+                boolean l = evalBoolean(node.getLeft());
+                boolean r = evalBoolean(node.getRight());
+                return l && r;
+            }
+            case OR: {
+                boolean l = evalBoolean(node.getLeft());
+                boolean r = evalBoolean(node.getRight());
+                return l || r;
+            }
         }
-        throw new RuntimeException("Tipo inválido para operação: " + node.getOp());
+        double l = evalDouble(node.getLeft());
+        double r = evalDouble(node.getRight());
+        return switch (op) {
+            case GT -> l > r;
+            case LT -> l < r;
+            case GE -> l >= r;
+            case LE -> l <= r;
+            default -> throw new RuntimeException("Operador inválido: " + op);
+        };
+    }
+
+    private boolean equalOperands(ExprNode leftExpr, ExprNode rightExpr) {
+        ExprType type = leftExpr.getExprType();
+        if (type == ExprType.NUMBER) {
+            // mesma semântica de Double.equals
+            return Double.compare(evalDouble(leftExpr), evalDouble(rightExpr)) == 0;
+        }
+        if (type == ExprType.BOOL) {
+            return evalBoolean(leftExpr) == evalBoolean(rightExpr);
+        }
+        return equal(eval(leftExpr), eval(rightExpr));
+    }
+
+    /** Igualdade de == e != para valores genéricos, a mesma em todos os motores */
+    public static boolean equal(Object left, Object right) {
+        return left == null ? right == null : left.equals(right);
+    }
+
+    @Override
+    public Object visit(UnaryOpNode node) {
+        return switch (node.getOp()) {
+            case NEG -> visitDouble(node);
+            case NOT -> visitBoolean(node);
+        };
+    }
+
+    @Override
+    public double visitDouble(UnaryOpNode node) {
+        return -evalDouble(node.getExpr());
+    }
+
+    @Override
+    public boolean visitBoolean(UnaryOpNode node) {
+        return !evalBoolean(node.getExpr());
     }
 
     @Override
@@ -411,39 +623,37 @@ public class Interpreter implements InterpreterVisitor {
 
     @Override
     public Object visit(IdentifierNode node) {
-        for (Map<String, Object> scope : env) {
-            if (scope.containsKey(node.getName())) {
-                return scope.get(node.getName());
+        FuncDefNode fn = node.getFunction();
+        if (fn != null) {
+            // nome de função como valor: leva junto o quadro que a envolve
+            Frame link = staticLink(fn);
+            if (link != globals) {
+                link.captured = true; // o valor pode durar mais que a chamada da função de fora
             }
+            return new FunctionValue(fn, link);
+        }
+        Frame f = frameOf(node);
+        if (snapshot != null && snapshot.isFrozen(f)) {
+            return node.getExprType() == ExprType.NUMBER
+                    ? snapshot.loadNumber(f, node.getSlot()) : snapshot.load(f, node.getSlot());
         }
-        throw new RuntimeException("Variável não definida: " + node.getName());
+        if (node.isConcurrent()) {
+            return node.getExprType() == ExprType.NUMBER
+                    ? f.numberVolatile(node.getSlot()) : f.slotVolatile(node.getSlot());
+        }
+        if (node.getExprType() == ExprType.NUMBER) {
+            return f.numbers[node.getSlot()];
+        }
+        return f.slots[node.getSlot()];
     }
 
-    private String formatValue(Object value) {
-        if (value instanceof Number) {
-            Number num = (Number) value;
-            double d = num.doubleValue();
-            if (d == Math.floor(d) && !Double.isInfinite(d)) {
-                return String.valueOf(num.longValue());
-            } else {
-                return String.valueOf(d);
-            }
-        } else if (value instanceof List) {
-            List<?> list = (List<?>) value;
-            StringBuilder sb = new StringBuilder("[");
-            for (int i = 0; i < list.size(); i++) {
-                sb.append(formatValue(list.get(i)));
-                if (i < list.size() - 1) {
-                    sb.append(", ");
-                }
-            }
-            sb.append("]");
-            return sb.toString();
-        } else if (value instanceof Boolean || value instanceof String) {
-            return value.toString();
-        } else {
-            return String.valueOf(value);
+    @Override
+    public double visitDouble(IdentifierNode node) {
+        Frame f = frameOf(node);
+        if (snapshot != null && snapshot.isFrozen(f)) {
+            return snapshot.loadNumber(f, node.getSlot());
         }
+        return node.isConcurrent() ? f.numberVolatile(node.getSlot()) : f.numbers[node.getSlot()];
     }
 
     @Override
@@ -451,186 +661,391 @@ public class Interpreter implements InterpreterVisitor {
         String funcName = node.getFuncName();
         List<ExprNode> args = node.getArgs();
 
+        if (funcName.equals("atomic_add") || funcName.equals("compare_and_set")) {
+            return atomic(node);
+        }
         if (FuncoesEmbutidas.isFuncaoEmbutida(funcName)) {
-            if ("print".equals(funcName)) {
-                StringBuilder output = new StringBuilder();
-                for (int i = 0; i < args.size(); i++) {
-                    output.append(formatValue(eval(args.get(i))));
-                    if (i < args.size() - 1) {
-                        output.append(" ");
-                    }
-                }
-                System.out.println(output.toString());
-                return null;
-            } else if ("input".equals(funcName)) {
-                Scanner scanner = new Scanner(System.in);
-                return scanner.nextLine();
-            } else if ("sleep".equals(funcName)) {
+            Object[] values = new Object[args.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = eval(args.get(i));
+            }
+            return switch (funcName) {
+                case "map" -> map((FunctionValue) values[0], (MiniParArray) values[1], node);
+                case "filter" -> filter((FunctionValue) values[0], (MiniParArray) values[1], node);
+                case "reduce" -> reduce((FunctionValue) values[0], (MiniParArray) values[1], values[2]);
+                case "reduce_assoc" -> reduceAssoc((FunctionValue) values[0], (MiniParArray) values[1], values[2], node);
+                case "sum" -> sum((NumberArray) values[0], node.getLine());
+                default -> builtins.call(funcName, values);
+            };
+        }
+
+        if (node.getCallee() != null) {
+            FunctionValue value = (FunctionValue) eval(node.getCallee());
+            FuncDefNode func = value.function();
+            return invoke(func, bindArguments(func, value.link(), args));
+        }
+        FuncDefNode func = node.getFunction();
+        if (func == null) {
+            throw new RuntimeException("Função não definida: " + funcName);
+        }
+        return invoke(func, bindArguments(func, staticLink(func), args));
+    }
+
+    /** Executa {@code func} no quadro já preenchido, compilada se o JIT tiver o código */
+    private Object invoke(FuncDefNode func, Frame callee) {
+        if (jit != null) {
+            CompiledFunction code = jit.compiledFor(func);
+            if (code != null) {
                 try {
-                    Thread.sleep(((Number) eval(args.get(0))).longValue());
-                } catch (InterruptedException e) {
-                    throw new RuntimeException(e);
-                }
-                return null;
-            } else if ("split".equals(funcName)) {
-                Object strObj = eval(args.get(0));
-                Object delimObj = eval(args.get(1));
-                if (!(strObj instanceof String) || !(delimObj instanceof String)) {
-                    throw new RuntimeException("split requer duas strings como argumentos");
+                    return code.invoke(this, callee);
+                } finally {
+                    releaseFrame(func, callee);
                 }
-                String str = (String) strObj;
-                String delim = (String) delimObj;
-                String[] parts = str.split(delim);
-                return Arrays.asList(parts);
-            } else if ("isnum".equals(funcName)) {
-                Object strObj = eval(args.get(0));
-                if (!(strObj instanceof String)) {
-                    throw new RuntimeException("isnum requer uma string como argumento");
+            }
+        }
+        return runBody(func, callee);
+    }
+
+    @Override
+    public Object visit(SpawnNode node) {
+        CallNode call = node.getCall();
+        FuncDefNode func;
+        Frame link;
+        if (call.getCallee() != null) {
+            FunctionValue value = (FunctionValue) eval(call.getCallee());
+            func = value.function();
+            link = value.link();
+            if (func.getLevel() > 1) {
+                throw new RuntimeException("Linha " + node.getLine() + ": 'spawn' de função aninhada ('"
+                        + func.getName() + "') não é suportado");
+            }
+        } else {
+            func = call.getFunction();
+            link = staticLink(func);
+        }
+        // os argumentos são avaliados aqui; o quadro da chamada passa para a tarefa
+        Frame callee = bindArguments(func, link, call.getArgs());
+        ParGroup owner = group;
+        return new FutureValue(scheduler, () -> {
+            Interpreter worker = fork();
+            worker.group = owner; // cancelar o 'par' de quem fez o spawn cancela a chamada
+            return worker.invoke(func, callee);
+        }, node.getLine());
+    }
+
+    @Override
+    public Object visit(AwaitNode node) {
+        poll();
+        return ((FutureValue) eval(node.getFuture())).await();
+    }
+
+    @Override
+    public double visitDouble(CallNode node) {
+        if (node.getCallee() != null) {
+            FunctionValue value = (FunctionValue) eval(node.getCallee());
+            FuncDefNode func = value.function();
+            return callDouble(func, bindArguments(func, value.link(), node.getArgs()));
+        }
+        FuncDefNode func = node.getFunction();
+        if (func == null) {
+            // função embutida
+            Object value = visit(node);
+            if (value instanceof Number n) {
+                return n.doubleValue();
+            }
+            throw new RuntimeException("Linha " + node.getLine() + ": valor numérico esperado");
+        }
+        return callDouble(func, bindArguments(func, staticLink(func), node.getArgs()));
+    }
+
+    /** Quadro novo para {@code func} com os argumentos, avaliados no quadro de quem chama */
+    private Frame bindArguments(FuncDefNode func, Frame link, List<ExprNode> args) {
+        Frame callee = acquireFrame(func, link);
+        int[] paramSlots = func.getParamSlots();
+        for (int i = 0; i < args.size(); i++) {
+            ExprNode arg = args.get(i);
+            if (arg.getExprType() == ExprType.NUMBER) {
+                callee.numbers[paramSlots[i]] = evalDouble(arg);
+            } else {
+                callee.slots[paramSlots[i]] = eval(arg);
+            }
+        }
+        return callee;
+    }
+
+    /** atomic_add(alvo, delta) e compare_and_set(alvo, esperado, novo); o alvo não é avaliado como valor */
+    private Object atomic(CallNode node) {
+        List<ExprNode> args = node.getArgs();
+        boolean add = node.getFuncName().equals("atomic_add");
+        if (args.get(0) instanceof IdentifierNode id) {
+            Frame f = frameOf(id);
+            double a = evalDouble(args.get(1));
+            double b = add ? 0 : evalDouble(args.get(2));
+            if (snapshot != null && snapshot.isFrozen(f)) {
+                // num 'par snapshot' a variável é só do ramo: não há com quem disputar
+                double current = snapshot.loadNumber(f, id.getSlot());
+                if (add) {
+                    snapshot.storeNumber(f, id.getSlot(), current + a);
+                    return current + a;
                 }
-                String str = (String) strObj;
-                try {
-                    Double.parseDouble(str);
-                    return true;
-                } catch (NumberFormatException e) {
+                if (current != a) {
                     return false;
                 }
-            } else if ("isalpha".equals(funcName)) {
-                Object strObj = eval(args.get(0));
-                if (!(strObj instanceof String)) {
-                    throw new RuntimeException("isalpha requer uma string como argumento");
-                }
-                String str = (String) strObj;
-                return str.chars().allMatch(Character::isLetter);
-            } else if ("to_number".equals(funcName)) {
-                Object strObj = eval(args.get(0));
-                if (!(strObj instanceof String)) {
-                    throw new RuntimeException("to_number requer uma string como argumento");
-                }
-                String str = (String) strObj;
-                try {
-                    return Double.parseDouble(str);
-                } catch (NumberFormatException e) {
-                    throw new RuntimeException("Não é possível converter para número: " + str);
-                }
-            } else if ("len".equals(funcName)) {
-                Object obj = eval(args.get(0));
-                if (obj instanceof List) {
-                    return (double) ((List<?>) obj).size();
-                } else if (obj instanceof String) {
-                    return (double) ((String) obj).length();
-                }
-                throw new RuntimeException("len requer uma lista ou string como argumento");
+                snapshot.storeNumber(f, id.getSlot(), b);
+                return true;
             }
-            else if ("send".equals(funcName)) {
-                if (args.size() != 2) {
-                    throw new RuntimeException("send requer exatamente 2 argumentos");
-                }
-                Object channelObj = eval(args.get(0));
-                Object messageObj = eval(args.get(1));
-                if (!(channelObj instanceof String) || !(messageObj instanceof String)) {
-                    throw new RuntimeException("send requer c_channel e string como argumentos");
-                }
-                String channelName = (String) channelObj;
-                String message = (String) messageObj;
-                Socket socket = channels.get(channelName);
-                if (socket == null) {
-                    throw new RuntimeException("Canal não encontrado: " + channelName);
-                }
-                try {
-                    PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
-                    BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-                    out.println(message); // Envia a mensagem
-                    return in.readLine(); // Recebe a resposta
-                } catch (IOException e) {
-                    throw new RuntimeException("Erro ao enviar mensagem: " + e.getMessage());
-                }
-            } else if ("close".equals(funcName)) {
-                if (args.size() != 1) {
-                    throw new RuntimeException("close requer exatamente 1 argumento");
-                }
-                Object channelObj = eval(args.get(0));
-                if (!(channelObj instanceof String)) {
-                    throw new RuntimeException("close requer c_channel como argumento");
-                }
-                String channelName = (String) channelObj;
-                Socket socket = channels.get(channelName);
-                if (socket != null) {
-                    try {
-                        socket.close();
-                        channels.remove(channelName);
-                    } catch (IOException e) {
-                        throw new RuntimeException("Erro ao fechar canal: " + e.getMessage());
-                    }
-                }
-                return null;
+            return add ? f.addNumber(id.getSlot(), a) : f.compareAndSetNumber(id.getSlot(), a, b);
+        }
+        IndexNode target = (IndexNode) args.get(0);
+        NumberArray array = (NumberArray) writableArray(target.getTarget());
+        int index = (int) evalDouble(target.getIndex());
+        double a = evalDouble(args.get(1));
+        double b = add ? 0 : evalDouble(args.get(2));
+        return add ? array.atomicAdd(index, a) : array.compareAndSet(index, a, b);
+    }
+
+    /** Chama um valor func com argumentos já avaliados (map, filter e reduce) */
+    private Object callValue(FunctionValue value, Object... args) {
+        FuncDefNode func = value.function();
+        Frame callee = acquireFrame(func, value.link());
+        int[] paramSlots = func.getParamSlots();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i] instanceof Double d) {
+                callee.numbers[paramSlots[i]] = d;
+            } else {
+                callee.slots[paramSlots[i]] = args[i];
             }
         }
+        return invoke(func, callee);
+    }
 
-        FuncDefNode func = functions.get(funcName);
-        if (func == null) {
-            throw new RuntimeException("Função não definida: " + funcName);
+    /** Trecho [from, to) de um array, executado por {@code worker} */
+    private interface BlockBody {
+        void run(Interpreter worker, int from, int to);
+    }
+
+    /**
+     * Percorre {@code n} elementos em blocos de {@link Builtins#BLOCK},
+     * divididos entre as threads como num 'par for'. Com um bloco só, roda
+     * aqui mesmo.
+     */
+    private void forBlocks(int n, int line, String what, BlockBody body) {
+        int blocks = (n + Builtins.BLOCK - 1) / Builtins.BLOCK;
+        if (blocks == 0) {
+            return;
         }
-        enterScope();
-        List<String> params = new ArrayList<>(func.getParams().keySet());
-        for (int i = 0; i < params.size(); i++) {
-            Object argValue = eval(args.get(i));
-            env.peek().put(params.get(i), argValue);
+        if (blocks == 1) {
+            body.run(this, 0, n);
+            return;
         }
+        ParGroup par = new ParGroup(group);
+        scheduler.forRange(blocks, (first, last) -> par.runBranch(() -> {
+            Interpreter worker = fork();
+            worker.group = par;
+            for (long b = first; b < last; b++) {
+                int from = (int) b * Builtins.BLOCK;
+                body.run(worker, from, Math.min(n, from + Builtins.BLOCK));
+            }
+        }, line, what));
+        par.close();
+    }
+
+    private MiniParArray map(FunctionValue f, MiniParArray array, CallNode node) {
+        MiniParArray result = MiniParArray.ofSize(node.getExprType(), array.size());
+        forBlocks(array.size(), node.getLine(), "'map'", (worker, from, to) -> {
+            for (int i = from; i < to; i++) {
+                result.set(i, worker.callValue(f, array.get(i)));
+            }
+        });
+        return result;
+    }
+
+    private MiniParArray filter(FunctionValue f, MiniParArray array, CallNode node) {
+        boolean[] keep = new boolean[array.size()];
+        forBlocks(array.size(), node.getLine(), "'filter'", (worker, from, to) -> {
+            for (int i = from; i < to; i++) {
+                keep[i] = (Boolean) worker.callValue(f, array.get(i));
+            }
+        });
+        MiniParArray result = MiniParArray.ofType(node.getExprType(), 0);
+        for (int i = 0; i < keep.length; i++) {
+            if (keep[i]) {
+                result.add(array.get(i));
+            }
+        }
+        return result;
+    }
+
+    /** reduce: f aplicada da esquerda para a direita, a partir do valor inicial */
+    private Object reduce(FunctionValue f, MiniParArray array, Object init) {
+        Object acc = init;
+        for (int i = 0; i < array.size(); i++) {
+            poll();
+            acc = callValue(f, acc, array.get(i));
+        }
+        return acc;
+    }
+
+    /**
+     * reduce_assoc: quem chama garante que f é associativa. Cada bloco é
+     * reduzido a partir do seu primeiro elemento e os parciais são
+     * combinados em ordem, a partir do valor inicial.
+     */
+    private Object reduceAssoc(FunctionValue f, MiniParArray array, Object init, CallNode node) {
+        Object[] partials = new Object[(array.size() + Builtins.BLOCK - 1) / Builtins.BLOCK];
+        forBlocks(array.size(), node.getLine(), "'reduce'", (worker, from, to) -> {
+            Object acc = array.get(from);
+            for (int i = from + 1; i < to; i++) {
+                acc = worker.callValue(f, acc, array.get(i));
+            }
+            partials[from / Builtins.BLOCK] = acc;
+        });
+        Object acc = init;
+        for (Object partial : partials) {
+            acc = callValue(f, acc, partial);
+        }
+        return acc;
+    }
+
+    /** Mesma soma por blocos de {@link Builtins}, com os blocos em paralelo */
+    private double sum(NumberArray array, int line) {
+        double[] partials = new double[(array.size() + Builtins.BLOCK - 1) / Builtins.BLOCK];
+        forBlocks(array.size(), line, "'sum'", (worker, from, to) ->
+                partials[from / Builtins.BLOCK] = Builtins.sum(array, from, to));
+        double total = 0;
+        for (double partial : partials) {
+            total += partial;
+        }
+        return total;
+    }
+
+    /** Executa o corpo no quadro {@code callee} e o devolve ao pool */
+    private Object runBody(FuncDefNode func, Frame callee) {
+        poll();
+        Frame caller = frame;
+        frame = callee;
         try {
             visitBlock(func.getBody());
-        } catch (ReturnSignal ret) {
-            return ret.getValue();
+            if (completion != Completion.RETURN) {
+                return null;
+            }
+            Object value = returnValue;
+            completion = Completion.NORMAL;
+            returnValue = null;
+            return value;
         } finally {
-            exitScope();
+            frame = caller;
+            releaseFrame(func, callee);
+        }
+    }
+
+    /**
+     * Quadro do pool de {@code func} ligado a {@code link}. Público para o
+     * código gerado pelo JIT, que preenche os parâmetros diretamente.
+     */
+    public Frame acquireFrame(FuncDefNode func, Frame link) {
+        return pool(func).acquire(link);
+    }
+
+    /** O quadro pode vir do pool de outro interpretador: o de quem fez o spawn */
+    private void releaseFrame(FuncDefNode func, Frame callee) {
+        pool(func).release(callee);
+    }
+
+    private FramePool pool(FuncDefNode func) {
+        FramePool pool = pools[func.getIndex()];
+        if (pool == null) {
+            pool = pools[func.getIndex()] = new FramePool(
+                    func.getFrameSize(), func.getNumberFrameSize(), func.getLevel());
         }
-        return null;
+        return pool;
+    }
+
+    /** Chama uma função NUMBER com os argumentos já em {@code callee} */
+    public double callDouble(FuncDefNode func, Frame callee) {
+        if (jit != null) {
+            CompiledFunction code = jit.compiledFor(func);
+            if (code != null) {
+                try {
+                    return code.invoke(this, callee);
+                } finally {
+                    releaseFrame(func, callee);
+                }
+            }
+        }
+        Object value = runBody(func, callee);
+        if (value instanceof Number n) {
+            return n.doubleValue();
+        }
+        throw new RuntimeException("Função '" + func.getName() + "' terminou sem retornar um número");
+    }
+
+    /** Quadro da função que envolve lexicamente {@code func} */
+    private Frame staticLink(FuncDefNode func) {
+        if (func.getLevel() == 1) {
+            return globals;
+        }
+        Frame f = frame;
+        while (f.level >= func.getLevel()) {
+            f = f.parent;
+        }
+        return f;
     }
 
     @Override
     public Object visit(IndexNode node) {
+        return indexValue(eval(node.getTarget()), (int) evalDouble(node.getIndex()));
+    }
+
+    @Override
+    public double visitDouble(IndexNode node) {
         Object base = eval(node.getTarget());
-        Object index = eval(node.getIndex());
+        int index = (int) evalDouble(node.getIndex());
+        if (base instanceof NumberArray array) {
+            return array.getDouble(index);
+        }
+        return ((Number) indexValue(base, index)).doubleValue();
+    }
+
+    protected Object indexValue(Object base, int index) {
         if (base instanceof List) {
-            return ((List<?>) base).get(((Number) index).intValue());
+            return ((List<?>) base).get(index);
         } else if (base instanceof String) {
-            return ((String) base).charAt(((Number) index).intValue());
+            return String.valueOf(((String) base).charAt(index)); // o tipo semântico de string[i] é STRING
         }
         throw new RuntimeException("Tipo inválido para indexação");
     }
 
     @Override
     public Object visit(ArrayLiteralNode node) {
-        List<Object> elements = new ArrayList<>();
-        for (ExprNode elem : node.getElements()) {
-            elements.add(eval(elem));
+        List<ExprNode> elems = node.getElements();
+        MiniParArray array = MiniParArray.ofType(node.getExprType(), elems.size());
+        if (array instanceof NumberArray numbers) {
+            for (ExprNode elem : elems) {
+                numbers.addDouble(evalDouble(elem));
+            }
+            return numbers;
+        }
+        for (ExprNode elem : elems) {
+            array.add(eval(elem));
         }
-        return elements;
+        return array;
     }
 
     @Override
     public void visit(BlockNode node) {
-        for (StmtNode stmt : node.getStmts()) {
-            execute(stmt);
-        }
+        visitBlock(node);
     }
 
+    /** Executa os comandos até o fim ou até um break/continue/return */
     private void visitBlock(BlockNode block) {
         for (StmtNode stmt : block.getStmts()) {
             execute(stmt);
+            if (completion != Completion.NORMAL) {
+                return;
+            }
         }
     }
 
-    private static class BreakSignal extends RuntimeException {}
-    private static class ContinueSignal extends RuntimeException {}
-    private static class ReturnSignal extends RuntimeException {
-        private final Object value;
-
-        public ReturnSignal(Object value) {
-            this.value = value;
-        }
-
-        public Object getValue() {
-            return value;
-        }
-    }
+    private enum Completion { NORMAL, BREAK, CONTINUE, RETURN }
 }
\ No newline at end of file
@@ -21,6 +21,7 @@ public interface InterpreterVisitor {
     void visit(ContinueNode node);
     void visit(SeqNode node);
     void visit(ParNode node);
+    void visit(PublishNode node);
     void visit(SChannelNode node);
     void visit(CChannelNode node);
 
@@ -32,6 +33,17 @@ public interface InterpreterVisitor {
     Object visit(CallNode node);
     Object visit(IndexNode node);
     Object visit(ArrayLiteralNode node);
+    Object visit(SpawnNode node);
+    Object visit(AwaitNode node);
+
+    // Caminho sem boxing para expressões NUMBER e BOOL
+    double visitDouble(BinaryOpNode node);
+    boolean visitBoolean(BinaryOpNode node);
+    double visitDouble(UnaryOpNode node);
+    boolean visitBoolean(UnaryOpNode node);
+    double visitDouble(IdentifierNode node);
+    double visitDouble(CallNode node);
+    double visitDouble(IndexNode node);
 
     void visit(ExpressionStmt node) throws SemanticException;
 
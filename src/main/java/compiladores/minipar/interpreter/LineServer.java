@@ -0,0 +1,351 @@
+package compiladores.minipar.interpreter;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Servidor de linhas do s_channel. Uma única thread com um {@link Selector}
+ * aceita as conexões e lê e escreve em todas elas sem bloquear; cada linha
+ * recebida vira uma chamada da função base, executada no pool do
+ * {@link ParScheduler}. Uma conexão à espera do cliente não ocupa thread
+ * nenhuma, então milhares de clientes podem ficar conectados ao mesmo tempo.
+ *
+ * <p>As linhas de uma conexão são atendidas uma de cada vez e na ordem em
+ * que chegaram, então as respostas voltam na mesma ordem dos pedidos.
+ *
+ * <p>Um cliente que usa send_async manda antes a linha {@link #MARKED}, e
+ * a partir dela toda linha da conexão vem marcada, nos dois sentidos:
+ * "=mensagem" é atendida na ordem, como antes, e "#id mensagem" roda assim
+ * que chega, em paralelo com as demais, com a resposta "#id resposta" na
+ * ordem em que ficar pronta. Sem essa linha, nada é interpretado: uma
+ * mensagem que por acaso começa com "#7 " é uma mensagem comum.
+ */
+final class LineServer {
+    /** Atende uma linha; cada instância é usada por uma thread de cada vez */
+    interface Handler {
+        String reply(String request);
+    }
+
+    private static final int BUFFER_SIZE = 2048;
+    /** Liga as marcas da conexão; o NUL não aparece nas linhas de texto de um cliente comum */
+    static final String MARKED = "\u0000minipar-marcas";
+    /** Marca de um pedido (e de uma resposta) atendido na ordem, numa conexão marcada */
+    static final String IN_ORDER = "=";
+
+    private final ServerSocketChannel server;
+    private final Selector selector;
+    private final ParScheduler scheduler;
+    private final Supplier<Handler> newHandler;
+    // handlers livres: uma conexão nova reaproveita os que já atenderam outras
+    private final Queue<Handler> idle = new ConcurrentLinkedQueue<>();
+    // conexões com respostas prontas para a thread do selector escrever
+    private final Queue<Connection> replied = new ConcurrentLinkedQueue<>();
+
+    LineServer(int port, ParScheduler scheduler, Supplier<Handler> newHandler) throws IOException {
+        this.scheduler = scheduler;
+        this.newHandler = newHandler;
+        this.selector = Selector.open();
+        this.server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(port), 1024);
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    /** Começa a atender em outra thread, que mantém o programa vivo */
+    void start(String name) {
+        Thread thread = new Thread(this::loop, "s_channel-" + name);
+        thread.start();
+    }
+
+    private void loop() {
+        try {
+            while (true) {
+                selector.select();
+                Connection done;
+                while ((done = replied.poll()) != null) {
+                    done.flushReplies();
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    Connection connection = (Connection) key.attachment();
+                    try {
+                        if (key.isReadable()) {
+                            connection.read();
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            connection.write();
+                        }
+                    } catch (IOException e) {
+                        System.err.println("Erro na comunicação com o cliente: " + e.getMessage());
+                        connection.close();
+                    }
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private Handler acquire() {
+        Handler handler = idle.poll();
+        return handler != null ? handler : newHandler.get();
+    }
+
+    private static String call(Handler handler, String request) {
+        String response;
+        try {
+            response = handler.reply(request);
+        } catch (RuntimeException e) {
+            // o erro é só desta mensagem; a conexão continua
+            response = "Erro: " + e.getMessage();
+        } catch (Throwable e) {
+            // StackOverflowError de uma recursão funda na função também não derruba a conexão
+            response = "Erro: " + (e.getMessage() != null ? e.getMessage() : e);
+        }
+        Output.flush(); // o que a função imprimiu aparece a cada mensagem
+        return response;
+    }
+
+    /** Pedido atendido na ordem; {@code tag} vai na frente da resposta */
+    private record Request(String tag, String body) {
+    }
+
+    /** Tamanho do prefixo "#id " de um pedido de send_async, ou 0 se não tem */
+    static int tagLength(String request) {
+        if (!request.startsWith("#")) {
+            return 0;
+        }
+        int i = 1;
+        while (i < request.length() && Character.isDigit(request.charAt(i))) {
+            i++;
+        }
+        return i > 1 && i < request.length() && request.charAt(i) == ' ' ? i + 1 : 0;
+    }
+
+    private void accept() throws IOException {
+        SocketChannel client;
+        while ((client = server.accept()) != null) {
+            client.configureBlocking(false);
+            // respostas curtas de um lote saem sem esperar o ACK da anterior
+            client.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            System.out.println("Conexão aceita de: " + client.socket().getInetAddress());
+            Connection connection = new Connection(client);
+            connection.key = client.register(selector, SelectionKey.OP_READ, connection);
+        }
+    }
+
+    /** Estado de um cliente; os buffers só são tocados pela thread do selector */
+    private final class Connection {
+        private final SocketChannel channel;
+        private SelectionKey key;
+        private ByteBuffer in = ByteBuffer.allocate(BUFFER_SIZE);
+        private ByteBuffer out = ByteBuffer.allocate(BUFFER_SIZE).flip();
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+        // onde a busca pelo fim de linha parou na última leitura
+        private int scanned;
+
+        // pedidos completos ainda não atendidos; guardados pelo lock da conexão
+        private final Queue<Request> requests = new ArrayDeque<>();
+        // o cliente mandou MARKED; só a thread do selector usa
+        private boolean marked;
+        private boolean serving;
+        // respostas vindas das threads do pool, na ordem dos pedidos
+        private final Queue<String> replies = new ConcurrentLinkedQueue<>();
+        // já está em 'replied': respostas de um lote seguido saem numa escrita só
+        private final AtomicBoolean queued = new AtomicBoolean();
+        // o cliente mandou "exit": fecha depois de escrever a última resposta
+        private volatile boolean closing;
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        void read() throws IOException {
+            if (channel.read(in) < 0) {
+                close();
+                return;
+            }
+            int start = 0;
+            for (int i = scanned; i < in.position(); i++) {
+                if (in.get(i) == '\n') {
+                    int end = i > start && in.get(i - 1) == '\r' ? i - 1 : i;
+                    enqueue(new String(in.array(), start, end - start, StandardCharsets.UTF_8));
+                    start = i + 1;
+                }
+            }
+            // descarta as linhas já lidas e guarda o começo da próxima
+            in.flip().position(start);
+            in.compact();
+            scanned = in.position();
+            if (!in.hasRemaining()) {
+                in = ByteBuffer.allocate(in.capacity() * 2).put(in.flip()); // linha maior que o buffer
+            }
+        }
+
+        private void enqueue(String line) {
+            if (!marked) {
+                if (line.equals(MARKED)) {
+                    marked = true;
+                } else {
+                    enqueue(new Request("", line));
+                }
+                return;
+            }
+            int tag = tagLength(line);
+            if (tag > 0) {
+                // pedido de send_async: roda em paralelo com os outros e a resposta leva o mesmo id
+                scheduler.startHandler(() -> serveTagged(line.substring(0, tag), line.substring(tag)));
+                return;
+            }
+            enqueue(new Request(IN_ORDER, line.startsWith(IN_ORDER) ? line.substring(IN_ORDER.length()) : line));
+        }
+
+        private void enqueue(Request request) {
+            boolean start;
+            synchronized (this) {
+                requests.add(request);
+                start = !serving;
+                serving = true;
+            }
+            if (start) {
+                scheduler.startHandler(this::serve);
+            }
+        }
+
+        /** Atende no pool os pedidos que já chegaram; roda fora da thread do selector */
+        private void serve() {
+            Handler handler = acquire();
+            boolean done = false;
+            try {
+                while (true) {
+                    Request request;
+                    synchronized (this) {
+                        request = requests.poll();
+                        if (request == null || closing) {
+                            serving = false;
+                            done = true;
+                            return;
+                        }
+                    }
+                    if ("exit".equalsIgnoreCase(request.body().trim())) {
+                        reply(request.tag() + "Conexão encerrada.", true);
+                        continue;
+                    }
+                    reply(request.tag() + call(handler, request.body()), false);
+                }
+            } finally {
+                idle.add(handler);
+                if (!done) {
+                    // saiu por um erro fora da função: a conexão não pode ficar presa em 'serving'
+                    restart();
+                }
+            }
+        }
+
+        private void restart() {
+            boolean again;
+            synchronized (this) {
+                again = !requests.isEmpty() && !closing;
+                serving = again;
+            }
+            if (again) {
+                scheduler.startHandler(this::serve);
+            }
+        }
+
+        private void serveTagged(String tag, String request) {
+            if (closing) {
+                return;
+            }
+            Handler handler = acquire();
+            try {
+                reply(tag + call(handler, request), false);
+            } finally {
+                idle.add(handler);
+            }
+        }
+
+        private void reply(String response, boolean last) {
+            replies.add(String.valueOf(response));
+            if (last) {
+                closing = true; // depois da resposta: quem vir closing já vê a última resposta na fila
+            }
+            if (queued.compareAndSet(false, true)) {
+                replied.add(this);
+                selector.wakeup();
+            }
+        }
+
+        /** Passa as respostas prontas para o buffer de saída e tenta escrever */
+        void flushReplies() {
+            queued.set(false); // antes de esvaziar a fila: uma resposta que chegar depois marca de novo
+            if (!channel.isOpen()) {
+                return;
+            }
+            out.compact();
+            String response;
+            while ((response = replies.poll()) != null) {
+                CharBuffer chars = CharBuffer.wrap(response + "\n");
+                encoder.reset();
+                while (encoder.encode(chars, out, true).isOverflow()) {
+                    out = ByteBuffer.allocate(out.capacity() * 2).put(out.flip());
+                }
+            }
+            out.flip();
+            try {
+                write();
+            } catch (IOException e) {
+                System.err.println("Erro na comunicação com o cliente: " + e.getMessage());
+                close();
+            }
+        }
+
+        void write() throws IOException {
+            channel.write(out);
+            if (out.hasRemaining()) {
+                key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE); // o cliente não está lendo
+            } else if (closing && replies.isEmpty()) {
+                close();
+            } else {
+                key.interestOps(SelectionKey.OP_READ);
+            }
+        }
+
+        void close() {
+            synchronized (this) {
+                closing = true;
+                requests.clear();
+            }
+            key.cancel();
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // já está fechando
+            }
+        }
+    }
+}
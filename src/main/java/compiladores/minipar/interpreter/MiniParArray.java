@@ -0,0 +1,114 @@
+package compiladores.minipar.interpreter;
+
+import compiladores.minipar.semantic.ExprType;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Valor de array do MiniPar. Cada tipo de elemento tem seu próprio
+ * armazenamento ({@link NumberArray}, {@link StringArray}, {@link BoolArray}),
+ * que cresce dobrando a capacidade. Continua sendo uma {@link List}, então
+ * formatação, len e igualdade funcionam como antes em todos os motores.
+ */
+public abstract class MiniParArray extends AbstractList<Object> implements RandomAccess {
+    protected static final int MIN_CAPACITY = 4;
+
+    protected int size;
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /** Anexa {@code value} ao fim; o tipo do elemento é conferido */
+    @Override
+    public abstract boolean add(Object value);
+
+    /** Cópia com os mesmos elementos e espaço para mais {@code extra} */
+    public abstract MiniParArray copy(int extra);
+
+    /** Array vazio para o tipo semântico {@code type} ([number] por padrão) */
+    public static MiniParArray ofType(ExprType type, int capacity) {
+        return switch (type) {
+            case ARRAY_STRING -> new StringArray(capacity);
+            case ARRAY_BOOL -> new BoolArray(capacity);
+            default -> new NumberArray(capacity);
+        };
+    }
+
+    /** Array de {@code n} elementos com o valor padrão do tipo (0, "" ou false) */
+    public static MiniParArray ofSize(ExprType type, int n) {
+        return switch (type) {
+            case ARRAY_STRING -> StringArray.filled(n, "");
+            case ARRAY_BOOL -> BoolArray.filled(n, false);
+            default -> NumberArray.filled(n, 0);
+        };
+    }
+
+    /** Array vazio cujo tipo é o de {@code element} */
+    public static MiniParArray forElement(Object element, int capacity) {
+        if (element instanceof String || element instanceof Character) {
+            return new StringArray(capacity);
+        } else if (element instanceof Boolean) {
+            return new BoolArray(capacity);
+        }
+        return new NumberArray(capacity);
+    }
+
+    /** Cópia de uma lista qualquer (por exemplo, vinda de split) */
+    public static MiniParArray copyOf(List<?> values, int extra) {
+        if (values instanceof MiniParArray array) {
+            return array.copy(extra);
+        }
+        MiniParArray result = forElement(values.isEmpty() ? null : values.get(0), values.size() + extra);
+        result.addAll(values);
+        return result;
+    }
+
+    /** {@code left + right} entre arrays; o array vazio assume o tipo do outro */
+    public static MiniParArray concat(List<?> left, List<?> right) {
+        if (left.isEmpty()) {
+            return copyOf(right, 0);
+        }
+        MiniParArray result = copyOf(left, right.size());
+        result.addAll(right);
+        return result;
+    }
+
+    /** {@code left + value}: novo array com um elemento a mais */
+    public static MiniParArray append(List<?> left, Object value) {
+        MiniParArray result = left.isEmpty() ? forElement(value, 1) : copyOf(left, 1);
+        result.add(value);
+        return result;
+    }
+
+    /**
+     * {@code array = array + value} sem copiar: a análise semântica garantiu
+     * que nenhuma outra referência enxerga {@code array}. Devolve o array que
+     * a variável passa a guardar (um novo só se o vazio for de outro tipo).
+     */
+    public static MiniParArray appendInPlace(Object array, Object value) {
+        MiniParArray target = (MiniParArray) array;
+        if (target.isEmpty()) {
+            return value instanceof List<?> list ? concat(target, list) : append(target, value);
+        }
+        if (value instanceof List<?> list) {
+            target.addAll(list);
+        } else {
+            target.add(value);
+        }
+        return target;
+    }
+
+    /** Capacidade nova para caber {@code needed} elementos, dobrando a atual */
+    protected static int grow(int capacity, int needed) {
+        return Math.max(needed, Math.max(MIN_CAPACITY, capacity * 2));
+    }
+
+    protected static RuntimeException wrongElement(String type, Object value) {
+        return new RuntimeException("Elemento inválido para array de " + type + ": "
+                + Builtins.formatValue(value));
+    }
+}
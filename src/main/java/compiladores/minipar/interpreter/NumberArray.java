@@ -0,0 +1,120 @@
+package compiladores.minipar.interpreter;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Objects;
+
+/** Array [number] sobre um double[], sem um Double por elemento */
+public final class NumberArray extends MiniParArray {
+    private static final VarHandle ELEMENTS = MethodHandles.arrayElementVarHandle(double[].class);
+
+    private double[] data;
+
+    public NumberArray(int capacity) {
+        this.data = new double[Math.max(capacity, MIN_CAPACITY)];
+    }
+
+    private NumberArray(double[] data, int size) {
+        this.data = data;
+        this.size = size;
+    }
+
+    /** {@code n} elementos iguais a {@code value}: zeros(n) e fill(n, v) */
+    public static NumberArray filled(int n, double value) {
+        NumberArray array = new NumberArray(n);
+        if (value != 0) {
+            Arrays.fill(array.data, 0, n, value);
+        }
+        array.size = n;
+        return array;
+    }
+
+    public double getDouble(int index) {
+        Objects.checkIndex(index, size);
+        return data[index];
+    }
+
+    public void setDouble(int index, double value) {
+        Objects.checkIndex(index, size);
+        data[index] = value;
+    }
+
+    /** atomic_add num elemento: CAS sobre os bits do double; retorna o novo valor */
+    public double atomicAdd(int index, double delta) {
+        Objects.checkIndex(index, size);
+        while (true) {
+            double current = (double) ELEMENTS.getVolatile(data, index);
+            double next = current + delta;
+            if (ELEMENTS.weakCompareAndSet(data, index, current, next)) {
+                return next;
+            }
+        }
+    }
+
+    /** compare_and_set num elemento, com a mesma igualdade (==) de {@link Frame#compareAndSetNumber} */
+    public boolean compareAndSet(int index, double expected, double value) {
+        Objects.checkIndex(index, size);
+        while (true) {
+            double current = (double) ELEMENTS.getVolatile(data, index);
+            if (current != expected) {
+                return false;
+            }
+            if (ELEMENTS.compareAndSet(data, index, current, value)) {
+                return true;
+            }
+        }
+    }
+
+    public void addDouble(double value) {
+        if (size == data.length) {
+            data = Arrays.copyOf(data, grow(data.length, size + 1));
+        }
+        data[size++] = value;
+    }
+
+    @Override
+    public Object get(int index) {
+        return getDouble(index);
+    }
+
+    @Override
+    public Object set(int index, Object value) {
+        Object old = get(index);
+        data[index] = number(value);
+        return old;
+    }
+
+    @Override
+    public boolean add(Object value) {
+        addDouble(number(value));
+        return true;
+    }
+
+    @Override
+    public boolean addAll(Collection<?> values) {
+        if (!(values instanceof NumberArray other)) {
+            return super.addAll(values);
+        }
+        int n = other.size;
+        if (size + n > data.length) {
+            data = Arrays.copyOf(data, grow(data.length, size + n));
+        }
+        System.arraycopy(other.data, 0, data, size, n);
+        size += n;
+        return n > 0;
+    }
+
+    @Override
+    public NumberArray copy(int extra) {
+        return new NumberArray(Arrays.copyOf(data, Math.max(size + extra, MIN_CAPACITY)), size);
+    }
+
+    private static double number(Object value) {
+        if (value instanceof Number n) {
+            return n.doubleValue();
+        }
+        throw wrongElement("number", value);
+    }
+}
@@ -0,0 +1,61 @@
+package compiladores.minipar.interpreter;
+
+import java.io.PrintStream;
+
+/**
+ * Saída do print. Cada thread escreve no seu próprio buffer, sem lock, e o
+ * buffer vai para System.out de uma vez, em linhas inteiras, quando:
+ * <ul>
+ *   <li>passa de {@link #FLUSH_AT} caracteres;</li>
+ *   <li>a thread vai bloquear (input, sleep, send, canais), para que um
+ *       prompt apareça antes da espera;</li>
+ *   <li>um 'par' ou 'spawn' começa, e quando cada ramo termina, para que a
+ *       saída de antes do bloco venha antes da saída dos ramos;</li>
+ *   <li>o programa termina.</li>
+ * </ul>
+ * Linhas de ramos diferentes nunca se misturam, mas entre dois pontos
+ * desses a ordem relativa entre ramos é a da descarga, não a da execução.
+ */
+public final class Output {
+    static final int FLUSH_AT = 64 * 1024;
+    private static final String LINE_END = System.lineSeparator();
+
+    private static final ThreadLocal<StringBuilder> BUFFER =
+            ThreadLocal.withInitial(() -> new StringBuilder(1024));
+
+    private Output() {
+    }
+
+    /** Buffer da thread atual; print formata os valores direto nele */
+    static StringBuilder buffer() {
+        return BUFFER.get();
+    }
+
+    /** Fecha a linha em {@code buffer} e descarrega se passou do limite */
+    static void endLine(StringBuilder buffer) {
+        buffer.append(LINE_END);
+        if (buffer.length() >= FLUSH_AT) {
+            write(buffer);
+        }
+    }
+
+    /** Descarrega o buffer da thread atual */
+    public static void flush() {
+        StringBuilder buffer = BUFFER.get();
+        if (!buffer.isEmpty()) {
+            write(buffer);
+        }
+    }
+
+    private static void write(StringBuilder buffer) {
+        PrintStream out = System.out;
+        synchronized (out) {
+            out.append(buffer);
+            out.flush();
+        }
+        buffer.setLength(0);
+        if (buffer.capacity() > 4 * FLUSH_AT) {
+            buffer.trimToSize(); // um print de array enorme não prende a memória na thread
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package compiladores.minipar.interpreter;
+
+/** Falha de um ramo de 'par' (ou de uma iteração de 'par for'), com a linha do ramo */
+public class ParBranchException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final int line;
+
+    public ParBranchException(int line, String branch, RuntimeException cause) {
+        super("Linha " + line + ": " + branch + " falhou: " + cause.getMessage(), cause);
+        this.line = line;
+    }
+
+    public int getLine() {
+        return line;
+    }
+}
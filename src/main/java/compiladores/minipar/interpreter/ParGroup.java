@@ -0,0 +1,214 @@
+package compiladores.minipar.interpreter;
+
+import compiladores.minipar.ast.expr.IdentifierNode;
+import compiladores.minipar.utils.Pair;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Escopo estruturado de uma execução de 'par': o bloco só termina quando
+ * todos os ramos terminam, e o primeiro ramo que falha cancela os irmãos e
+ * os 'par' aninhados dentro deles. O erro chega a quem executou o 'par' com
+ * a linha do ramo.
+ *
+ * <p>O cancelamento é cooperativo: o interpretador e o código do JIT
+ * consultam {@link #checkCancelled()} nos laços e chamadas de função, e ramos
+ * bloqueados em sleep, send ou input são interrompidos. A interrupção vai
+ * para o ramo, e não para a thread: uma thread do ForkJoinPool que espera um
+ * join executa ramos de outros 'par' no meio tempo, e só o ramo que está
+ * bloqueado numa dessas operações, registrado em {@link #enterBlocking()},
+ * é interrompido.
+ */
+public final class ParGroup {
+    private static final Cancelled CANCELLED = new Cancelled();
+    // ramo que esta thread executa agora; ramos de 'par' diferentes se empilham na mesma thread
+    private static final ThreadLocal<Branch> CURRENT = new ThreadLocal<>();
+
+    private final ParGroup parent;
+    private volatile boolean cancelled;
+    // primeira falha, já com a linha do ramo
+    private RuntimeException failure;
+    private Error error;
+    // ramos executando agora e 'par' aninhados abertos; guardados por this
+    private final Set<Branch> running = new HashSet<>();
+    private final List<ParGroup> children = new ArrayList<>();
+    // 'publish' dos ramos de um 'par snapshot', na ordem em que aconteceram
+    private final List<Pair<IdentifierNode, Object>> publications = new ArrayList<>();
+
+    ParGroup(ParGroup parent) {
+        Output.flush(); // a saída de antes do bloco vem antes da saída dos ramos
+        this.parent = parent;
+        if (parent != null) {
+            synchronized (parent) {
+                parent.children.add(this);
+                cancelled = parent.cancelled;
+            }
+        }
+    }
+
+    /** Executa um ramo; erros cancelam os irmãos em vez de escapar */
+    void runBranch(Runnable branch, int line) {
+        runBranch(branch, line, "ramo de 'par'");
+    }
+
+    /** {@code what} descreve o ramo na mensagem de erro */
+    void runBranch(Runnable branch, int line, String what) {
+        Branch self = new Branch(this);
+        synchronized (this) {
+            if (cancelled) {
+                return; // um irmão já falhou: o ramo nem começa
+            }
+            running.add(self);
+        }
+        Branch outer = CURRENT.get();
+        CURRENT.set(self);
+        try {
+            branch.run();
+        } catch (RuntimeException e) {
+            // depois do cancelamento, erros (inclusive a interrupção) são consequência dele
+            if (!cancelled) {
+                fail(e instanceof ParBranchException ? e : new ParBranchException(line, what, e));
+            }
+        } catch (Error e) {
+            fail(e);
+        } finally {
+            Output.flush();
+            synchronized (this) {
+                running.remove(self);
+            }
+            CURRENT.set(outer);
+        }
+    }
+
+    /** Fecha o escopo depois que todos os ramos terminaram e relança a primeira falha */
+    void close() {
+        if (parent != null) {
+            synchronized (parent) {
+                parent.children.remove(this);
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    synchronized void publish(IdentifierNode target, Object value) {
+        publications.add(new Pair<>(target, value));
+    }
+
+    /** Publicações a aplicar no ambiente depois de {@link #close()} */
+    List<Pair<IdentifierNode, Object>> publications() {
+        return publications;
+    }
+
+    /**
+     * Executa {@code task} fora de qualquer ramo (spawn, mensagens de
+     * s_channel): ela pode rodar na thread de um ramo que espera um join, e
+     * cancelar esse ramo não deve interrompê-la.
+     */
+    static void detached(Runnable task) {
+        Branch outer = CURRENT.get();
+        CURRENT.remove();
+        try {
+            task.run();
+        } finally {
+            CURRENT.set(outer);
+        }
+    }
+
+    /**
+     * Registra o ramo desta thread como bloqueado, para que o cancelamento o
+     * interrompa; devolve o registro para {@link #exitBlocking}, ou null fora
+     * de um ramo. Um ramo já cancelado nem chega a bloquear.
+     */
+    static Branch enterBlocking() {
+        Branch branch = CURRENT.get();
+        if (branch == null) {
+            return null;
+        }
+        synchronized (branch.group) {
+            branch.group.checkCancelled();
+            branch.blocked = Thread.currentThread();
+        }
+        return branch;
+    }
+
+    /** Tira o registro; limpa a interrupção só se ela veio do cancelamento deste ramo */
+    static void exitBlocking(Branch branch) {
+        if (branch == null) {
+            return;
+        }
+        synchronized (branch.group) {
+            branch.blocked = null;
+            if (branch.interrupted) {
+                branch.interrupted = false;
+                Thread.interrupted();
+            }
+        }
+    }
+
+    public void checkCancelled() {
+        if (cancelled) {
+            throw CANCELLED;
+        }
+    }
+
+    private void fail(Throwable e) {
+        synchronized (this) {
+            if (failure != null || error != null) {
+                return;
+            }
+            if (e instanceof Error err) {
+                error = err;
+            } else {
+                failure = (RuntimeException) e;
+            }
+        }
+        cancel();
+    }
+
+    private void cancel() {
+        List<ParGroup> nested;
+        synchronized (this) {
+            cancelled = true;
+            for (Branch branch : running) {
+                if (branch.blocked != null) {
+                    branch.interrupted = true;
+                    branch.blocked.interrupt();
+                }
+            }
+            nested = new ArrayList<>(children);
+        }
+        for (ParGroup child : nested) {
+            child.cancel();
+        }
+    }
+
+    /** Um ramo em execução; os campos são guardados pelo lock do grupo */
+    static final class Branch {
+        private final ParGroup group;
+        // thread do ramo enquanto ele espera em sleep, send, input...
+        private Thread blocked;
+        // o cancelamento interrompeu a thread durante a espera
+        private boolean interrupted;
+
+        Branch(ParGroup group) {
+            this.group = group;
+        }
+    }
+
+    /** Sinal sem pilha que desfaz um ramo cancelado */
+    private static final class Cancelled extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        Cancelled() {
+            super("ramo de 'par' cancelado", null, false, false);
+        }
+    }
+}
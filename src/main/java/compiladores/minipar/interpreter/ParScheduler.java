@@ -0,0 +1,125 @@
+package compiladores.minipar.interpreter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+
+/**
+ * Onde rodam os ramos dos blocos 'par', as chamadas de 'spawn' e as
+ * conexões aceitas por um s_channel. Há dois modos, escolhidos na inicialização (--threads):
+ * um único ForkJoinPool de threads da plataforma para o programa inteiro,
+ * bom para ramos que calculam, ou threads virtuais, para ramos que passam
+ * a maior parte do tempo bloqueados em sleep, send ou input.
+ */
+public abstract class ParScheduler {
+    private static volatile ParScheduler shared;
+
+    /** Pool com {@code threads} threads da plataforma */
+    public static ParScheduler forkJoin(int threads) {
+        return new ForkJoinScheduler(threads);
+    }
+
+    /** Uma thread virtual por ramo e por conexão */
+    public static ParScheduler virtualThreads() {
+        return new VirtualThreadScheduler();
+    }
+
+    /** Escalonador padrão, com uma thread por processador */
+    public static ParScheduler shared() {
+        ParScheduler s = shared;
+        if (s == null) {
+            synchronized (ParScheduler.class) {
+                s = shared;
+                if (s == null) {
+                    s = shared = forkJoin(Runtime.getRuntime().availableProcessors());
+                }
+            }
+        }
+        return s;
+    }
+
+    /**
+     * Executa os ramos em paralelo e volta quando todos terminarem. Os ramos
+     * não lançam exceções: as falhas ficam com o {@link ParGroup}.
+     */
+    public abstract void runAll(List<Runnable> branches);
+
+    /**
+     * Divide as iterações [0, count) de um 'par for' entre as threads e volta
+     * quando todas terminarem. Aqui, em partes fixas (algumas por processador);
+     * o ForkJoinPool divide sob demanda.
+     */
+    public void forRange(long count, RangeBody body) {
+        long parts = Math.min(count, 4L * Runtime.getRuntime().availableProcessors());
+        List<Runnable> chunks = new ArrayList<>();
+        for (long p = 0; p < parts; p++) {
+            long from = count * p / parts;
+            long to = count * (p + 1) / parts;
+            chunks.add(() -> body.run(from, to));
+        }
+        runAll(chunks);
+    }
+
+    /** Iterações [from, to) de um 'par for' */
+    public interface RangeBody {
+        void run(long from, long to);
+    }
+
+    /** Começa uma chamada de 'spawn'; a tarefa não lança exceções */
+    public abstract Future<?> spawn(Runnable call);
+
+    /** Atende as mensagens que chegaram numa conexão de s_channel */
+    public abstract void startHandler(Runnable handler);
+
+    /**
+     * Operação que bloqueia a thread (sleep, input, rede). Dentro do pool, o
+     * ForkJoinPool põe outra thread no lugar enquanto esta espera, para que
+     * ramos bloqueados não impeçam os demais de rodar. Threads virtuais
+     * liberam a thread portadora sozinhas.
+     */
+    public static <T> T blocking(BlockingOperation<T> operation) {
+        Output.flush(); // o que a thread imprimiu aparece antes da espera
+        ParGroup.Branch branch = ParGroup.enterBlocking();
+        try {
+            if (ForkJoinTask.getPool() == null) {
+                return operation.run();
+            }
+            Blocker<T> blocker = new Blocker<>(operation);
+            ForkJoinPool.managedBlock(blocker);
+            return blocker.result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } finally {
+            ParGroup.exitBlocking(branch);
+        }
+    }
+
+    public interface BlockingOperation<T> {
+        T run() throws InterruptedException;
+    }
+
+    private static final class Blocker<T> implements ForkJoinPool.ManagedBlocker {
+        private final BlockingOperation<T> operation;
+        private T result;
+        private boolean done;
+
+        Blocker(BlockingOperation<T> operation) {
+            this.operation = operation;
+        }
+
+        @Override
+        public boolean block() throws InterruptedException {
+            result = operation.run();
+            done = true;
+            return true;
+        }
+
+        @Override
+        public boolean isReleasable() {
+            return done;
+        }
+    }
+}
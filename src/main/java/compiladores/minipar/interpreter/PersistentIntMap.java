@@ -0,0 +1,81 @@
+package compiladores.minipar.interpreter;
+
+/**
+ * Mapa persistente de int para valor, numa trie mapeada por bitmap (HAMT).
+ * Cada nível usa 5 bits da chave, e um bitmap de 32 bits diz quais filhos
+ * existem, então cada nó guarda só os filhos presentes. {@link #put} copia
+ * apenas o caminho até a chave (no máximo 7 nós) e compartilha o resto.
+ * Assim, quem guardou uma versão continua vendo essa versão, e copiar o mapa
+ * inteiro é só copiar a referência.
+ */
+final class PersistentIntMap {
+    static final PersistentIntMap EMPTY = new PersistentIntMap(new Node(0, new Object[0]));
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    private final Node root;
+
+    private PersistentIntMap(Node root) {
+        this.root = root;
+    }
+
+    /** Valor da chave, ou null se ela não está no mapa */
+    Object get(int key) {
+        Node node = root;
+        for (int shift = 0; ; shift += BITS) {
+            int bit = 1 << ((key >>> shift) & MASK);
+            if ((node.bitmap & bit) == 0) {
+                return null;
+            }
+            Object child = node.children[Integer.bitCount(node.bitmap & (bit - 1))];
+            if (child instanceof Leaf leaf) {
+                return leaf.key == key ? leaf.value : null;
+            }
+            node = (Node) child;
+        }
+    }
+
+    /** Nova versão do mapa com {@code key} associada a {@code value} (não nulo) */
+    PersistentIntMap put(int key, Object value) {
+        return new PersistentIntMap(put(root, 0, new Leaf(key, value)));
+    }
+
+    private static Node put(Node node, int shift, Leaf leaf) {
+        int bit = 1 << ((leaf.key >>> shift) & MASK);
+        int index = Integer.bitCount(node.bitmap & (bit - 1));
+        if ((node.bitmap & bit) == 0) {
+            Object[] children = new Object[node.children.length + 1];
+            System.arraycopy(node.children, 0, children, 0, index);
+            children[index] = leaf;
+            System.arraycopy(node.children, index, children, index + 1, node.children.length - index);
+            return new Node(node.bitmap | bit, children);
+        }
+        Object child = node.children[index];
+        Object replacement;
+        if (child instanceof Leaf other) {
+            replacement = other.key == leaf.key ? leaf : split(other, leaf, shift + BITS);
+        } else {
+            replacement = put((Node) child, shift + BITS, leaf);
+        }
+        Object[] children = node.children.clone();
+        children[index] = replacement;
+        return new Node(node.bitmap, children);
+    }
+
+    /** Nó com duas folhas cujas chaves coincidem até {@code shift} */
+    private static Node split(Leaf a, Leaf b, int shift) {
+        int bitA = 1 << ((a.key >>> shift) & MASK);
+        int bitB = 1 << ((b.key >>> shift) & MASK);
+        if (bitA == bitB) {
+            return new Node(bitA, new Object[] {split(a, b, shift + BITS)});
+        }
+        return new Node(bitA | bitB, Integer.compareUnsigned(bitA, bitB) < 0 ? new Object[] {a, b} : new Object[] {b, a});
+    }
+
+    private record Leaf(int key, Object value) {
+    }
+
+    private record Node(int bitmap, Object[] children) {
+    }
+}
@@ -0,0 +1,127 @@
+package compiladores.minipar.interpreter;
+
+import compiladores.minipar.ast.expr.IdentifierNode;
+import compiladores.minipar.ast.stmt.ParNode;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Visão de um ramo de 'par snapshot' sobre o ambiente que o envolve.
+ *
+ * <p>Os ramos leem direto os quadros do ambiente (um por nível, do global
+ * até o do 'par') e gravam as próprias alterações num
+ * {@link PersistentIntMap} por cima deles. Quem executou o 'par' está parado
+ * esperando, mas os irmãos de um 'par' comum em volta, chamadas de spawn e o
+ * servidor continuam rodando: as variáveis que eles podem alterar (as marcadas
+ * como concorrentes) são copiadas para o mapa quando o bloco começa, e as
+ * demais não mudam enquanto os ramos rodam. Criar a visão de um ramo custa
+ * O(1), não importa quantas variáveis o programa tenha, e um 'par snapshot'
+ * aninhado começa compartilhando a versão atual do mapa.
+ *
+ * <p>Arrays do ambiente são copiados na primeira escrita de um elemento
+ * ({@code a[i] = v}), e a cópia passa a ser o valor da variável no ramo.
+ */
+final class Snapshot {
+    private final ParGroup group;
+    private final Frame[] frozen;
+    // 'par' comuns dentro do ramo compartilham a visão: trocas por CAS, sem locks
+    private final AtomicReference<PersistentIntMap> overlay;
+    // arrays lidos do ambiente congelado e cópias feitas por este ramo
+    private final Set<Object> borrowed = Collections.synchronizedSet(
+            Collections.newSetFromMap(new IdentityHashMap<>()));
+    private final Set<Object> owned = Collections.synchronizedSet(
+            Collections.newSetFromMap(new IdentityHashMap<>()));
+
+    /** Visão a partir do quadro {@code frame}, com as alterações iniciais {@code base} (ver {@link #capture}) */
+    Snapshot(ParGroup group, Frame frame, PersistentIntMap base) {
+        this.group = group;
+        frozen = new Frame[frame.level + 1];
+        for (Frame f = frame; f != null; f = f.parent) {
+            frozen[f.level] = f;
+        }
+        overlay = new AtomicReference<>(base);
+    }
+
+    /**
+     * Versão do ambiente em que os ramos de um 'par snapshot' começam: a de
+     * {@code outer}, o ramo que contém o 'par' (ou nenhuma), com os valores
+     * atuais das variáveis {@code captured}.
+     */
+    static PersistentIntMap capture(Frame frame, Snapshot outer, List<ParNode.Capture> captured) {
+        PersistentIntMap map = outer == null ? PersistentIntMap.EMPTY : outer.overlay.get();
+        for (ParNode.Capture c : captured) {
+            Frame f = frame.up(frame.level - c.level());
+            Object value;
+            if (outer != null && outer.isFrozen(f)) {
+                value = c.number() ? (Object) outer.loadNumber(f, c.slot()) : outer.load(f, c.slot());
+            } else {
+                value = c.number() ? (Object) f.numberVolatile(c.slot()) : f.slotVolatile(c.slot());
+            }
+            if (value != null) {
+                map = map.put(key(f, c.slot(), c.number()), value);
+            }
+        }
+        return map;
+    }
+
+    boolean isFrozen(Frame f) {
+        return f.level < frozen.length && frozen[f.level] == f;
+    }
+
+    double loadNumber(Frame f, int slot) {
+        Object value = overlay.get().get(key(f, slot, true));
+        return value != null ? (Double) value : f.numbers[slot];
+    }
+
+    Object load(Frame f, int slot) {
+        Object value = overlay.get().get(key(f, slot, false));
+        if (value == null) {
+            value = f.slots[slot];
+        }
+        if (value instanceof MiniParArray && !owned.contains(value)) {
+            borrowed.add(value);
+        }
+        return value;
+    }
+
+    void storeNumber(Frame f, int slot, double value) {
+        int key = key(f, slot, true);
+        overlay.updateAndGet(map -> map.put(key, value));
+    }
+
+    void store(Frame f, int slot, Object value) {
+        int key = key(f, slot, false);
+        overlay.updateAndGet(map -> map.put(key, value));
+    }
+
+    /** true se o array veio do ambiente e precisa ser copiado antes da escrita */
+    boolean isBorrowed(Object array) {
+        return borrowed.contains(array);
+    }
+
+    /** Cópia do array emprestado que o ramo pode alterar à vontade */
+    MiniParArray own(Object array) {
+        MiniParArray copy = MiniParArray.copyOf((MiniParArray) array, 0);
+        owned.add(copy);
+        return copy;
+    }
+
+    /**
+     * Guarda {@code value} para o ambiente. Um array publicado volta a ser do
+     * ambiente, então as escritas seguintes do ramo fazem outra cópia.
+     */
+    void publish(IdentifierNode target, Object value) {
+        if (value instanceof MiniParArray && owned.remove(value)) {
+            borrowed.add(value);
+        }
+        group.publish(target, value);
+    }
+
+    private static int key(Frame f, int slot, boolean number) {
+        return f.level << 20 | slot << 1 | (number ? 1 : 0);
+    }
+}
@@ -0,0 +1,35 @@
+package compiladores.minipar.interpreter;
+
+import compiladores.minipar.ast.expr.ExprNode;
+
+/**
+ * Versão de um nó ajustada aos tipos que ele já viu. O nó guarda a
+ * especialização atual e o {@link SpecializingInterpreter} a troca quando
+ * aparece um tipo inesperado.
+ */
+public abstract class Specialization<N extends ExprNode> {
+    private final String name;
+
+    protected Specialization(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    abstract Object execute(SpecializingInterpreter rt, N node);
+
+    double executeDouble(SpecializingInterpreter rt, N node) {
+        return ((Number) execute(rt, node)).doubleValue();
+    }
+
+    boolean executeBoolean(SpecializingInterpreter rt, N node) {
+        return (Boolean) execute(rt, node);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,52 @@
+package compiladores.minipar.interpreter;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contagem de especializações e de nós que voltaram à versão genérica,
+ * compartilhada entre os ramos de 'par'.
+ */
+public final class SpecializationStats {
+    private final Map<String, LongAdder> specialized = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> fallbacks = new ConcurrentHashMap<>();
+    private final LongAdder generic = new LongAdder();
+
+    void specialized(Specialization<?> spec) {
+        specialized.computeIfAbsent(spec.getName(), k -> new LongAdder()).increment();
+    }
+
+    /** Nó que já na primeira execução não tinha versão especializada */
+    void generic() {
+        generic.increment();
+    }
+
+    /** Nó especializado em {@code from} que viu um tipo inesperado */
+    void fellBack(Specialization<?> from) {
+        fallbacks.computeIfAbsent(from.getName(), k -> new LongAdder()).increment();
+    }
+
+    public long specializedCount() {
+        return specialized.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    public long fallbackCount() {
+        return fallbacks.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    public String report() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Especialização: ").append(specializedCount()).append(" nós especializados, ")
+                .append(fallbackCount()).append(" voltaram ao genérico, ")
+                .append(generic.sum()).append(" genéricos desde o início\n");
+        for (Map.Entry<String, LongAdder> e : new TreeMap<>(specialized).entrySet()) {
+            sb.append(String.format("  %-22s %d%n", e.getKey(), e.getValue().sum()));
+        }
+        for (Map.Entry<String, LongAdder> e : new TreeMap<>(fallbacks).entrySet()) {
+            sb.append(String.format("  %-22s %d%n", e.getKey() + " -> genérico", e.getValue().sum()));
+        }
+        return sb.toString();
+    }
+}
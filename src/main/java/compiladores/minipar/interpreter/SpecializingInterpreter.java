@@ -0,0 +1,434 @@
+package compiladores.minipar.interpreter;
+
+import compiladores.minipar.ast.expr.BinaryOpNode;
+import compiladores.minipar.ast.expr.IndexNode;
+import compiladores.minipar.semantic.ExprType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Interpretador que reescreve os nós conforme os tipos observados: na
+ * primeira execução cada BinaryOpNode/IndexNode instala uma versão própria
+ * (soma de doubles, concatenação de listas, índice em lista...) e passa a
+ * executá-la direto, sem o switch do caminho genérico. Uma especialização
+ * que encontra um tipo inesperado volta para a versão genérica.
+ *
+ * <p>Operandos NUMBER/BOOL são garantidos pelos tipos estáticos; os demais
+ * são escolhidos pelos valores vistos e conferidos a cada execução.
+ */
+public class SpecializingInterpreter extends Interpreter {
+    private final SpecializationStats stats;
+
+    public SpecializingInterpreter() {
+        this.stats = new SpecializationStats();
+    }
+
+    private SpecializingInterpreter(SpecializingInterpreter parent) {
+        super(parent);
+        this.stats = parent.stats;
+    }
+
+    @Override
+    protected Interpreter fork() {
+        return new SpecializingInterpreter(this);
+    }
+
+    public SpecializationStats getStats() {
+        return stats;
+    }
+
+    @Override
+    public Object visit(BinaryOpNode node) {
+        return specialization(node).execute(this, node);
+    }
+
+    @Override
+    public double visitDouble(BinaryOpNode node) {
+        return specialization(node).executeDouble(this, node);
+    }
+
+    @Override
+    public boolean visitBoolean(BinaryOpNode node) {
+        return specialization(node).executeBoolean(this, node);
+    }
+
+    @Override
+    public Object visit(IndexNode node) {
+        return specialization(node).execute(this, node);
+    }
+
+    private static Specialization<BinaryOpNode> specialization(BinaryOpNode node) {
+        Specialization<BinaryOpNode> spec = node.getSpecialization();
+        return spec != null ? spec : UNINITIALIZED_BINARY;
+    }
+
+    private static Specialization<IndexNode> specialization(IndexNode node) {
+        Specialization<IndexNode> spec = node.getSpecialization();
+        return spec != null ? spec : UNINITIALIZED_INDEX;
+    }
+
+    private void install(BinaryOpNode node, Specialization<BinaryOpNode> spec) {
+        node.setSpecialization(spec);
+        count(spec);
+    }
+
+    private void install(IndexNode node, Specialization<IndexNode> spec) {
+        node.setSpecialization(spec);
+        count(spec);
+    }
+
+    private void count(Specialization<?> spec) {
+        if (spec == GENERIC_BINARY || spec == GENERIC_INDEX) {
+            stats.generic();
+        } else {
+            stats.specialized(spec);
+        }
+    }
+
+    private void fallBack(BinaryOpNode node, Specialization<BinaryOpNode> from) {
+        node.setSpecialization(GENERIC_BINARY);
+        stats.fellBack(from);
+    }
+
+    private void fallBack(IndexNode node, Specialization<IndexNode> from) {
+        node.setSpecialization(GENERIC_INDEX);
+        stats.fellBack(from);
+    }
+
+    // ---------- operadores binários ----------
+
+    /** Ainda não executado: escolhe a especialização e a instala no nó */
+    private static final Specialization<BinaryOpNode> UNINITIALIZED_BINARY = new Specialization<>("não inicializado") {
+        @Override
+        Object execute(SpecializingInterpreter rt, BinaryOpNode node) {
+            Specialization<BinaryOpNode> spec = byOperandType(node);
+            if (spec != null) {
+                rt.install(node, spec);
+                return spec.execute(rt, node);
+            }
+            Object left = rt.eval(node.getLeft());
+            Object right = rt.eval(node.getRight());
+            ValueBinary byValue = byValues(node, left, right);
+            rt.install(node, byValue);
+            return byValue.apply(rt, node, left, right);
+        }
+    };
+
+    /** Operandos NUMBER ou BOOL: o tipo estático já basta */
+    private static Specialization<BinaryOpNode> byOperandType(BinaryOpNode node) {
+        ExprType operand = node.getLeft().getExprType();
+        if (operand == ExprType.NUMBER) {
+            return switch (node.getOp()) {
+                case ADD -> ADD_DOUBLE;
+                case SUB -> SUB_DOUBLE;
+                case MUL -> MUL_DOUBLE;
+                case DIV -> DIV_DOUBLE;
+                case MOD -> MOD_DOUBLE;
+                case LT -> LT_DOUBLE;
+                case LE -> LE_DOUBLE;
+                case GT -> GT_DOUBLE;
+                case GE -> GE_DOUBLE;
+                case EQ -> EQ_DOUBLE;
+                case NE -> NE_DOUBLE;
+                default -> null;
+            };
+        }
+        if (operand == ExprType.BOOL) {
+            return switch (node.getOp()) {
+                case AND -> AND_BOOL;
+                case OR -> OR_BOOL;
+                case EQ -> EQ_BOOL;
+                case NE -> NE_BOOL;
+                default -> null;
+            };
+        }
+        return null;
+    }
+
+    /** Demais operandos: escolhe pelos valores vistos na primeira execução */
+    private static ValueBinary byValues(BinaryOpNode node, Object left, Object right) {
+        return switch (node.getOp()) {
+            case ADD -> left instanceof List && right instanceof List ? CONCAT_LIST : GENERIC_BINARY;
+            case EQ -> left instanceof String && right instanceof String ? EQ_STRING : GENERIC_BINARY;
+            case NE -> left instanceof String && right instanceof String ? NE_STRING : GENERIC_BINARY;
+            default -> GENERIC_BINARY;
+        };
+    }
+
+    private abstract static class DoubleBinary extends Specialization<BinaryOpNode> {
+        DoubleBinary(String name) {
+            super(name);
+        }
+
+        abstract double apply(double l, double r);
+
+        @Override
+        Object execute(SpecializingInterpreter rt, BinaryOpNode node) {
+            return executeDouble(rt, node);
+        }
+
+        @Override
+        double executeDouble(SpecializingInterpreter rt, BinaryOpNode node) {
+            return apply(rt.evalDouble(node.getLeft()), rt.evalDouble(node.getRight()));
+        }
+    }
+
+    private abstract static class DoubleCompare extends Specialization<BinaryOpNode> {
+        DoubleCompare(String name) {
+            super(name);
+        }
+
+        abstract boolean apply(double l, double r);
+
+        @Override
+        Object execute(SpecializingInterpreter rt, BinaryOpNode node) {
+            return executeBoolean(rt, node);
+        }
+
+        @Override
+        boolean executeBoolean(SpecializingInterpreter rt, BinaryOpNode node) {
+            return apply(rt.evalDouble(node.getLeft()), rt.evalDouble(node.getRight()));
+        }
+    }
+
+    private abstract static class BooleanBinary extends Specialization<BinaryOpNode> {
+        BooleanBinary(String name) {
+            super(name);
+        }
+
+        abstract boolean apply(boolean l, boolean r);
+
+        @Override
+        Object execute(SpecializingInterpreter rt, BinaryOpNode node) {
+            return executeBoolean(rt, node);
+        }
+
+        @Override
+        boolean executeBoolean(SpecializingInterpreter rt, BinaryOpNode node) {
+            // os dois lados são sempre avaliados, como no Interpreter
+            boolean l = rt.evalBoolean(node.getLeft());
+            boolean r = rt.evalBoolean(node.getRight());
+            return apply(l, r);
+        }
+    }
+
+    /** Especialização sobre valores já avaliados, conferida a cada execução */
+    private abstract static class ValueBinary extends Specialization<BinaryOpNode> {
+        ValueBinary(String name) {
+            super(name);
+        }
+
+        abstract Object apply(SpecializingInterpreter rt, BinaryOpNode node, Object left, Object right);
+
+        @Override
+        Object execute(SpecializingInterpreter rt, BinaryOpNode node) {
+            Object left = rt.eval(node.getLeft());
+            Object right = rt.eval(node.getRight());
+            return apply(rt, node, left, right);
+        }
+    }
+
+    private static final DoubleBinary ADD_DOUBLE = new DoubleBinary("+ number") {
+        @Override
+        double apply(double l, double r) {
+            return l + r;
+        }
+    };
+
+    private static final DoubleBinary SUB_DOUBLE = new DoubleBinary("- number") {
+        @Override
+        double apply(double l, double r) {
+            return l - r;
+        }
+    };
+
+    private static final DoubleBinary MUL_DOUBLE = new DoubleBinary("* number") {
+        @Override
+        double apply(double l, double r) {
+            return l * r;
+        }
+    };
+
+    private static final DoubleBinary DIV_DOUBLE = new DoubleBinary("/ number") {
+        @Override
+        double apply(double l, double r) {
+            return l / r;
+        }
+    };
+
+    private static final DoubleBinary MOD_DOUBLE = new DoubleBinary("% number") {
+        @Override
+        double apply(double l, double r) {
+            return l % r;
+        }
+    };
+
+    private static final DoubleCompare LT_DOUBLE = new DoubleCompare("< number") {
+        @Override
+        boolean apply(double l, double r) {
+            return l < r;
+        }
+    };
+
+    private static final DoubleCompare LE_DOUBLE = new DoubleCompare("<= number") {
+        @Override
+        boolean apply(double l, double r) {
+            return l <= r;
+        }
+    };
+
+    private static final DoubleCompare GT_DOUBLE = new DoubleCompare("> number") {
+        @Override
+        boolean apply(double l, double r) {
+            return l > r;
+        }
+    };
+
+    private static final DoubleCompare GE_DOUBLE = new DoubleCompare(">= number") {
+        @Override
+        boolean apply(double l, double r) {
+            return l >= r;
+        }
+    };
+
+    private static final DoubleCompare EQ_DOUBLE = new DoubleCompare("== number") {
+        @Override
+        boolean apply(double l, double r) {
+            return Double.compare(l, r) == 0;
+        }
+    };
+
+    private static final DoubleCompare NE_DOUBLE = new DoubleCompare("!= number") {
+        @Override
+        boolean apply(double l, double r) {
+            return Double.compare(l, r) != 0;
+        }
+    };
+
+    private static final BooleanBinary AND_BOOL = new BooleanBinary("&& bool") {
+        @Override
+        boolean apply(boolean l, boolean r) {
+            return l && r;
+        }
+    };
+
+    private static final BooleanBinary OR_BOOL = new BooleanBinary("|| bool") {
+        @Override
+        boolean apply(boolean l, boolean r) {
+            return l || r;
+        }
+    };
+
+    private static final BooleanBinary EQ_BOOL = new BooleanBinary("== bool") {
+        @Override
+        boolean apply(boolean l, boolean r) {
+            return l == r;
+        }
+    };
+
+    private static final BooleanBinary NE_BOOL = new BooleanBinary("!= bool") {
+        @Override
+        boolean apply(boolean l, boolean r) {
+            return l != r;
+        }
+    };
+
+    private static final ValueBinary CONCAT_LIST = new ValueBinary("+ array") {
+        @Override
+        Object apply(SpecializingInterpreter rt, BinaryOpNode node, Object left, Object right) {
+            if (!(left instanceof List<?> l) || !(right instanceof List<?> r)) {
+                rt.fallBack(node, this);
+                return GENERIC_BINARY.apply(rt, node, left, right);
+            }
+            return MiniParArray.concat(l, r);
+        }
+    };
+
+    private static final ValueBinary EQ_STRING = new ValueBinary("== string") {
+        @Override
+        Object apply(SpecializingInterpreter rt, BinaryOpNode node, Object left, Object right) {
+            if (!(left instanceof String l) || !(right instanceof String r)) {
+                rt.fallBack(node, this);
+                return GENERIC_BINARY.apply(rt, node, left, right);
+            }
+            return l.equals(r);
+        }
+    };
+
+    private static final ValueBinary NE_STRING = new ValueBinary("!= string") {
+        @Override
+        Object apply(SpecializingInterpreter rt, BinaryOpNode node, Object left, Object right) {
+            if (!(left instanceof String l) || !(right instanceof String r)) {
+                rt.fallBack(node, this);
+                return GENERIC_BINARY.apply(rt, node, left, right);
+            }
+            return !l.equals(r);
+        }
+    };
+
+    private static final ValueBinary GENERIC_BINARY = new ValueBinary("genérico") {
+        @Override
+        Object apply(SpecializingInterpreter rt, BinaryOpNode node, Object left, Object right) {
+            return rt.binaryValues(node, left, right);
+        }
+    };
+
+    // ---------- indexação ----------
+
+    private static final Specialization<IndexNode> UNINITIALIZED_INDEX = new Specialization<>("não inicializado") {
+        @Override
+        Object execute(SpecializingInterpreter rt, IndexNode node) {
+            Object base = rt.eval(node.getTarget());
+            int index = (int) rt.evalDouble(node.getIndex());
+            ValueIndex spec = base instanceof List ? INDEX_LIST
+                    : base instanceof String ? INDEX_STRING
+                    : GENERIC_INDEX;
+            rt.install(node, spec);
+            return spec.apply(rt, node, base, index);
+        }
+    };
+
+    private abstract static class ValueIndex extends Specialization<IndexNode> {
+        ValueIndex(String name) {
+            super(name);
+        }
+
+        abstract Object apply(SpecializingInterpreter rt, IndexNode node, Object base, int index);
+
+        @Override
+        Object execute(SpecializingInterpreter rt, IndexNode node) {
+            Object base = rt.eval(node.getTarget());
+            return apply(rt, node, base, (int) rt.evalDouble(node.getIndex()));
+        }
+    }
+
+    private static final ValueIndex INDEX_LIST = new ValueIndex("índice array") {
+        @Override
+        Object apply(SpecializingInterpreter rt, IndexNode node, Object base, int index) {
+            if (!(base instanceof List<?> list)) {
+                rt.fallBack(node, this);
+                return GENERIC_INDEX.apply(rt, node, base, index);
+            }
+            return list.get(index);
+        }
+    };
+
+    private static final ValueIndex INDEX_STRING = new ValueIndex("índice string") {
+        @Override
+        Object apply(SpecializingInterpreter rt, IndexNode node, Object base, int index) {
+            if (!(base instanceof String s)) {
+                rt.fallBack(node, this);
+                return GENERIC_INDEX.apply(rt, node, base, index);
+            }
+            return String.valueOf(s.charAt(index));
+        }
+    };
+
+    private static final ValueIndex GENERIC_INDEX = new ValueIndex("genérico") {
+        @Override
+        Object apply(SpecializingInterpreter rt, IndexNode node, Object base, int index) {
+            return rt.indexValue(base, index);
+        }
+    };
+}
@@ -0,0 +1,62 @@
+package compiladores.minipar.interpreter;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/** Array [string] sobre um String[] */
+public final class StringArray extends MiniParArray {
+    private String[] data;
+
+    public StringArray(int capacity) {
+        this.data = new String[Math.max(capacity, MIN_CAPACITY)];
+    }
+
+    private StringArray(String[] data, int size) {
+        this.data = data;
+        this.size = size;
+    }
+
+    public static StringArray filled(int n, String value) {
+        StringArray array = new StringArray(n);
+        Arrays.fill(array.data, 0, n, value);
+        array.size = n;
+        return array;
+    }
+
+    @Override
+    public Object get(int index) {
+        Objects.checkIndex(index, size);
+        return data[index];
+    }
+
+    @Override
+    public Object set(int index, Object value) {
+        Object old = get(index);
+        data[index] = string(value);
+        return old;
+    }
+
+    @Override
+    public boolean add(Object value) {
+        String s = string(value);
+        if (size == data.length) {
+            data = Arrays.copyOf(data, grow(data.length, size + 1));
+        }
+        data[size++] = s;
+        return true;
+    }
+
+    @Override
+    public StringArray copy(int extra) {
+        return new StringArray(Arrays.copyOf(data, Math.max(size + extra, MIN_CAPACITY)), size);
+    }
+
+    private static String string(Object value) {
+        if (value instanceof String s) {
+            return s;
+        } else if (value instanceof Character c) {
+            return String.valueOf(c); // s[i] no interpretador de árvore
+        }
+        throw wrongElement("string", value);
+    }
+}
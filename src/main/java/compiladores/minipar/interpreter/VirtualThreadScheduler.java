@@ -0,0 +1,46 @@
+package compiladores.minipar.interpreter;
+
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Uma thread virtual por ramo de 'par' e por conexão. Ramos bloqueados em
+ * sleep, send ou input liberam a thread portadora, então dezenas de milhares
+ * deles podem esperar ao mesmo tempo.
+ */
+class VirtualThreadScheduler extends ParScheduler {
+    // fábricas, e não builders, porque um 'par' aninhado cria threads de várias threads ao mesmo tempo
+    private static final ThreadFactory BRANCHES = Thread.ofVirtual().name("par-", 0).factory();
+    private static final ThreadFactory HANDLERS = Thread.ofVirtual().name("s_channel-", 0).factory();
+
+    @Override
+    public void runAll(List<Runnable> branches) {
+        Thread[] threads = new Thread[branches.size()];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = BRANCHES.newThread(branches.get(i));
+            threads[i].start();
+        }
+        try {
+            for (Thread t : threads) {
+                t.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public Future<?> spawn(Runnable call) {
+        FutureTask<?> task = new FutureTask<>(call, null);
+        BRANCHES.newThread(task).start();
+        return task;
+    }
+
+    @Override
+    public void startHandler(Runnable handler) {
+        HANDLERS.newThread(handler).start();
+    }
+}
@@ -0,0 +1,247 @@
+package compiladores.minipar.jit;
+
+import java.util.Arrays;
+
+/**
+ * Corpo de um método JVM em construção: instruções, rótulos de salto e o
+ * cálculo de max_stack/max_locals. Os saltos usam deslocamentos de 16 bits;
+ * métodos maiores que isso não são compilados.
+ */
+final class Code {
+    static final int ACONST_NULL = 0x01;
+    static final int ICONST_0 = 0x03;
+    static final int ICONST_1 = 0x04;
+    static final int DCONST_0 = 0x0e;
+    static final int DCONST_1 = 0x0f;
+    static final int BIPUSH = 0x10;
+    static final int SIPUSH = 0x11;
+    static final int LDC_W = 0x13;
+    static final int LDC2_W = 0x14;
+    static final int ILOAD = 0x15;
+    static final int DLOAD = 0x18;
+    static final int ALOAD = 0x19;
+    static final int DALOAD = 0x31;
+    static final int AALOAD = 0x32;
+    static final int ISTORE = 0x36;
+    static final int DSTORE = 0x39;
+    static final int ASTORE = 0x3a;
+    static final int DASTORE = 0x52;
+    static final int AASTORE = 0x53;
+    static final int POP = 0x57;
+    static final int POP2 = 0x58;
+    static final int DUP = 0x59;
+    static final int DADD = 0x63;
+    static final int DSUB = 0x67;
+    static final int DMUL = 0x6b;
+    static final int DDIV = 0x6f;
+    static final int DREM = 0x73;
+    static final int DNEG = 0x77;
+    static final int IAND = 0x7e;
+    static final int IOR = 0x80;
+    static final int IXOR = 0x82;
+    static final int DCMPL = 0x97;
+    static final int DCMPG = 0x98;
+    static final int IFEQ = 0x99;
+    static final int IFNE = 0x9a;
+    static final int IFLT = 0x9b;
+    static final int IFGE = 0x9c;
+    static final int IFGT = 0x9d;
+    static final int IFLE = 0x9e;
+    static final int IF_ICMPEQ = 0x9f;
+    static final int IF_ICMPNE = 0xa0;
+    static final int GOTO = 0xa7;
+    static final int DRETURN = 0xaf;
+    static final int ARETURN = 0xb0;
+    static final int RETURN = 0xb1;
+    static final int GETSTATIC = 0xb2;
+    static final int GETFIELD = 0xb4;
+    static final int INVOKEVIRTUAL = 0xb6;
+    static final int INVOKESTATIC = 0xb8;
+    static final int INVOKEINTERFACE = 0xb9;
+    static final int ATHROW = 0xbf;
+    static final int CHECKCAST = 0xc0;
+    private static final int WIDE = 0xc4;
+
+    private byte[] bytes = new byte[128];
+    private int size;
+    private int stack;
+    private int maxStack;
+    private int maxLocals;
+
+    // rótulos: posição marcada e profundidade da pilha ao chegar nele
+    private int[] labelPos = new int[16];
+    private int[] labelStack = new int[16];
+    private int labelCount;
+    // saltos pendentes: posição da instrução e rótulo de destino
+    private int[] jumpAt = new int[16];
+    private int[] jumpTo = new int[16];
+    private int jumpCount;
+    // false depois de goto/return/athrow, até o próximo rótulo
+    private boolean reachable = true;
+
+    Code(int argumentSlots) {
+        this.maxLocals = argumentSlots;
+    }
+
+    int getMaxStack() {
+        return maxStack;
+    }
+
+    int getMaxLocals() {
+        return maxLocals;
+    }
+
+    /** Reserva um local (2 slots para double) e retorna seu índice */
+    int newLocal(int width) {
+        int index = maxLocals;
+        maxLocals += width;
+        return index;
+    }
+
+    boolean isReachable() {
+        return reachable;
+    }
+
+    /** Posição atual, para desfazer uma tentativa de compilação com {@link #reset} */
+    int[] snapshot() {
+        return new int[] {size, labelCount, jumpCount, stack};
+    }
+
+    void reset(int[] snapshot) {
+        size = snapshot[0];
+        labelCount = snapshot[1];
+        jumpCount = snapshot[2];
+        stack = snapshot[3];
+        reachable = true;
+    }
+
+    /** Instrução sem operandos; {@code delta} é o efeito na pilha em slots */
+    void op(int opcode, int delta) {
+        u1(opcode);
+        adjust(delta);
+        if (opcode == GOTO || opcode == ATHROW || (opcode >= 0xac && opcode <= RETURN)) {
+            reachable = false;
+        }
+    }
+
+    /** Instrução com operando de 16 bits (índice no pool de constantes) */
+    void op2(int opcode, int operand, int delta) {
+        u1(opcode);
+        u2(operand);
+        adjust(delta);
+    }
+
+    void invokeInterface(int methodRef, int argSlots, int delta) {
+        u1(INVOKEINTERFACE);
+        u2(methodRef);
+        u1(argSlots + 1);
+        u1(0);
+        adjust(delta);
+    }
+
+    void local(int opcode, int index) {
+        if (index > 0xFF) {
+            u1(WIDE);
+            u1(opcode);
+            u2(index);
+        } else {
+            u1(opcode);
+            u1(index);
+        }
+        adjust(switch (opcode) {
+            case ILOAD, ALOAD -> 1;
+            case DLOAD -> 2;
+            case ISTORE, ASTORE -> -1;
+            case DSTORE -> -2;
+            default -> throw new IllegalArgumentException("não é load/store: " + opcode);
+        });
+    }
+
+    void iconst(int value) {
+        if (value >= -1 && value <= 5) {
+            op(ICONST_0 + value, 1);
+        } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            u1(BIPUSH);
+            u1(value);
+            adjust(1);
+        } else {
+            u1(SIPUSH);
+            u2(value);
+            adjust(1);
+        }
+    }
+
+    int newLabel() {
+        if (labelCount == labelPos.length) {
+            labelPos = Arrays.copyOf(labelPos, labelCount * 2);
+            labelStack = Arrays.copyOf(labelStack, labelCount * 2);
+        }
+        labelPos[labelCount] = -1;
+        labelStack[labelCount] = -1;
+        return labelCount++;
+    }
+
+    void mark(int label) {
+        labelPos[label] = size;
+        if (labelStack[label] >= 0) {
+            stack = labelStack[label];
+        }
+        labelStack[label] = stack;
+        reachable = true;
+    }
+
+    /** Salto condicional ou goto; {@code delta} é o que o teste consome da pilha */
+    void jump(int opcode, int label, int delta) {
+        if (jumpCount == jumpAt.length) {
+            jumpAt = Arrays.copyOf(jumpAt, jumpCount * 2);
+            jumpTo = Arrays.copyOf(jumpTo, jumpCount * 2);
+        }
+        jumpAt[jumpCount] = size;
+        jumpTo[jumpCount] = label;
+        jumpCount++;
+        u1(opcode);
+        u2(0);
+        adjust(delta);
+        labelStack[label] = stack;
+        if (opcode == GOTO) {
+            reachable = false;
+        }
+    }
+
+    byte[] toBytes() {
+        for (int i = 0; i < jumpCount; i++) {
+            int at = jumpAt[i];
+            int target = labelPos[jumpTo[i]];
+            if (target < 0) {
+                throw new IllegalStateException("rótulo não marcado");
+            }
+            int offset = target - at;
+            if (offset < Short.MIN_VALUE || offset > Short.MAX_VALUE) {
+                throw new NotCompilableException("método grande demais");
+            }
+            bytes[at + 1] = (byte) (offset >> 8);
+            bytes[at + 2] = (byte) offset;
+        }
+        if (size > 0xFFFF) {
+            throw new NotCompilableException("método grande demais");
+        }
+        return Arrays.copyOf(bytes, size);
+    }
+
+    private void adjust(int delta) {
+        stack += delta;
+        maxStack = Math.max(maxStack, stack);
+    }
+
+    private void u1(int value) {
+        if (size == bytes.length) {
+            bytes = Arrays.copyOf(bytes, size * 2);
+        }
+        bytes[size++] = (byte) value;
+    }
+
+    private void u2(int value) {
+        u1(value >> 8);
+        u1(value);
+    }
+}
@@ -0,0 +1,34 @@
+package compiladores.minipar.jit;
+
+import compiladores.minipar.interpreter.Frame;
+import compiladores.minipar.interpreter.Interpreter;
+
+import java.lang.invoke.MethodHandle;
+
+/**
+ * Função MiniPar compilada para uma classe oculta da JVM. O ponto de entrada
+ * lê os parâmetros do quadro preparado pelo interpretador.
+ */
+public final class CompiledFunction {
+    private final String name;
+    private final MethodHandle entry;
+
+    CompiledFunction(String name, MethodHandle entry) {
+        this.name = name;
+        this.entry = entry;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public double invoke(Interpreter rt, Frame frame) {
+        try {
+            return (double) entry.invokeExact(rt, frame);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new RuntimeException(t);
+        }
+    }
+}
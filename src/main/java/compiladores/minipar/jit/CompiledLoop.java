@@ -0,0 +1,28 @@
+package compiladores.minipar.jit;
+
+import compiladores.minipar.interpreter.Frame;
+import compiladores.minipar.interpreter.Interpreter;
+
+import java.lang.invoke.MethodHandle;
+
+/**
+ * Laço while/for compilado no meio da execução (OSR). Continua a partir do
+ * teste da condição, lendo e gravando as variáveis no próprio quadro.
+ */
+public final class CompiledLoop {
+    private final MethodHandle entry;
+
+    CompiledLoop(MethodHandle entry) {
+        this.entry = entry;
+    }
+
+    public void run(Interpreter rt, Frame frame) {
+        try {
+            entry.invokeExact(rt, frame);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new RuntimeException(t);
+        }
+    }
+}
@@ -0,0 +1,778 @@
+package compiladores.minipar.jit;
+
+import compiladores.minipar.ast.expr.*;
+import compiladores.minipar.ast.stmt.*;
+import compiladores.minipar.semantic.ExprType;
+import compiladores.minipar.utils.Pair;
+
+import java.util.*;
+
+import static compiladores.minipar.jit.Code.*;
+
+/**
+ * Compila uma função MiniPar NUMBER (e as funções NUMBER que ela chama) para
+ * uma classe da JVM com um método estático por função. As variáveis da própria
+ * função viram locais da JVM; as de funções externas e globais continuam nos
+ * quadros do interpretador, alcançados pelo elo estático.
+ *
+ * <p>Qualquer construção fora do subconjunto suportado lança
+ * {@link NotCompilableException} e a função fica no interpretador.
+ *
+ * <p>Também compila laços quentes já em execução (OSR): o laço roda direto
+ * sobre o quadro do interpretador, então as variáveis vivas continuam onde
+ * estavam, e o que não é suportado é delegado ao interpretador em vez de
+ * impedir a compilação.
+ */
+final class FunctionCompiler {
+    static final String CLASS_NAME = "compiladores/minipar/jit/MiniParCode";
+
+    private static final String RT = "compiladores/minipar/interpreter/Interpreter";
+    private static final String FRAME = "compiladores/minipar/interpreter/Frame";
+    private static final String FUNC = "compiladores/minipar/ast/stmt/FuncDefNode";
+    private static final String RUNTIME = "compiladores/minipar/jit/JitRuntime";
+    private static final String RT_DESC = "L" + RT + ";";
+    private static final String FRAME_DESC = "L" + FRAME + ";";
+    private static final String FUNC_DESC = "L" + FUNC + ";";
+    private static final String OBJECT_DESC = "Ljava/lang/Object;";
+
+    private final ClassFile cf = new ClassFile(CLASS_NAME);
+    // objetos usados pelo código gerado, lidos do campo estático K
+    private final List<Object> constants = new ArrayList<>();
+    // funções compiladas nesta unidade, chamadas entre si com invokestatic
+    private final Map<FuncDefNode, Method> unit = new LinkedHashMap<>();
+    private final Set<FuncDefNode> rejected = new HashSet<>();
+
+    /** Número de funções da unidade; válido depois de {@link #compile} */
+    int functionCount() {
+        return unit.size();
+    }
+
+    Object[] constants() {
+        return constants.toArray();
+    }
+
+    byte[] compile(FuncDefNode root) {
+        Method main = add(root);
+
+        cf.addField(ClassFile.ACC_PUBLIC | ClassFile.ACC_STATIC, "K", "[" + OBJECT_DESC);
+        for (Method m : unit.values()) {
+            cf.addMethod(ClassFile.ACC_PUBLIC | ClassFile.ACC_STATIC, m.name, m.descriptor, m.code);
+        }
+
+        // run(rt, quadro): lê os parâmetros do quadro preparado pelo interpretador
+        Code entry = new Code(2);
+        entry.local(ALOAD, 0);
+        entry.local(ALOAD, 1);
+        entry.op2(GETFIELD, cf.fieldRef(FRAME, "parent", FRAME_DESC), 0);
+        int[] paramSlots = root.getParamSlots();
+        for (int i = 0; i < main.paramTypes.length; i++) {
+            entry.local(ALOAD, 1);
+            loadFrameSlot(entry, main.paramTypes[i], paramSlots[i]);
+        }
+        entry.op2(INVOKESTATIC, cf.methodRef(CLASS_NAME, main.name, main.descriptor),
+                2 - 2 - main.argumentWidth());
+        entry.op(DRETURN, -2);
+        cf.addMethod(ClassFile.ACC_PUBLIC | ClassFile.ACC_STATIC, "run",
+                "(" + RT_DESC + FRAME_DESC + ")D", entry);
+        return cf.toBytes();
+    }
+
+    /**
+     * Compila o restante de um while/for que roda num quadro de nível
+     * {@code level}: o método run(rt, quadro) testa a condição e segue até o fim.
+     */
+    byte[] compileLoop(StmtNode loop, int level) {
+        Method m = new Method(level);
+        switch (loop) {
+            case WhileNode node -> m.compileLoop(node.getCond(), node.getBody(), null);
+            case ForNode node when node.isParallel() -> throw new NotCompilableException("'par for'");
+            case ForNode node -> m.compileLoop(node.getCondition(), node.getBody(), node.getUpdate());
+            default -> throw new IllegalArgumentException("não é laço: " + loop);
+        }
+        if (m.code.isReachable()) {
+            m.code.op(RETURN, 0);
+        }
+        cf.addField(ClassFile.ACC_PUBLIC | ClassFile.ACC_STATIC, "K", "[" + OBJECT_DESC);
+        for (Method f : unit.values()) {
+            cf.addMethod(ClassFile.ACC_PUBLIC | ClassFile.ACC_STATIC, f.name, f.descriptor, f.code);
+        }
+        cf.addMethod(ClassFile.ACC_PUBLIC | ClassFile.ACC_STATIC, "run", m.descriptor, m.code);
+        return cf.toBytes();
+    }
+
+    /** Compila {@code fn} na unidade; em caso de falha desfaz o que foi acrescentado */
+    private Method add(FuncDefNode fn) {
+        if (!fn.getReturnType().strip().equals("number")) {
+            throw new NotCompilableException("retorno não é number");
+        }
+        Set<FuncDefNode> before = new HashSet<>(unit.keySet());
+        Method m = new Method(fn);
+        unit.put(fn, m);
+        try {
+            m.compileBody();
+        } catch (NotCompilableException e) {
+            unit.keySet().retainAll(before);
+            throw e;
+        }
+        return m;
+    }
+
+    /** Método da unidade para chamar {@code fn} direto; null se ela fica no interpretador */
+    private Method callable(FuncDefNode fn) {
+        Method m = unit.get(fn);
+        if (m != null || rejected.contains(fn)) {
+            return m;
+        }
+        try {
+            return add(fn);
+        } catch (NotCompilableException e) {
+            rejected.add(fn);
+            return null;
+        }
+    }
+
+    private int constant(Object value) {
+        for (int i = 0; i < constants.size(); i++) {
+            if (constants.get(i) == value) {
+                return i;
+            }
+        }
+        constants.add(value);
+        return constants.size() - 1;
+    }
+
+    /** Empilha o valor do slot {@code slot} do quadro no topo da pilha */
+    private void loadFrameSlot(Code code, ExprType type, int slot) {
+        if (type == ExprType.NUMBER) {
+            code.op2(GETFIELD, cf.fieldRef(FRAME, "numbers", "[D"), 0);
+            pushInt(code, slot);
+            code.op(DALOAD, 0);
+        } else {
+            code.op2(GETFIELD, cf.fieldRef(FRAME, "slots", "[" + OBJECT_DESC), 0);
+            pushInt(code, slot);
+            code.op(AALOAD, -1);
+            if (type == ExprType.BOOL) {
+                unboxBoolean(code);
+            }
+        }
+    }
+
+    private void unboxBoolean(Code code) {
+        code.op2(CHECKCAST, cf.classRef("java/lang/Boolean"), 0);
+        code.op2(INVOKEVIRTUAL, cf.methodRef("java/lang/Boolean", "booleanValue", "()Z"), 0);
+    }
+
+    private void boxBoolean(Code code) {
+        code.op2(INVOKESTATIC, cf.methodRef("java/lang/Boolean", "valueOf", "(Z)Ljava/lang/Boolean;"), 0);
+    }
+
+    private void pushInt(Code code, int value) {
+        if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            code.iconst(value);
+        } else {
+            code.op2(LDC_W, cf.integer(value), 1);
+        }
+    }
+
+    private static String descriptor(ExprType type) {
+        return switch (type) {
+            case NUMBER -> "D";
+            case BOOL -> "Z";
+            default -> OBJECT_DESC;
+        };
+    }
+
+    private static int width(ExprType type) {
+        return type == ExprType.NUMBER ? 2 : 1;
+    }
+
+    /**
+     * Uma função da unidade, método estático (rt, elo estático, parâmetros...),
+     * ou um laço OSR, método estático (rt, quadro do laço).
+     */
+    private final class Method {
+        // null em laço OSR: as variáveis ficam no quadro e o não suportado é delegado
+        final FuncDefNode fn;
+        // nível do quadro em que o código roda
+        final int level;
+        final String name;
+        final String descriptor;
+        final ExprType[] paramTypes;
+        final Code code;
+        // slot do quadro da função -> local da JVM
+        private final Map<Integer, Integer> numberLocals = new HashMap<>();
+        private final Map<Integer, Integer> objectLocals = new HashMap<>();
+        // rótulos {continue, break} dos laços abertos, o mais interno no topo
+        private final Deque<int[]> loops = new ArrayDeque<>();
+
+        Method(FuncDefNode fn) {
+            this.fn = fn;
+            this.level = fn.getLevel();
+            this.name = "f" + fn.getIndex();
+            List<Pair<String, ExprNode>> params = new ArrayList<>(fn.getParams().values());
+            paramTypes = new ExprType[params.size()];
+            StringBuilder desc = new StringBuilder("(" + RT_DESC + FRAME_DESC);
+            int width = 2;
+            for (int i = 0; i < paramTypes.length; i++) {
+                paramTypes[i] = ExprType.fromString(params.get(i).getFirst());
+                desc.append(FunctionCompiler.descriptor(paramTypes[i]));
+                width += width(paramTypes[i]);
+            }
+            this.descriptor = desc.append(")D").toString();
+            this.code = new Code(width);
+
+            int local = 2;
+            int[] paramSlots = fn.getParamSlots();
+            for (int i = 0; i < paramTypes.length; i++) {
+                (paramTypes[i] == ExprType.NUMBER ? numberLocals : objectLocals).put(paramSlots[i], local);
+                local += width(paramTypes[i]);
+            }
+        }
+
+        Method(int level) {
+            this.fn = null;
+            this.level = level;
+            this.name = "run";
+            this.paramTypes = new ExprType[0];
+            this.descriptor = "(" + RT_DESC + FRAME_DESC + ")V";
+            this.code = new Code(2);
+        }
+
+        int argumentWidth() {
+            int width = 0;
+            for (ExprType type : paramTypes) {
+                width += width(type);
+            }
+            return width;
+        }
+
+        void compileBody() {
+            poll();
+            compileBlock(fn.getBody());
+            if (code.isReachable()) {
+                throw new NotCompilableException("pode terminar sem return");
+            }
+        }
+
+        // ---------- statements ----------
+
+        private void compileBlock(BlockNode block) {
+            for (StmtNode stmt : block.getStmts()) {
+                if (!code.isReachable()) {
+                    return; // código depois de return nunca executa
+                }
+                compileStmt(stmt);
+            }
+        }
+
+        private void compileStmt(StmtNode stmt) {
+            if (fn != null) {
+                compileStmtStrict(stmt);
+                return;
+            }
+            int[] snapshot = code.snapshot();
+            try {
+                compileStmtStrict(stmt);
+            } catch (NotCompilableException e) {
+                if (hasFreeJump(stmt)) {
+                    throw e; // o interpretador não tem como saltar para um laço compilado
+                }
+                code.reset(snapshot);
+                code.local(ALOAD, 0);
+                pushConstant(stmt, "compiladores/minipar/ast/stmt/StmtNode");
+                code.op2(INVOKEVIRTUAL, cf.methodRef(RT, "execute",
+                        "(Lcompiladores/minipar/ast/stmt/StmtNode;)V"), -2);
+                if (hasReturn(stmt)) {
+                    // return executado pelo interpretador: sai do laço e deixa o valor com ele
+                    int next = code.newLabel();
+                    code.local(ALOAD, 0);
+                    code.op2(INVOKEVIRTUAL, cf.methodRef(RT, "isReturning", "()Z"), 0);
+                    code.jump(IFEQ, next, -1);
+                    code.op(RETURN, 0);
+                    code.mark(next);
+                }
+            }
+        }
+
+        private void compileStmtStrict(StmtNode stmt) {
+            switch (stmt) {
+                case DeclarationNode node -> {
+                    ExprType type = node.getInit().getExprType();
+                    compileExpr(node.getInit());
+                    storeLocal(type, node.getSlot());
+                }
+                case AssignmentNode node -> compileAssignment(node);
+                case ExpressionStmt node -> {
+                    compileExpr(node.getExpr());
+                    ExprType type = node.getExpr().getExprType();
+                    code.op(type == ExprType.NUMBER ? POP2 : POP, -width(type));
+                }
+                case ReturnNode node -> {
+                    if (fn == null) {
+                        throw new NotCompilableException("return no laço");
+                    }
+                    compileExpr(node.getExpr());
+                    code.op(DRETURN, -2);
+                }
+                case IfNode node -> compileIf(node);
+                case WhileNode node -> compileLoop(node.getCond(), node.getBody(), null);
+                case ForNode node when node.isParallel() ->
+                        // as iterações ficam com o interpretador, que as divide entre as threads
+                        throw new NotCompilableException("Linha " + node.getLine() + ": 'par for'");
+                case ForNode node -> {
+                    compileStmt(node.getInit());
+                    compileLoop(node.getCondition(), node.getBody(), node.getUpdate());
+                }
+                case BlockNode node -> compileBlock(node);
+                case BreakNode node -> code.jump(GOTO, loops.peek()[1], 0);
+                case ContinueNode node -> code.jump(GOTO, loops.peek()[0], 0);
+                default -> throw new NotCompilableException(
+                        "Linha " + stmt.getLine() + ": " + stmt.getClass().getSimpleName());
+            }
+        }
+
+        private void compileIf(IfNode node) {
+            int toElse = code.newLabel();
+            compileExpr(node.getCond());
+            code.jump(IFEQ, toElse, -1);
+            compileBlock(node.getThenBranch());
+            if (node.getElseBranch() == null) {
+                code.mark(toElse);
+                return;
+            }
+            boolean thenFalls = code.isReachable();
+            int toEnd = code.newLabel();
+            if (thenFalls) {
+                code.jump(GOTO, toEnd, 0);
+            }
+            code.mark(toElse);
+            compileBlock(node.getElseBranch());
+            if (thenFalls) {
+                code.mark(toEnd);
+            }
+        }
+
+        void compileLoop(ExprNode cond, BlockNode body, StmtNode update) {
+            int top = code.newLabel();
+            int next = code.newLabel();
+            int exit = code.newLabel();
+            code.mark(top);
+            compileExpr(cond);
+            code.jump(IFEQ, exit, -1);
+            loops.push(new int[] {next, exit});
+            try {
+                compileBlock(body);
+            } finally {
+                loops.pop();
+            }
+            code.mark(next);
+            if (update != null) {
+                compileStmt(update);
+            }
+            poll();
+            code.jump(GOTO, top, 0);
+            code.mark(exit);
+        }
+
+        /** Ponto de cancelamento de 'par', como no interpretador */
+        private void poll() {
+            code.local(ALOAD, 0);
+            code.op2(INVOKEVIRTUAL, cf.methodRef(RT, "poll", "()V"), -1);
+        }
+
+        private void compileAssignment(AssignmentNode node) {
+            if (node.isAppendInPlace()) {
+                // a = a + x fica com o interpretador, que anexa sem copiar
+                throw new NotCompilableException("Linha " + node.getLine() + ": anexação no lugar");
+            }
+            if (node.getTarget() instanceof IdentifierNode id) {
+                ExprType type = id.getExprType();
+                if (id.getDepth() == 0 && fn != null) {
+                    compileExpr(node.getValue());
+                    storeLocal(type, id.getSlot());
+                    return;
+                }
+                pushFrame(level - id.getDepth());
+                if (id.isConcurrent()) {
+                    // variável dos ramos de 'par': escrita volátil, como no interpretador
+                    pushInt(code, id.getSlot());
+                    compileExpr(node.getValue());
+                    if (type == ExprType.NUMBER) {
+                        code.op2(INVOKEVIRTUAL, cf.methodRef(FRAME, "setNumberVolatile", "(ID)V"), -4);
+                    } else {
+                        if (type == ExprType.BOOL) {
+                            boxBoolean(code);
+                        }
+                        code.op2(INVOKEVIRTUAL, cf.methodRef(FRAME, "setSlotVolatile",
+                                "(I" + OBJECT_DESC + ")V"), -3);
+                    }
+                } else if (type == ExprType.NUMBER) {
+                    code.op2(GETFIELD, cf.fieldRef(FRAME, "numbers", "[D"), 0);
+                    pushInt(code, id.getSlot());
+                    compileExpr(node.getValue());
+                    code.op(DASTORE, -4);
+                } else {
+                    code.op2(GETFIELD, cf.fieldRef(FRAME, "slots", "[" + OBJECT_DESC), 0);
+                    pushInt(code, id.getSlot());
+                    compileExpr(node.getValue());
+                    if (type == ExprType.BOOL) {
+                        boxBoolean(code);
+                    }
+                    code.op(AASTORE, -3);
+                }
+                return;
+            }
+
+            IndexNode target = (IndexNode) node.getTarget();
+            ExprType arrayType = target.getTarget().getExprType();
+            String helper;
+            String valueDesc;
+            int valueWidth;
+            if (arrayType == ExprType.ARRAY_NUMBER && node.getValue().getExprType() == ExprType.NUMBER) {
+                helper = "storeNumber";
+                valueDesc = "D";
+                valueWidth = 2;
+            } else if (arrayType == ExprType.ARRAY_BOOL && node.getValue().getExprType() == ExprType.BOOL) {
+                helper = "storeBool";
+                valueDesc = "Z";
+                valueWidth = 1;
+            } else {
+                throw new NotCompilableException("Linha " + node.getLine() + ": atribuição a " + arrayType);
+            }
+            // o valor é avaliado antes do array e do índice, como no interpretador
+            compileExpr(node.getValue());
+            int tmp = code.newLocal(valueWidth);
+            code.local(valueWidth == 2 ? DSTORE : ISTORE, tmp);
+            compileExpr(target.getTarget());
+            compileExpr(target.getIndex());
+            code.local(valueWidth == 2 ? DLOAD : ILOAD, tmp);
+            pushInt(code, node.getLine());
+            code.op2(INVOKESTATIC, cf.methodRef(RUNTIME, helper, "(" + OBJECT_DESC + "D" + valueDesc + "I)V"),
+                    -(1 + 2 + valueWidth + 1));
+        }
+
+        /** Declaração: local da JVM na função, slot do quadro no laço OSR */
+        private void storeLocal(ExprType type, int slot) {
+            if (fn == null) {
+                storeFrameSlot(type, slot);
+                return;
+            }
+            Map<Integer, Integer> locals = type == ExprType.NUMBER ? numberLocals : objectLocals;
+            Integer local = locals.get(slot);
+            if (local == null) {
+                local = code.newLocal(width(type));
+                locals.put(slot, local);
+            }
+            code.local(switch (type) {
+                case NUMBER -> DSTORE;
+                case BOOL -> ISTORE;
+                default -> ASTORE;
+            }, local);
+        }
+
+        /** Grava o valor do topo da pilha no slot do quadro do laço */
+        private void storeFrameSlot(ExprType type, int slot) {
+            int tmp = code.newLocal(width(type));
+            code.local(switch (type) {
+                case NUMBER -> DSTORE;
+                case BOOL -> ISTORE;
+                default -> ASTORE;
+            }, tmp);
+            code.local(ALOAD, 1);
+            if (type == ExprType.NUMBER) {
+                code.op2(GETFIELD, cf.fieldRef(FRAME, "numbers", "[D"), 0);
+                pushInt(code, slot);
+                code.local(DLOAD, tmp);
+                code.op(DASTORE, -4);
+            } else {
+                code.op2(GETFIELD, cf.fieldRef(FRAME, "slots", "[" + OBJECT_DESC), 0);
+                pushInt(code, slot);
+                code.local(type == ExprType.BOOL ? ILOAD : ALOAD, tmp);
+                if (type == ExprType.BOOL) {
+                    boxBoolean(code);
+                }
+                code.op(AASTORE, -3);
+            }
+        }
+
+        /**
+         * Empilha o quadro de nível {@code frameLevel}, subindo a partir do local 1:
+         * o elo estático numa função, o próprio quadro num laço OSR.
+         */
+        private void pushFrame(int frameLevel) {
+            int baseLevel = fn != null ? level - 1 : level;
+            if (frameLevel > baseLevel) {
+                throw new NotCompilableException("quadro inacessível");
+            }
+            code.local(ALOAD, 1);
+            for (int l = baseLevel; l > frameLevel; l--) {
+                code.op2(GETFIELD, cf.fieldRef(FRAME, "parent", FRAME_DESC), 0);
+            }
+        }
+
+        // ---------- expressões ----------
+
+        private void compileExpr(ExprNode expr) {
+            if (fn != null) {
+                compileExprStrict(expr);
+                return;
+            }
+            int[] snapshot = code.snapshot();
+            try {
+                compileExprStrict(expr);
+            } catch (NotCompilableException e) {
+                code.reset(snapshot);
+                code.local(ALOAD, 0);
+                pushConstant(expr, "compiladores/minipar/ast/expr/ExprNode");
+                String node = "(Lcompiladores/minipar/ast/expr/ExprNode;)";
+                switch (expr.getExprType()) {
+                    case NUMBER -> code.op2(INVOKEVIRTUAL, cf.methodRef(RT, "evalDouble", node + "D"), 0);
+                    case BOOL -> code.op2(INVOKEVIRTUAL, cf.methodRef(RT, "evalBoolean", node + "Z"), -1);
+                    default -> code.op2(INVOKEVIRTUAL, cf.methodRef(RT, "eval", node + OBJECT_DESC), -1);
+                }
+            }
+        }
+
+        private void compileExprStrict(ExprNode expr) {
+            switch (expr) {
+                case LiteralNode node -> compileLiteral(node.getValue());
+                case IdentifierNode node -> {
+                    if (node.getFunction() != null) {
+                        throw new NotCompilableException("Linha " + node.getLine() + ": função como valor");
+                    }
+                    if (node.getLoopCopies() > 0) {
+                        throw new NotCompilableException("Linha " + node.getLine() + ": variável atômica de 'par for'");
+                    }
+                    ExprType type = node.getExprType();
+                    if (node.getDepth() == 0 && fn != null) {
+                        Integer local = (type == ExprType.NUMBER ? numberLocals : objectLocals).get(node.getSlot());
+                        if (local == null) {
+                            throw new NotCompilableException("variável sem local: " + node.getName());
+                        }
+                        code.local(switch (type) {
+                            case NUMBER -> DLOAD;
+                            case BOOL -> ILOAD;
+                            default -> ALOAD;
+                        }, local);
+                    } else if (node.isConcurrent()) {
+                        pushFrame(level - node.getDepth());
+                        pushInt(code, node.getSlot());
+                        if (type == ExprType.NUMBER) {
+                            code.op2(INVOKEVIRTUAL, cf.methodRef(FRAME, "numberVolatile", "(I)D"), 0);
+                        } else {
+                            code.op2(INVOKEVIRTUAL, cf.methodRef(FRAME, "slotVolatile", "(I)" + OBJECT_DESC), -1);
+                            if (type == ExprType.BOOL) {
+                                unboxBoolean(code);
+                            }
+                        }
+                    } else {
+                        pushFrame(level - node.getDepth());
+                        loadFrameSlot(code, type, node.getSlot());
+                    }
+                }
+                case BinaryOpNode node -> compileBinary(node);
+                case UnaryOpNode node -> {
+                    compileExpr(node.getExpr());
+                    if (node.getOp() == UnaryOp.NEG) {
+                        code.op(DNEG, 0);
+                    } else {
+                        code.iconst(1);
+                        code.op(IXOR, -1);
+                    }
+                }
+                case IndexNode node -> {
+                    ExprType type = node.getExprType();
+                    if (type != ExprType.NUMBER && type != ExprType.BOOL
+                            || node.getTarget().getExprType() == ExprType.STRING) {
+                        throw new NotCompilableException("Linha " + node.getLine() + ": indexação de " + type);
+                    }
+                    compileExpr(node.getTarget());
+                    compileExpr(node.getIndex());
+                    if (type == ExprType.NUMBER) {
+                        code.op2(INVOKESTATIC, cf.methodRef(RUNTIME, "indexNumber", "(" + OBJECT_DESC + "D)D"), -1);
+                    } else {
+                        code.op2(INVOKESTATIC, cf.methodRef(RUNTIME, "indexBool", "(" + OBJECT_DESC + "D)Z"), -2);
+                    }
+                }
+                case CallNode node -> compileCall(node);
+                default -> throw new NotCompilableException(
+                        "Linha " + expr.getLine() + ": " + expr.getClass().getSimpleName());
+            }
+        }
+
+        private void compileLiteral(Object value) {
+            if (value instanceof Number n) {
+                double d = n.doubleValue();
+                if (Double.doubleToRawLongBits(d) == 0L) {
+                    code.op(DCONST_0, 2);
+                } else if (d == 1.0) {
+                    code.op(DCONST_1, 2);
+                } else {
+                    code.op2(LDC2_W, cf.doubleConstant(d), 2);
+                }
+            } else if (value instanceof Boolean b) {
+                code.iconst(b ? 1 : 0);
+            } else if (value instanceof String s) {
+                code.op2(LDC_W, cf.string(s), 1);
+            } else {
+                throw new NotCompilableException("literal " + value);
+            }
+        }
+
+        private void compileBinary(BinaryOpNode node) {
+            ExprType type = node.getExprType();
+            ExprType operand = node.getLeft().getExprType();
+            if (type == ExprType.NUMBER) {
+                compileExpr(node.getLeft());
+                compileExpr(node.getRight());
+                code.op(switch (node.getOp()) {
+                    case ADD -> DADD;
+                    case SUB -> DSUB;
+                    case MUL -> DMUL;
+                    case DIV -> DDIV;
+                    case MOD -> DREM;
+                    default -> throw new NotCompilableException("operador " + node.getOp());
+                }, -2);
+                return;
+            }
+            if (type != ExprType.BOOL) {
+                throw new NotCompilableException("Linha " + node.getLine() + ": operação sobre " + type);
+            }
+            // && e || avaliam os dois lados, como no interpretador
+            compileExpr(node.getLeft());
+            compileExpr(node.getRight());
+            switch (node.getOp()) {
+                case AND -> code.op(IAND, -1);
+                case OR -> code.op(IOR, -1);
+                case LT -> compare(DCMPG, IFLT);
+                case LE -> compare(DCMPG, IFLE);
+                case GT -> compare(DCMPL, IFGT);
+                case GE -> compare(DCMPL, IFGE);
+                case EQ, NE -> {
+                    boolean eq = node.getOp() == BinaryOp.EQ;
+                    if (operand == ExprType.NUMBER) {
+                        // Double.compare: mesma igualdade de Double.equals usada pelo interpretador
+                        code.op2(INVOKESTATIC, cf.methodRef("java/lang/Double", "compare", "(DD)I"), -3);
+                        booleanFromJump(eq ? IFEQ : IFNE, -1);
+                    } else if (operand == ExprType.BOOL) {
+                        booleanFromJump(eq ? IF_ICMPEQ : IF_ICMPNE, -2);
+                    } else {
+                        code.op2(INVOKESTATIC, cf.methodRef(RUNTIME, "equal",
+                                "(" + OBJECT_DESC + OBJECT_DESC + ")Z"), -1);
+                        if (!eq) {
+                            code.iconst(1);
+                            code.op(IXOR, -1);
+                        }
+                    }
+                }
+                default -> throw new NotCompilableException("operador " + node.getOp());
+            }
+        }
+
+        private void compare(int cmp, int jump) {
+            code.op(cmp, -3);
+            booleanFromJump(jump, -1);
+        }
+
+        /** Converte um salto condicional em 0/1 na pilha */
+        private void booleanFromJump(int jump, int delta) {
+            int isTrue = code.newLabel();
+            int end = code.newLabel();
+            code.jump(jump, isTrue, delta);
+            code.iconst(0);
+            code.jump(GOTO, end, 0);
+            code.mark(isTrue);
+            code.iconst(1);
+            code.mark(end);
+        }
+
+        private void compileCall(CallNode node) {
+            FuncDefNode callee = node.getFunction();
+            if (callee == null) {
+                throw new NotCompilableException("Linha " + node.getLine() + ": função embutida " + node.getFuncName());
+            }
+            if (!callee.getReturnType().strip().equals("number")) {
+                throw new NotCompilableException("Linha " + node.getLine() + ": chamada a " + callee.getName());
+            }
+            List<ExprNode> args = node.getArgs();
+            Method target = callable(callee);
+            if (target != null) {
+                code.local(ALOAD, 0);
+                pushFrame(callee.getLevel() - 1);
+                for (ExprNode arg : args) {
+                    compileExpr(arg);
+                }
+                code.op2(INVOKESTATIC, cf.methodRef(CLASS_NAME, target.name, target.descriptor),
+                        2 - 2 - target.argumentWidth());
+                return;
+            }
+
+            // função que fica no interpretador: preenche um quadro e chama rt.callDouble
+            code.local(ALOAD, 0);
+            pushConstant(callee, FUNC);
+            pushFrame(callee.getLevel() - 1);
+            code.op2(INVOKEVIRTUAL, cf.methodRef(RT, "acquireFrame",
+                    "(" + FUNC_DESC + FRAME_DESC + ")" + FRAME_DESC), -2);
+            int frame = code.newLocal(1);
+            code.local(ASTORE, frame);
+            int[] paramSlots = callee.getParamSlots();
+            for (int i = 0; i < args.size(); i++) {
+                ExprNode arg = args.get(i);
+                ExprType type = arg.getExprType();
+                code.local(ALOAD, frame);
+                if (type == ExprType.NUMBER) {
+                    code.op2(GETFIELD, cf.fieldRef(FRAME, "numbers", "[D"), 0);
+                    pushInt(code, paramSlots[i]);
+                    compileExpr(arg);
+                    code.op(DASTORE, -4);
+                } else {
+                    code.op2(GETFIELD, cf.fieldRef(FRAME, "slots", "[" + OBJECT_DESC), 0);
+                    pushInt(code, paramSlots[i]);
+                    compileExpr(arg);
+                    if (type == ExprType.BOOL) {
+                        boxBoolean(code);
+                    }
+                    code.op(AASTORE, -3);
+                }
+            }
+            code.local(ALOAD, 0);
+            pushConstant(callee, FUNC);
+            code.local(ALOAD, frame);
+            code.op2(INVOKEVIRTUAL, cf.methodRef(RT, "callDouble", "(" + FUNC_DESC + FRAME_DESC + ")D"), -1);
+        }
+
+        /** Empilha um objeto do campo K (nó da AST) já com o tipo {@code type} */
+        private void pushConstant(Object value, String type) {
+            code.op2(GETSTATIC, cf.fieldRef(CLASS_NAME, "K", "[" + OBJECT_DESC), 1);
+            pushInt(code, constant(value));
+            code.op(AALOAD, -1);
+            code.op2(CHECKCAST, cf.classRef(type), 0);
+        }
+    }
+
+    /** break/continue em {@code stmt} que saem dele, isto é, não pertencem a um laço interno */
+    private static boolean hasFreeJump(StmtNode stmt) {
+        return switch (stmt) {
+            case BreakNode node -> true;
+            case ContinueNode node -> true;
+            case IfNode node -> hasFreeJump(node.getThenBranch())
+                    || (node.getElseBranch() != null && hasFreeJump(node.getElseBranch()));
+            case BlockNode node -> node.getStmts().stream().anyMatch(FunctionCompiler::hasFreeJump);
+            case SeqNode node -> hasFreeJump(node.getBody());
+            default -> false;
+        };
+    }
+
+    private static boolean hasReturn(StmtNode stmt) {
+        return switch (stmt) {
+            case ReturnNode node -> true;
+            case IfNode node -> hasReturn(node.getThenBranch())
+                    || (node.getElseBranch() != null && hasReturn(node.getElseBranch()));
+            case BlockNode node -> node.getStmts().stream().anyMatch(FunctionCompiler::hasReturn);
+            case SeqNode node -> hasReturn(node.getBody());
+            case WhileNode node -> hasReturn(node.getBody());
+            case ForNode node -> hasReturn(node.getBody());
+            default -> false;
+        };
+    }
+}
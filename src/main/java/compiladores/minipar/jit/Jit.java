@@ -0,0 +1,116 @@
+package compiladores.minipar.jit;
+
+import compiladores.minipar.ast.core.ProgramNode;
+import compiladores.minipar.ast.stmt.FuncDefNode;
+import compiladores.minipar.ast.stmt.StmtNode;
+import compiladores.minipar.interpreter.Frame;
+import compiladores.minipar.interpreter.Interpreter;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Compilação em camadas: cada função começa no interpretador e, depois de
+ * {@link #HOT_CALLS} chamadas, é compilada para uma classe oculta da JVM,
+ * que o HotSpot otimiza como código Java comum. Funções com construções
+ * não suportadas continuam interpretadas.
+ *
+ * <p>Laços while/for que passam de {@link #OSR_ITERATIONS} voltas numa mesma
+ * execução são compilados e continuam no código compilado (OSR), o que acelera
+ * também o programa principal, que nunca é chamado como função.
+ */
+public final class Jit {
+    private static final int HOT_CALLS = 1000;
+    public static final int OSR_ITERATIONS = 1000;
+    private static final MethodType ENTRY_TYPE =
+            MethodType.methodType(double.class, Interpreter.class, Frame.class);
+    private static final MethodType LOOP_TYPE =
+            MethodType.methodType(void.class, Interpreter.class, Frame.class);
+
+    // indexados por FuncDefNode.getIndex(); corridas entre ramos de 'par' só atrasam a compilação
+    private final CompiledFunction[] compiled;
+    private final int[] calls;
+    private final boolean[] rejected;
+    // laços compilados; null registra laço recusado
+    private final Map<StmtNode, CompiledLoop> loops = new IdentityHashMap<>();
+    private final boolean verbose;
+
+    public Jit(ProgramNode program, boolean verbose) {
+        int n = program.getFunctionCount();
+        this.compiled = new CompiledFunction[n];
+        this.calls = new int[n];
+        this.rejected = new boolean[n];
+        this.verbose = verbose;
+    }
+
+    /** Conta a chamada e devolve o código compilado, se houver */
+    public CompiledFunction compiledFor(FuncDefNode func) {
+        int i = func.getIndex();
+        CompiledFunction code = compiled[i];
+        if (code != null || rejected[i]) {
+            return code;
+        }
+        if (++calls[i] < HOT_CALLS) {
+            return null;
+        }
+        return compile(func);
+    }
+
+    private synchronized CompiledFunction compile(FuncDefNode func) {
+        int i = func.getIndex();
+        if (compiled[i] != null || rejected[i]) {
+            return compiled[i];
+        }
+        try {
+            FunctionCompiler compiler = new FunctionCompiler();
+            byte[] bytes = compiler.compile(func);
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+            lookup.findStaticVarHandle(lookup.lookupClass(), "K", Object[].class).set(compiler.constants());
+            MethodHandle entry = lookup.findStatic(lookup.lookupClass(), "run", ENTRY_TYPE);
+            compiled[i] = new CompiledFunction(func.getName(), entry);
+            if (verbose) {
+                System.err.println("JIT: '" + func.getName() + "' compilada (" + compiler.functionCount()
+                        + " função(ões), " + bytes.length + " bytes)");
+            }
+        } catch (NotCompilableException e) {
+            rejected[i] = true;
+            if (verbose) {
+                System.err.println("JIT: '" + func.getName() + "' fica no interpretador: " + e.getMessage());
+            }
+        } catch (ReflectiveOperationException | LinkageError e) {
+            // bytecode recusado pela JVM: erro do compilador, mas a execução continua interpretada
+            rejected[i] = true;
+            System.err.println("JIT: falha ao carregar '" + func.getName() + "': " + e);
+        }
+        return compiled[i];
+    }
+
+    /** Laço compilado para rodar num quadro de nível {@code level}; null se fica no interpretador */
+    public synchronized CompiledLoop compiledLoop(StmtNode loop, int level) {
+        if (loops.containsKey(loop)) {
+            return loops.get(loop);
+        }
+        CompiledLoop code = null;
+        try {
+            FunctionCompiler compiler = new FunctionCompiler();
+            byte[] bytes = compiler.compileLoop(loop, level);
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+            lookup.findStaticVarHandle(lookup.lookupClass(), "K", Object[].class).set(compiler.constants());
+            code = new CompiledLoop(lookup.findStatic(lookup.lookupClass(), "run", LOOP_TYPE));
+            if (verbose) {
+                System.err.println("JIT: laço da linha " + loop.getLine() + " compilado (" + bytes.length + " bytes)");
+            }
+        } catch (NotCompilableException e) {
+            if (verbose) {
+                System.err.println("JIT: laço da linha " + loop.getLine() + " fica no interpretador: " + e.getMessage());
+            }
+        } catch (ReflectiveOperationException | LinkageError e) {
+            System.err.println("JIT: falha ao carregar o laço da linha " + loop.getLine() + ": " + e);
+        }
+        loops.put(loop, code);
+        return code;
+    }
+}
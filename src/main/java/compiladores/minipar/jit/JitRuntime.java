@@ -0,0 +1,42 @@
+package compiladores.minipar.jit;
+
+import compiladores.minipar.interpreter.BoolArray;
+import compiladores.minipar.interpreter.Interpreter;
+import compiladores.minipar.interpreter.NumberArray;
+
+import java.util.List;
+
+/**
+ * Operações chamadas pelo código gerado que não valem a pena escrever em
+ * bytecode. Mantêm a mesma semântica (e mensagens de erro) do interpretador.
+ */
+public final class JitRuntime {
+    private JitRuntime() {
+    }
+
+    public static double indexNumber(Object array, double index) {
+        if (array instanceof NumberArray numbers) {
+            return numbers.getDouble((int) index);
+        }
+        return ((Number) ((List<?>) array).get((int) index)).doubleValue();
+    }
+
+    public static boolean indexBool(Object array, double index) {
+        if (array instanceof BoolArray bools) {
+            return bools.getBoolean((int) index);
+        }
+        return (Boolean) ((List<?>) array).get((int) index);
+    }
+
+    public static void storeNumber(Object array, double index, double value, int line) {
+        Interpreter.storeNumber(array, (int) index, value, line);
+    }
+
+    public static void storeBool(Object array, double index, boolean value, int line) {
+        Interpreter.storeIndex(array, (int) index, value, line);
+    }
+
+    public static boolean equal(Object left, Object right) {
+        return Interpreter.equal(left, right);
+    }
+}
@@ -0,0 +1,12 @@
+package compiladores.minipar.jit;
+
+/**
+ * Construção que o JIT ainda não suporta; a função continua no interpretador
+ */
+class NotCompilableException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    NotCompilableException(String message) {
+        super(message);
+    }
+}
@@ -22,6 +22,9 @@ public class CLexer implements ILexer {
         keywords.put("continue", TokenType.CONTINUE);
         keywords.put("par", TokenType.PAR);
         keywords.put("seq", TokenType.SEQ);
+        keywords.put("publish", TokenType.PUBLISH);
+        keywords.put("spawn", TokenType.SPAWN);
+        keywords.put("await", TokenType.AWAIT);
         keywords.put("s_channel", TokenType.S_CHANNEL);
         keywords.put("c_channel", TokenType.C_CHANNEL);
         keywords.put("true", TokenType.TRUE);
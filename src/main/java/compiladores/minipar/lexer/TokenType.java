@@ -2,7 +2,7 @@ package compiladores.minipar.lexer;
 
 public enum TokenType {
     // Palavras-chave
-    FUNC, WHILE, IF, FOR, ELSE, RETURN, BREAK, CONTINUE, PAR, SEQ, C_CHANNEL, S_CHANNEL,
+    FUNC, WHILE, IF, FOR, ELSE, RETURN, BREAK, CONTINUE, PAR, SEQ, C_CHANNEL, S_CHANNEL, PUBLISH, SPAWN, AWAIT,
 
     // Tipos
     TYPE,
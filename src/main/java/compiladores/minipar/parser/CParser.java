@@ -29,8 +29,14 @@ public class CParser implements IParser {
     }
 
     private List<StmtNode> parseStmts() {
+        return parseStmts(new ArrayList<>());
+    }
+
+    /** Guarda também em {@code startLines} a linha em que cada comando começa */
+    private List<StmtNode> parseStmts(List<Integer> startLines) {
         List<StmtNode> list = new ArrayList<>();
         while (lookahead.type != TokenType.RBRACE && lookahead.type != TokenType.EOF) {
+            startLines.add(lookahead.line);
             list.add(parseStmt());
         }
         return list;
@@ -65,6 +71,17 @@ public class CParser implements IParser {
             Token t = lookahead; consume(TokenType.CONTINUE);
             return new ContinueNode(t.line);
         }
+        if (lookahead.type == TokenType.PUBLISH) {
+            Token t = lookahead; consume(TokenType.PUBLISH);
+            Token id = lookahead; consume(TokenType.ID);
+            return new PublishNode(new IdentifierNode(id.lexeme, id.line), t.line);
+        }
+
+        if (lookahead.type == TokenType.SPAWN || lookahead.type == TokenType.AWAIT) {
+            // spawn f() sem guardar o future, ou await h de uma função void
+            Token t = lookahead;
+            return new ExpressionStmt(parseDisjunction(), t.line);
+        }
 
         // começa com um ID
         Token id = lookahead;
@@ -117,6 +134,24 @@ public class CParser implements IParser {
             consume(TokenType.TYPE);
             return t;
         }
+        if (consumeIf(TokenType.FUNC)) {
+            return "func";
+        }
+        if (lookahead.type == TokenType.ID && lookahead.lexeme.equals("chan")) {
+            // 'chan' e 'future' só são palavras de tipo aqui; 'chan' também é a função que cria o canal
+            consume(TokenType.ID);
+            consume(TokenType.LT);
+            String inner = parseType();
+            consume(TokenType.GT);
+            return "chan<" + inner + ">";
+        }
+        if (lookahead.type == TokenType.ID && lookahead.lexeme.equals("future")) {
+            consume(TokenType.ID);
+            consume(TokenType.LT);
+            String inner = parseType();
+            consume(TokenType.GT);
+            return "future<" + inner + ">";
+        }
         error("Expected type, found: " + lookahead.lexeme);
         return null;
     }
@@ -184,6 +219,11 @@ public class CParser implements IParser {
     }
 
     private ForNode parseFor() {
+        return parseFor(false);
+    }
+
+    private ForNode parseFor(boolean parallel) {
+        int forLine = lookahead.line;
         consume(TokenType.FOR);
         consume(TokenType.LPAREN);
         StmtNode init = parseSimple();
@@ -193,7 +233,8 @@ public class CParser implements IParser {
         AssignmentNode update = (AssignmentNode) parseSimple();
         consume(TokenType.RPAREN);
         BlockNode body = parseBlock();
-        return new ForNode(init, cond, update, body, lookahead.line);
+        // erros das iterações de um 'par for' apontam para a linha do laço
+        return new ForNode(init, cond, update, body, parallel, parallel ? forLine : lookahead.line);
     }
 
     private SeqNode parseSeq() {
@@ -202,10 +243,24 @@ public class CParser implements IParser {
         return new SeqNode(body, lookahead.line);
     }
 
-    private ParNode parsePar() {
+    private StmtNode parsePar() {
         consume(TokenType.PAR);
-        BlockNode body = parseBlock();
-        return new ParNode(body, lookahead.line);
+        if (lookahead.type == TokenType.FOR) {
+            return parseFor(true);
+        }
+        // 'snapshot' só é palavra reservada logo depois de 'par'
+        boolean snapshot = lookahead.type == TokenType.ID && lookahead.lexeme.equals("snapshot");
+        if (snapshot) {
+            consume(TokenType.ID);
+        }
+        // a linha de cada ramo é onde ele começa: um comando composto só termina no '}'
+        List<Integer> branchLines = new ArrayList<>();
+        consume(TokenType.LBRACE);
+        List<StmtNode> branches = parseStmts(branchLines);
+        consume(TokenType.RBRACE);
+        BlockNode body = new BlockNode(branches, lookahead.line);
+        return new ParNode(body, snapshot, branchLines.stream().mapToInt(Integer::intValue).toArray(),
+                lookahead.line);
     }
 
     private SChannelNode parseSChannel() {
@@ -268,7 +323,7 @@ public class CParser implements IParser {
         ExprNode left = parseConjunction();
         while (consumeIf(TokenType.OR)) {
             ExprNode right = parseConjunction();
-            left = new BinaryOpNode("||", left, right, lookahead.line);
+            left = new BinaryOpNode(BinaryOp.OR, left, right, lookahead.line);
         }
         return left;
     }
@@ -277,7 +332,7 @@ public class CParser implements IParser {
         ExprNode left = parseEquality();
         while (consumeIf(TokenType.AND)) {
             ExprNode right = parseEquality();
-            left = new BinaryOpNode("&&", left, right, lookahead.line);
+            left = new BinaryOpNode(BinaryOp.AND, left, right, lookahead.line);
         }
         return left;
     }
@@ -285,7 +340,7 @@ public class CParser implements IParser {
     private ExprNode parseEquality() {
         ExprNode left = parseComparison();
         while (lookahead.type == TokenType.EQ || lookahead.type == TokenType.NEQ) {
-            String op = lookahead.lexeme;
+            BinaryOp op = binaryOp(lookahead.type);
             consume(lookahead.type);
             ExprNode right = parseComparison();
             left = new BinaryOpNode(op, left, right, lookahead.line);
@@ -296,7 +351,7 @@ public class CParser implements IParser {
     private ExprNode parseComparison() {
         ExprNode left = parseSum();
         while (EnumSet.of(TokenType.GT, TokenType.LT, TokenType.GTE, TokenType.LTE).contains(lookahead.type)) {
-            String op = lookahead.lexeme;
+            BinaryOp op = binaryOp(lookahead.type);
             consume(lookahead.type);
             ExprNode right = parseSum();
             left = new BinaryOpNode(op, left, right, lookahead.line);
@@ -307,7 +362,7 @@ public class CParser implements IParser {
     private ExprNode parseSum() {
         ExprNode left = parseTerm();
         while (lookahead.type == TokenType.PLUS || lookahead.type == TokenType.MINUS) {
-            String op = lookahead.lexeme;
+            BinaryOp op = binaryOp(lookahead.type);
             consume(lookahead.type);
             ExprNode right = parseTerm();
             left = new BinaryOpNode(op, left, right, lookahead.line);
@@ -320,7 +375,7 @@ public class CParser implements IParser {
         while (lookahead.type == TokenType.STAR
                 || lookahead.type == TokenType.SLASH
                 || lookahead.type == TokenType.MOD) {
-            String op = lookahead.lexeme;
+            BinaryOp op = binaryOp(lookahead.type);
             consume(lookahead.type);
             ExprNode right = parseUnary();
             left = new BinaryOpNode(op, left, right, lookahead.line);
@@ -331,16 +386,46 @@ public class CParser implements IParser {
     private ExprNode parseUnary() {
         // se for NOT ou MINUS, guarda antes de consumir
         if (lookahead.type == TokenType.NOT || lookahead.type == TokenType.MINUS) {
-            String op = lookahead.lexeme;           // guarda "-" ou "!"
+            UnaryOp op = lookahead.type == TokenType.NOT ? UnaryOp.NOT : UnaryOp.NEG;
             int line = lookahead.line;
             consume(lookahead.type);                // só agora avança
             ExprNode expr = parseUnary();
             return new UnaryOpNode(op, expr, line);
         }
+        if (lookahead.type == TokenType.AWAIT) {
+            int line = lookahead.line;
+            consume(TokenType.AWAIT);
+            return new AwaitNode(parseUnary(), line);
+        }
+        if (lookahead.type == TokenType.SPAWN) {
+            int line = lookahead.line;
+            consume(TokenType.SPAWN);
+            Token name = lookahead;
+            consume(TokenType.ID);
+            return new SpawnNode((CallNode) parseCall(name), line);
+        }
         return parsePrimary();
     }
 
 
+    /** Operador correspondente ao token; evita comparar lexemas na execução */
+    private static BinaryOp binaryOp(TokenType type) {
+        return switch (type) {
+            case PLUS -> BinaryOp.ADD;
+            case MINUS -> BinaryOp.SUB;
+            case STAR -> BinaryOp.MUL;
+            case SLASH -> BinaryOp.DIV;
+            case MOD -> BinaryOp.MOD;
+            case EQ -> BinaryOp.EQ;
+            case NEQ -> BinaryOp.NE;
+            case LT -> BinaryOp.LT;
+            case LTE -> BinaryOp.LE;
+            case GT -> BinaryOp.GT;
+            case GTE -> BinaryOp.GE;
+            default -> throw new IllegalStateException("Token não é operador binário: " + type);
+        };
+    }
+
     private ExprNode parsePrimary() {
         Token t = lookahead;
         switch (t.type) {
@@ -23,6 +23,7 @@ public interface ASTVisitor {
     void visit(ContinueNode node);
     void visit(SeqNode node);
     void visit(ParNode node);
+    void visit(PublishNode node);
     void visit(SChannelNode node);
     void visit(CChannelNode node);
 
@@ -34,6 +35,8 @@ public interface ASTVisitor {
     ExprType visit(CallNode node);
     ExprType visit(IndexNode node);
     ExprType visit(ArrayLiteralNode node);
+    ExprType visit(SpawnNode node);
+    ExprType visit(AwaitNode node);
 
     void visit(ExpressionStmt node) throws SemanticException;
 
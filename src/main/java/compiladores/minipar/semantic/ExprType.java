@@ -12,7 +12,11 @@ public enum ExprType {
     ARRAY_BOOL,    // array de booleanos ([bool])
     FUNC,          // tipo para funções
     C_CHANNEL,     // tipo para canais cliente
-    S_CHANNEL;     // tipo para canais servidor
+    S_CHANNEL,     // tipo para canais servidor
+    CHAN_NUMBER,   // canal em memória de números (chan<number>)
+    CHAN_STRING,   // canal em memória de strings (chan<string>)
+    CHAN_BOOL,     // canal em memória de booleanos (chan<bool>)
+    FUTURE;        // resultado de 'spawn' (future<T>); T fica no Symbol
 
     private Map<String, ExprType> properties;
     private Map<String, MethodSignature> methods;
@@ -41,6 +45,21 @@ public enum ExprType {
             };
         }
 
+        // Canais em memória chan<T>
+        if (typeName.startsWith("chan<") && typeName.endsWith(">")) {
+            String inner = typeName.substring(5, typeName.length() - 1);
+            return switch (inner.toLowerCase()) {
+                case "number" -> CHAN_NUMBER;
+                case "string" -> CHAN_STRING;
+                case "bool" -> CHAN_BOOL;
+                default -> throw new IllegalArgumentException("Tipo de canal desconhecido: " + typeName);
+            };
+        }
+
+        if (typeName.startsWith("future<") && typeName.endsWith(">")) {
+            return FUTURE;
+        }
+
         // Tipos simples
         return switch (typeName.toLowerCase()) {
             case "number" -> NUMBER;
@@ -13,9 +13,48 @@ import java.util.*;
  */
 public class SemanticAnalyzer implements ASTVisitor {
     private final Map<String, FuncDefNode> functions = new HashMap<>();
+    // função que envolve lexicamente cada função aninhada
+    private final Map<FuncDefNode, FuncDefNode> enclosingFunctions = new HashMap<>();
     private FuncDefNode currentFunction;
-
-    private final Stack<Map<String, ExprType>> scopes = new Stack<>();
+    // laços que envolvem o comando atual na mesma função, para validar break/continue
+    private int loopDepth;
+    private int parDepth;
+    // índice em 'scopes' do escopo de cada 'par' aberto, o mais interno no topo
+    private final Deque<Integer> parScopes = new ArrayDeque<>();
+    // o mesmo para os 'par snapshot' abertos na função atual, onde 'publish' é permitido
+    private Deque<Integer> snapshotScopes = new ArrayDeque<>();
+    // 'par for' mais interno aberto na função atual
+    private ParFor parFor;
+    // todos os 'par for', conferidos no fim contra o que as funções que eles chamam atribuem
+    private final List<ParFor> parFors = new ArrayList<>();
+    // variáveis de fora do próprio quadro que cada função atribui
+    private final Map<FuncDefNode, Set<Symbol>> outerWrites = new HashMap<>();
+    // funções que cada função pode chamar: diretamente ou usando o nome como valor
+    private final Map<FuncDefNode, Set<FuncDefNode>> callees = new HashMap<>();
+    // chamadas por variável func de cada função, pela assinatura da variável
+    private final Map<FuncDefNode, List<FuncDefNode>> indirectCalls = new HashMap<>();
+    // funções usadas como valor, que uma variável func pode guardar
+    private final List<FuncDefNode> functionValues = new ArrayList<>();
+    // com loopDepth == 0, o comando está direto no corpo de um 'par for'
+    private boolean parForBody;
+
+    // leituras de variáveis array que não criam outra referência ao array (a[i], len(a)...)
+    private final Set<IdentifierNode> unsharedUses = Collections.newSetFromMap(new IdentityHashMap<>());
+    // candidatos a a = a + x no lugar, confirmados quando o programa inteiro foi visto
+    private final List<Pair<AssignmentNode, Symbol>> selfAppends = new ArrayList<>();
+    // todo acesso a variável, marcado como concorrente (ou não) no fim da análise
+    private final List<Pair<IdentifierNode, Symbol>> uses = new ArrayList<>();
+    // variáveis de quadros externos usadas dentro de funções, que ramos de 'par' podem chamar
+    private final Set<Symbol> outerUses = Collections.newSetFromMap(new IdentityHashMap<>());
+    private boolean hasPar;
+    // variáveis declaradas no quadro de cada função (null: quadro global)
+    private final Map<FuncDefNode, List<Symbol>> frameSymbols = new HashMap<>();
+    // cada 'par snapshot' com as funções cujos quadros ele congela, da mais interna à global (null)
+    private final List<Pair<ParNode, List<FuncDefNode>>> snapshots = new ArrayList<>();
+
+    private final Stack<Map<String, Symbol>> scopes = new Stack<>();
+    // quadro em que as declarações atuais recebem slots
+    private FrameLayout frame = new FrameLayout(0);
 
     public SemanticAnalyzer() {
         // Escopo global inicial
@@ -30,6 +69,27 @@ public class SemanticAnalyzer implements ASTVisitor {
         scopes.push(new HashMap<>());
         visit(program);
         scopes.pop();
+        if (hasPar) {
+            outerUses.forEach(Symbol::markConcurrent);
+        }
+        for (Pair<AssignmentNode, Symbol> append : selfAppends) {
+            // outra thread (spawn, s_channel) pode estar lendo o array: ela veria o crescimento pela metade
+            Symbol symbol = append.getSecond();
+            append.getFirst().setAppendInPlace(!symbol.isShared() && !symbol.isConcurrent());
+        }
+        for (Pair<IdentifierNode, Symbol> use : uses) {
+            use.getFirst().setConcurrent(use.getSecond().isConcurrent());
+            if (!use.getSecond().isAtomic()) {
+                use.getFirst().setLoopCopies(0); // só variáveis atômicas mudam durante o 'par for'
+            }
+        }
+        for (Pair<ParNode, List<FuncDefNode>> snapshot : snapshots) {
+            snapshot.getFirst().setCaptured(capturedBy(snapshot.getSecond()));
+        }
+        for (ParFor loop : parFors) {
+            checkCalledWrites(loop);
+        }
+        program.setLayout(frame.size, frame.numberSize, functions.size());
     }
 
     @Override
@@ -42,7 +102,8 @@ public class SemanticAnalyzer implements ASTVisitor {
     @Override
     public void visit(DeclarationNode node) throws SemanticException {
         ExprType declared = ExprType.fromString(node.getTypeName());
-        ExprType initType = node.getInit().accept(this);
+        ExprType initType = newChannelAs(node.getInit(), declared, typeOf(node.getInit()));
+        emptyArrayAs(node.getInit(), declared);
 
         if (!isAssignable(declared, initType)) {
             throw new SemanticException(
@@ -51,14 +112,25 @@ public class SemanticAnalyzer implements ASTVisitor {
             );
         }
 
-        Map<String, ExprType> scope = scopes.peek();
+        Map<String, Symbol> scope = scopes.peek();
         if (scope.containsKey(node.getId())) {
             throw new SemanticException(
                     "Linha " + node.getLine() + ": variável '" + node.getId() + "' já declarada"
             );
         }
 
-        scope.put(node.getId(), declared);
+        Symbol symbol = declare(node.getId(), declared);
+        if (isArray(declared) && !isFreshArray(node.getInit())) {
+            symbol.markShared();
+        }
+        if (declared == ExprType.FUNC) {
+            symbol.setSignature(signatureOf(node.getInit()));
+        }
+        if (declared == ExprType.FUTURE) {
+            symbol.setAwaited(awaitedType(node.getTypeName()));
+            checkAwaited(symbol.getAwaited(), node.getInit(), node.getLine());
+        }
+        node.setSlot(symbol.getSlot());
     }
 
 
@@ -70,11 +142,20 @@ public class SemanticAnalyzer implements ASTVisitor {
 
         if (target instanceof IdentifierNode idNode) {
             // variáveis simples
-            targetType = lookupVar(idNode.getName(), node.getLine());
+            targetType = resolve(idNode);
+            Symbol symbol = lookupVar(idNode.getName(), node.getLine());
+            if (parFor != null && !parFor.locals.contains(symbol)) {
+                throw new SemanticException("Linha " + node.getLine() + ": 'par for' não pode atribuir a '"
+                        + idNode.getName() + "', declarada fora do laço: as iterações rodam em paralelo");
+            }
+            if (currentFunction != null && symbol.getLevel() < frame.level) {
+                outerWrites.computeIfAbsent(currentFunction, f -> new LinkedHashSet<>()).add(symbol);
+            }
         }
         else if (target instanceof IndexNode idxNode) {
             // 2.a) Valida que o lado esquerdo é mesmo um array
-            ExprType arrayType = idxNode.getTarget().accept(this);
+            unshared(idxNode.getTarget());
+            ExprType arrayType = typeOf(idxNode.getTarget());
             if (arrayType != ExprType.ARRAY_NUMBER
                     && arrayType != ExprType.ARRAY_STRING
                     && arrayType != ExprType.ARRAY_BOOL) {
@@ -85,7 +166,7 @@ public class SemanticAnalyzer implements ASTVisitor {
             }
 
             // 2.b) Valida que o índice é número
-            ExprType indexType = idxNode.getIndex().accept(this);
+            ExprType indexType = typeOf(idxNode.getIndex());
             if (indexType != ExprType.NUMBER) {
                 throw new SemanticException(
                         "Linha " + node.getLine() +
@@ -109,7 +190,20 @@ public class SemanticAnalyzer implements ASTVisitor {
         }
 
         // 3) Verificar a expressão à direita
-        ExprType exprType = node.getValue().accept(this);
+        boolean selfAppend = isSelfAppend(node);
+        if (selfAppend) {
+            unshared(((BinaryOpNode) node.getValue()).getLeft());
+        }
+        ExprType exprType = newChannelAs(node.getValue(), targetType, typeOf(node.getValue()));
+        emptyArrayAs(node.getValue(), targetType);
+        if (target instanceof IdentifierNode idNode && isArray(targetType)) {
+            Symbol symbol = lookupVar(idNode.getName(), idNode.getLine());
+            if (selfAppend && idNode.getDepth() == 0 && parDepth == 0) {
+                selfAppends.add(new Pair<>(node, symbol));
+            } else if (!isFreshArray(node.getValue())) {
+                symbol.markShared();
+            }
+        }
 
         // 4) Verificar se é atribuível
         if (!isAssignable(targetType, exprType)) {
@@ -118,8 +212,198 @@ public class SemanticAnalyzer implements ASTVisitor {
                             ": não pode atribuir " + exprType + " a alvo de tipo " + targetType
             );
         }
+        if (targetType == ExprType.FUTURE && target instanceof IdentifierNode idNode) {
+            checkAwaited(lookupVar(idNode.getName(), node.getLine()).getAwaited(), node.getValue(), node.getLine());
+        }
+        if (targetType == ExprType.FUNC && target instanceof IdentifierNode idNode) {
+            FuncDefNode current = lookupVar(idNode.getName(), node.getLine()).getSignature();
+            if (!sameSignature(current, signatureOf(node.getValue()))) {
+                throw new SemanticException("Linha " + node.getLine() + ": '" + idNode.getName()
+                        + "' só recebe funções com a assinatura de '" + current.getName() + "'");
+            }
+        }
+    }
+
+    /** Função (e portanto assinatura) de uma expressão func */
+    private FuncDefNode signatureOf(ExprNode expr) throws SemanticException {
+        if (expr instanceof IdentifierNode id) {
+            if (id.getFunction() != null) {
+                return id.getFunction();
+            }
+            Symbol symbol = findVar(id.getName());
+            if (symbol != null && symbol.getSignature() != null) {
+                return symbol.getSignature();
+            }
+        }
+        throw new SemanticException("Linha " + expr.getLine() + ": função esperada, veio " + expr);
+    }
+
+    private static boolean sameSignature(FuncDefNode a, FuncDefNode b) {
+        return paramTypes(a).equals(paramTypes(b))
+                && ExprType.fromString(a.getReturnType()) == ExprType.fromString(b.getReturnType());
+    }
+
+    private static List<ExprType> paramTypes(FuncDefNode fn) {
+        List<ExprType> types = new ArrayList<>();
+        for (Pair<String, ExprNode> param : fn.getParams().values()) {
+            types.add(ExprType.fromString(param.getFirst()));
+        }
+        return types;
+    }
+
+    /**
+     * Primeiro argumento de map/filter/reduce: uma func com {@code params}
+     * como parâmetros. Retorna o tipo de retorno dela.
+     */
+    private ExprType functionArgument(CallNode call, List<ExprType> params) throws SemanticException {
+        ExprNode arg = call.getArgs().get(0);
+        if (typeOf(arg) != ExprType.FUNC) {
+            throw new SemanticException("Linha " + call.getLine() + ": '" + call.getFuncName()
+                    + "' requer uma função como primeiro argumento");
+        }
+        FuncDefNode fn = signatureOf(arg);
+        if (!paramTypes(fn).equals(params)) {
+            throw new SemanticException("Linha " + call.getLine() + ": '" + call.getFuncName()
+                    + "' requer uma função com parâmetros " + params + ", e '" + fn.getName()
+                    + "' recebe " + paramTypes(fn));
+        }
+        return ExprType.fromString(fn.getReturnType());
+    }
+
+    /** Segundo argumento de map/filter/reduce/sum: o array percorrido */
+    private ExprType arrayArgument(CallNode call, int index) throws SemanticException {
+        ExprNode arg = call.getArgs().get(index);
+        unshared(arg);
+        ExprType type = typeOf(arg);
+        if (!isArray(type)) {
+            throw new SemanticException("Linha " + call.getLine() + ": '" + call.getFuncName()
+                    + "' requer um array, veio " + type);
+        }
+        return type;
+    }
+
+    private static ExprType elementType(ExprType arrayType) {
+        return switch (arrayType) {
+            case ARRAY_NUMBER -> ExprType.NUMBER;
+            case ARRAY_STRING -> ExprType.STRING;
+            default -> ExprType.BOOL;
+        };
+    }
+
+    private void checkArgCount(CallNode call, int count) throws SemanticException {
+        if (call.getArgs().size() != count) {
+            throw new SemanticException("Linha " + call.getLine() + ": '" + call.getFuncName()
+                    + "' requer exatamente " + count + " argumentos");
+        }
+    }
+
+
+    private static boolean isArray(ExprType type) {
+        return type == ExprType.ARRAY_NUMBER || type == ExprType.ARRAY_STRING || type == ExprType.ARRAY_BOOL;
+    }
+
+    /** Expressão que sempre cria um array novo, sem outra referência a ele */
+    private static boolean isFreshArray(ExprNode expr) {
+        return expr instanceof ArrayLiteralNode
+                || expr instanceof BinaryOpNode
+                || (expr instanceof CallNode call && FuncoesEmbutidas.isFuncaoEmbutida(call.getFuncName()));
+    }
+
+    /** a = a + x, com o mesmo 'a' nos dois lados */
+    private static boolean isSelfAppend(AssignmentNode node) {
+        return node.getTarget() instanceof IdentifierNode target
+                && node.getValue() instanceof BinaryOpNode bin
+                && bin.getOp() == BinaryOp.ADD
+                && bin.getLeft() instanceof IdentifierNode left
+                && left.getName().equals(target.getName());
+    }
+
+    /** Marca a leitura de {@code expr}, se for uma variável, como uso que não compartilha o array */
+    private void unshared(ExprNode expr) {
+        if (expr instanceof IdentifierNode id) {
+            unsharedUses.add(id);
+        }
+    }
+
+    /** O literal [] assume o tipo do array que o recebe, para criar o armazenamento certo */
+    private static void emptyArrayAs(ExprNode value, ExprType type) {
+        if (value instanceof ArrayLiteralNode literal && literal.getElements().isEmpty()
+                && (type == ExprType.ARRAY_STRING || type == ExprType.ARRAY_BOOL)) {
+            literal.setExprType(type);
+        }
+    }
+
+    /** T de um tipo future<T> */
+    private static ExprType awaitedType(String typeName) {
+        String name = typeName.strip();
+        return ExprType.fromString(name.substring("future<".length(), name.length() - 1));
+    }
+
+    /** Tipo que 'await' devolve para uma expressão future<T> já analisada */
+    private ExprType awaitedOf(ExprNode expr) throws SemanticException {
+        if (expr instanceof SpawnNode spawn) {
+            return spawn.getCall().getExprType();
+        }
+        if (expr instanceof IdentifierNode id) {
+            return lookupVar(id.getName(), id.getLine()).getAwaited();
+        }
+        if (expr instanceof CallNode call && FuncoesEmbutidas.isFuncaoEmbutida(call.getFuncName())) {
+            return ExprType.STRING; // send_async, a única embutida que retorna future
+        }
+        if (expr instanceof CallNode call) {
+            FuncDefNode fn = call.getCallee() != null
+                    ? lookupVar(call.getFuncName(), call.getLine()).getSignature() : call.getFunction();
+            return awaitedType(fn.getReturnType());
+        }
+        throw new SemanticException("Linha " + expr.getLine() + ": future esperado, veio " + expr);
+    }
+
+    private void checkAwaited(ExprType expected, ExprNode value, int line) throws SemanticException {
+        ExprType actual = awaitedOf(value);
+        if (actual != expected) {
+            throw new SemanticException("Linha " + line + ": esperado future<" + expected
+                    + ">, veio future<" + actual + ">");
+        }
+    }
+
+    /** Primeiro argumento de atomic_add/compare_and_set: variável number ou elemento de [number] */
+    private void atomicTarget(CallNode call) throws SemanticException {
+        ExprNode target = call.getArgs().get(0);
+        if (target instanceof IdentifierNode id && typeOf(id) == ExprType.NUMBER && id.getFunction() == null) {
+            lookupVar(id.getName(), id.getLine()).markAtomic();
+            return;
+        }
+        if (target instanceof IndexNode index && typeOf(index) == ExprType.NUMBER) {
+            return;
+        }
+        throw new SemanticException("Linha " + call.getLine() + ": '" + call.getFuncName()
+                + "' requer uma variável number ou um elemento de [number]");
+    }
+
+    /** chan(n) cria um canal do tipo que o destino espera, como [] faz com arrays */
+    private static ExprType newChannelAs(ExprNode value, ExprType type, ExprType actual) {
+        if (value instanceof CallNode call && call.getFuncName().equals("chan") && isChannel(type)) {
+            call.setExprType(type);
+            return type;
+        }
+        return actual;
+    }
+
+    private static boolean isChannel(ExprType type) {
+        return type == ExprType.CHAN_NUMBER || type == ExprType.CHAN_STRING || type == ExprType.CHAN_BOOL;
     }
 
+    /** Primeiro argumento de chan_send/chan_recv; retorna o tipo das mensagens */
+    private ExprType channelArgument(CallNode call, ExprNode arg) throws SemanticException {
+        ExprType type = typeOf(arg);
+        return switch (type) {
+            case CHAN_NUMBER -> ExprType.NUMBER;
+            case CHAN_STRING -> ExprType.STRING;
+            case CHAN_BOOL -> ExprType.BOOL;
+            default -> throw new SemanticException("Linha " + call.getLine() + ": '" + call.getFuncName()
+                    + "' requer um canal chan<T>, veio " + type);
+        };
+    }
 
     // Novo método auxiliar para verificar compatibilidade
     private boolean isAssignable(ExprType varType, ExprType exprType) {
@@ -138,19 +422,54 @@ public class SemanticAnalyzer implements ASTVisitor {
                     "Linha " + node.getLine() + ": função '" + node.getName() + "' já declarada"
             );
         }
+        int index = functions.size();
         functions.put(node.getName(), node);
+        if (currentFunction != null) {
+            enclosingFunctions.put(node, currentFunction);
+        }
         FuncDefNode prev = currentFunction;
         currentFunction = node;
-
-        // novo escopo para parâmetros e corpo
+        int outerLoops = loopDepth;
+        loopDepth = 0;
+        Deque<Integer> outerSnapshots = snapshotScopes;
+        snapshotScopes = new ArrayDeque<>();
+        ParFor outerParFor = parFor;
+        boolean outerParForBody = parForBody;
+        parFor = null;
+        parForBody = false;
+
+        // novo escopo e novo quadro para parâmetros e corpo
+        FrameLayout outerFrame = frame;
+        frame = new FrameLayout(outerFrame.level + 1);
         scopes.push(new HashMap<>());
+        int[] paramSlots = new int[node.getParams().size()];
+        int p = 0;
+        if (ExprType.fromString(node.getReturnType()) == ExprType.FUNC) {
+            throw new SemanticException("Linha " + node.getLine() + ": funções ainda não podem retornar func");
+        }
         for (Map.Entry<String, Pair<String, ExprNode>> param : node.getParams().entrySet()) {
             ExprType ptype = ExprType.fromString(param.getValue().getFirst());
-            scopes.peek().put(param.getKey(), ptype);
+            if (ptype == ExprType.FUNC) {
+                // sem tipo de função na sintaxe, a assinatura do parâmetro seria desconhecida
+                throw new SemanticException("Linha " + node.getLine() + ": parâmetro '" + param.getKey()
+                        + "' do tipo func ainda não é suportado");
+            }
+            Symbol symbol = declare(param.getKey(), ptype);
+            symbol.markShared(); // o array do argumento continua com quem chamou
+            if (ptype == ExprType.FUTURE) {
+                symbol.setAwaited(awaitedType(param.getValue().getFirst()));
+            }
+            paramSlots[p++] = symbol.getSlot();
         }
         node.getBody().accept(this);
         scopes.pop();
+        node.setLayout(index, frame.level, frame.size, frame.numberSize, paramSlots);
+        frame = outerFrame;
         currentFunction = prev;
+        loopDepth = outerLoops;
+        snapshotScopes = outerSnapshots;
+        parFor = outerParFor;
+        parForBody = outerParForBody;
     }
 
     @Override
@@ -158,7 +477,15 @@ public class SemanticAnalyzer implements ASTVisitor {
         if (currentFunction == null) {
             throw new SemanticException("Linha " + node.getLine() + ": 'return' fora de função");
         }
-        ExprType exprType = node.getExpr().accept(this);
+        if (parFor != null) {
+            throw new SemanticException("Linha " + node.getLine() + ": 'return' não é permitido em 'par for'");
+        }
+        if (node.getExpr() instanceof IdentifierNode id
+                && lookupVar(id.getName(), id.getLine()).getLevel() == frame.level) {
+            // devolver um local não cria alias: o quadro da função acaba aqui
+            unshared(id);
+        }
+        ExprType exprType = typeOf(node.getExpr());
         ExprType expected = ExprType.fromString(currentFunction.getReturnType());
         if (exprType != expected) {
             throw new SemanticException(
@@ -166,11 +493,14 @@ public class SemanticAnalyzer implements ASTVisitor {
                             ", esperado " + expected
             );
         }
+        if (expected == ExprType.FUTURE) {
+            checkAwaited(awaitedType(currentFunction.getReturnType()), node.getExpr(), node.getLine());
+        }
     }
 
     @Override
     public void visit(IfNode node) throws SemanticException {
-        ExprType cond = node.getCond().accept(this);
+        ExprType cond = typeOf(node.getCond());
         if (cond != ExprType.BOOL) {
             throw new SemanticException(
                     "Linha " + node.getLine() + ": condição de 'if' deve ser BOOL"
@@ -184,36 +514,164 @@ public class SemanticAnalyzer implements ASTVisitor {
 
     @Override
     public void visit(WhileNode node) throws SemanticException {
-        ExprType cond = node.getCond().accept(this);
+        ExprType cond = typeOf(node.getCond());
         if (cond != ExprType.BOOL) {
             throw new SemanticException(
                     "Linha " + node.getLine() + ": condição de 'while' deve ser BOOL"
             );
         }
+        loopDepth++;
         node.getBody().accept(this);
+        loopDepth--;
     }
 
     @Override
     public void visit(ForNode node) throws SemanticException {
+        if (node.isParallel()) {
+            visitParFor(node);
+            return;
+        }
         node.getInit().accept(this);
-        ExprType cond = node.getCondition().accept(this);
+        ExprType cond = typeOf(node.getCondition());
         if (cond != ExprType.BOOL) {
             throw new SemanticException(
                     "Linha " + node.getLine() + ": condição de 'for' deve ser BOOL"
             );
         }
         node.getUpdate().accept(this);
+        loopDepth++;
         node.getBody().accept(this);
+        loopDepth--;
+    }
+
+    /**
+     * par for (i: number = a; i < b; i = i + passo): as iterações rodam em
+     * paralelo, então o índice precisa ter passo constante e o corpo só pode
+     * atribuir a variáveis declaradas no próprio laço. Elementos de arrays de
+     * fora podem ser gravados (cada iteração no seu índice).
+     */
+    private void visitParFor(ForNode node) throws SemanticException {
+        int line = node.getLine();
+        if (!(node.getInit() instanceof DeclarationNode init)
+                || ExprType.fromString(init.getTypeName()) != ExprType.NUMBER) {
+            throw new SemanticException("Linha " + line
+                    + ": 'par for' deve declarar o índice, como em 'i: number = 0'");
+        }
+        String index = init.getId();
+        if (!(node.getCondition() instanceof BinaryOpNode cond)
+                || (cond.getOp() != BinaryOp.LT && cond.getOp() != BinaryOp.LE)
+                || !isVariable(cond.getLeft(), index)) {
+            throw new SemanticException("Linha " + line
+                    + ": 'par for' exige a condição '" + index + " < limite' ou '" + index + " <= limite'");
+        }
+        if (!(node.getUpdate() instanceof AssignmentNode update)
+                || !isVariable(update.getTarget(), index)
+                || !(update.getValue() instanceof BinaryOpNode sum)
+                || sum.getOp() != BinaryOp.ADD
+                || !isVariable(sum.getLeft(), index)
+                || !(sum.getRight() instanceof LiteralNode step)
+                || !(step.getValue() instanceof Double stepValue)
+                || !(stepValue > 0)) {
+            throw new SemanticException("Linha " + line
+                    + ": 'par for' exige o incremento '" + index + " = " + index + " + constante positiva'");
+        }
+        node.setStep(stepValue);
+        hasPar = true;
+
+        ParFor outer = parFor;
+        parFor = new ParFor(outer, line);
+        parFors.add(parFor);
+        int outerLoops = loopDepth;
+        boolean outerBody = parForBody;
+        loopDepth = 0;
+        parForBody = true;
+        try {
+            init.accept(this);
+            typeOf(cond);
+            update.accept(this);
+            node.getBody().accept(this);
+        } finally {
+            loopDepth = outerLoops;
+            parForBody = outerBody;
+            if (outer != null) {
+                // o que foi declarado no laço interno é local também para o externo
+                outer.locals.addAll(parFor.locals);
+            }
+            parFor = outer;
+        }
+    }
+
+    /**
+     * O corpo de um 'par for' também não pode atribuir a variáveis de fora
+     * por meio das funções que chama: cada pedaço do laço roda com uma cópia
+     * do quadro, então a escrita de uma função aninhada se perderia, e a de
+     * uma global seria uma corrida entre as iterações. Conferido no fim da
+     * análise, quando todas as funções e valores func já foram vistos.
+     */
+    private void checkCalledWrites(ParFor loop) throws SemanticException {
+        Set<FuncDefNode> roots = new LinkedHashSet<>(loop.calls);
+        for (FuncDefNode signature : loop.indirect) {
+            roots.addAll(valuesWithSignature(signature));
+        }
+        for (FuncDefNode root : roots) {
+            Set<FuncDefNode> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+            Deque<FuncDefNode> pending = new ArrayDeque<>(List.of(root));
+            while (!pending.isEmpty()) {
+                FuncDefNode fn = pending.pop();
+                if (!seen.add(fn)) {
+                    continue;
+                }
+                for (Symbol symbol : outerWrites.getOrDefault(fn, Set.of())) {
+                    if (!loop.locals.contains(symbol)) {
+                        String via = fn == root ? "que" : "e '" + fn.getName() + "'";
+                        throw new SemanticException("Linha " + loop.line + ": 'par for' chama '" + root.getName()
+                                + "', " + via + " atribui a '" + symbol.getName()
+                                + "', declarada fora do laço: as iterações rodam em paralelo");
+                    }
+                }
+                pending.addAll(callees.getOrDefault(fn, Set.of()));
+                for (FuncDefNode signature : indirectCalls.getOrDefault(fn, List.of())) {
+                    pending.addAll(valuesWithSignature(signature));
+                }
+            }
+        }
+    }
+
+    /** Funções usadas como valor que uma variável func com a assinatura de {@code signature} pode guardar */
+    private List<FuncDefNode> valuesWithSignature(FuncDefNode signature) {
+        return functionValues.stream().filter(fn -> sameSignature(fn, signature)).toList();
+    }
+
+    /** Registra que o código atual pode chamar {@code fn} */
+    private void calls(FuncDefNode fn) {
+        if (currentFunction != null) {
+            callees.computeIfAbsent(currentFunction, f -> new LinkedHashSet<>()).add(fn);
+        }
+        if (parFor != null) {
+            parFor.calls.add(fn);
+        }
+    }
+
+    private static boolean isVariable(ExprNode expr, String name) {
+        return expr instanceof IdentifierNode id && id.getName().equals(name);
     }
 
     @Override
     public void visit(BreakNode node) throws SemanticException {
-        // opcional: checar contexto de loop
+        if (loopDepth == 0 && parForBody) {
+            throw new SemanticException("Linha " + node.getLine() + ": 'break' não é permitido em 'par for'");
+        }
+        if (loopDepth == 0) {
+            throw new SemanticException("Linha " + node.getLine() + ": 'break' fora de laço");
+        }
     }
 
     @Override
     public void visit(ContinueNode node) throws SemanticException {
-        // opcional: checar contexto de loop
+        // no corpo de um 'par for', continue só termina a iteração
+        if (loopDepth == 0 && !parForBody) {
+            throw new SemanticException("Linha " + node.getLine() + ": 'continue' fora de laço");
+        }
     }
 
     @Override
@@ -223,8 +681,24 @@ public class SemanticAnalyzer implements ASTVisitor {
 
     @Override
     public void visit(ParNode node) throws SemanticException {
-        // Novo escopo para o bloco PAR
+        // Novo escopo para o bloco PAR; cada ramo roda à parte, fora dos laços externos
         scopes.push(new HashMap<>());
+        int outerLoops = loopDepth;
+        boolean outerParForBody = parForBody;
+        loopDepth = 0;
+        parForBody = false;
+        parDepth++;
+        parScopes.push(scopes.size() - 1);
+        if (node.isSnapshot()) {
+            snapshotScopes.push(scopes.size() - 1);
+            List<FuncDefNode> frames = new ArrayList<>();
+            for (FuncDefNode f = currentFunction; f != null; f = enclosingFunctions.get(f)) {
+                frames.add(f);
+            }
+            frames.add(null);
+            snapshots.add(new Pair<>(node, frames));
+        }
+        hasPar = true;
 
         for (StmtNode s : node.getBody().getStmts()) {
             // Verifica instruções que não fazem sentido em PAR
@@ -250,17 +724,55 @@ public class SemanticAnalyzer implements ASTVisitor {
 
         // Sai do escopo
         scopes.pop();
+        loopDepth = outerLoops;
+        parForBody = outerParForBody;
+        parDepth--;
+        parScopes.pop();
+        if (node.isSnapshot()) {
+            snapshotScopes.pop();
+        }
+    }
+
+    /**
+     * Variáveis concorrentes dos quadros que um 'par snapshot' congela: outro
+     * ramo, um spawn ou o servidor podem alterá-las enquanto os ramos rodam,
+     * então o valor delas é copiado para a visão quando o bloco começa.
+     */
+    private List<ParNode.Capture> capturedBy(List<FuncDefNode> frames) {
+        List<ParNode.Capture> captured = new ArrayList<>();
+        for (FuncDefNode fn : frames) {
+            for (Symbol symbol : frameSymbols.getOrDefault(fn, List.of())) {
+                if (symbol.isConcurrent()) {
+                    captured.add(new ParNode.Capture(symbol.getLevel(), symbol.getSlot(),
+                            symbol.getType() == ExprType.NUMBER));
+                }
+            }
+        }
+        return captured;
+    }
+
+    @Override
+    public void visit(PublishNode node) throws SemanticException {
+        if (snapshotScopes.isEmpty()) {
+            throw new SemanticException("Linha " + node.getLine() + ": 'publish' fora de 'par snapshot'");
+        }
+        IdentifierNode target = node.getTarget();
+        typeOf(target);
+        if (scopeOf(target.getName()) >= snapshotScopes.peek()) {
+            throw new SemanticException("Linha " + node.getLine() + ": 'publish' de '" + target.getName()
+                    + "', que não foi declarada fora do 'par snapshot'");
+        }
     }
 
     @Override
     public void visit(SChannelNode node) throws SemanticException {
-        ExprType host = node.getHost().accept(this);
+        ExprType host = typeOf(node.getHost());
         if (host != ExprType.STRING) {
             throw new SemanticException(
                     "Linha " + node.getLine() + ": localhost deve ser STRING"
             );
         }
-        ExprType port = node.getPort().accept(this);
+        ExprType port = typeOf(node.getPort());
         if (port != ExprType.NUMBER) {
             throw new SemanticException(
                     "Linha " + node.getLine() + ": port deve ser NUMBER"
@@ -272,51 +784,61 @@ public class SemanticAnalyzer implements ASTVisitor {
                     "Linha " + node.getLine() + ": função base deve retornar STRING"
             );
         }
+        if (!paramTypes(f).equals(List.of(ExprType.STRING))) {
+            throw new SemanticException("Linha " + node.getLine() + ": função base '" + f.getName()
+                    + "' deve receber exatamente um parâmetro STRING (a mensagem)");
+        }
+        if (enclosingFunctions.containsKey(f)) {
+            // as conexões chegam depois que a função de fora já pode ter terminado
+            throw new SemanticException("Linha " + node.getLine() + ": função base aninhada ('"
+                    + f.getName() + "') não é suportada");
+        }
+        node.setFunction(f);
+        hasPar = true; // cada conexão chama a função na sua própria thread
     }
 
     @Override
     public void visit(CChannelNode node) throws SemanticException {
-        ExprType host = node.getHost().accept(this);
+        ExprType host = typeOf(node.getHost());
         if (host != ExprType.STRING) {
             throw new SemanticException(
                     "Linha " + node.getLine() + ": localhost deve ser STRING"
             );
         }
-        ExprType port = node.getPort().accept(this);
+        ExprType port = typeOf(node.getPort());
         if (port != ExprType.NUMBER) {
             throw new SemanticException(
                     "Linha " + node.getLine() + ": port deve ser NUMBER"
             );
         }
         // Registrar o nome do canal como uma variável do tipo STRING
-        Map<String, ExprType> scope = scopes.peek();
+        Map<String, Symbol> scope = scopes.peek();
         if (scope.containsKey(node.getName())) {
             throw new SemanticException(
                     "Linha " + node.getLine() + ": canal '" + node.getName() + "' já declarado"
             );
         }
-        scope.put(node.getName(), ExprType.STRING);
+        node.setSlot(declare(node.getName(), ExprType.STRING).getSlot());
     }
 
     @Override
     public ExprType visit(BinaryOpNode node) throws SemanticException {
-        ExprType lt = node.getLeft().accept(this);
-        ExprType rt = node.getRight().accept(this);
-        String op = node.getOp();
-        switch (op) {
-            case "||": case "&&":
+        ExprType lt = typeOf(node.getLeft());
+        ExprType rt = typeOf(node.getRight());
+        switch (node.getOp()) {
+            case OR: case AND:
                 if (lt != ExprType.BOOL || rt != ExprType.BOOL)
                     throw new SemanticException("Linha " + node.getLine() + ": lógica requer BOOL");
                 return ExprType.BOOL;
-            case "==": case "!=":
+            case EQ: case NE:
                 if (lt != rt)
                     throw new SemanticException("Linha " + node.getLine() + ": ==/!= requerem tipos iguais");
                 return ExprType.BOOL;
-            case ">": case "<": case ">=": case "<=":
+            case GT: case LT: case GE: case LE:
                 if (lt != ExprType.NUMBER || rt != ExprType.NUMBER)
                     throw new SemanticException("Linha " + node.getLine() + ": comparação requer NUMBER");
                 return ExprType.BOOL;
-            case "+":
+            case ADD:
                 if (lt == ExprType.NUMBER && rt == ExprType.NUMBER) return ExprType.NUMBER;
                 if (lt == ExprType.STRING && rt == ExprType.STRING) return ExprType.STRING; // Permitir concatenação de strings
                 if (lt == ExprType.ARRAY_NUMBER && rt == ExprType.ARRAY_NUMBER) return ExprType.ARRAY_NUMBER;
@@ -332,15 +854,15 @@ public class SemanticAnalyzer implements ASTVisitor {
 
     @Override
     public ExprType visit(UnaryOpNode node) throws SemanticException {
-        ExprType t = node.getExpr().accept(this); // Avalia o tipo da expressão
-        String op = node.getOp();
+        ExprType t = typeOf(node.getExpr()); // Avalia o tipo da expressão
+        UnaryOp op = node.getOp();
 
-        if ("!".equals(op)) {
+        if (op == UnaryOp.NOT) {
             if (t != ExprType.BOOL) {
                 throw new SemanticException("Linha " + node.getLine() + ": ! requer BOOL");
             }
             return ExprType.BOOL; // Retorna o tipo semântico BOOL
-        } else if ("-".equals(op)) {
+        } else if (op == UnaryOp.NEG) {
             if (t != ExprType.NUMBER) {
                 throw new SemanticException("Linha " + node.getLine() + ": - requer NUMBER");
             }
@@ -361,7 +883,23 @@ public class SemanticAnalyzer implements ASTVisitor {
 
     @Override
     public ExprType visit(IdentifierNode node) throws SemanticException {
-        return lookupVar(node.getName(), node.getLine());
+        FuncDefNode fn = functions.get(node.getName());
+        if (fn != null && findVar(node.getName()) == null) {
+            // nome de função como valor
+            checkReachable(fn, node.getLine());
+            node.setFunction(fn);
+            if (!functionValues.contains(fn)) {
+                functionValues.add(fn);
+            }
+            calls(fn); // map, filter, reduce ou quem receber o valor podem chamá-la
+            return ExprType.FUNC;
+        }
+        ExprType type = resolve(node);
+        if (isArray(type) && !unsharedUses.remove(node)) {
+            // o array pode ganhar outra referência: a = a + x precisa copiar
+            lookupVar(node.getName(), node.getLine()).markShared();
+        }
+        return type;
     }
 
     @Override
@@ -380,7 +918,8 @@ public class SemanticAnalyzer implements ASTVisitor {
                         throw new SemanticException("Linha " + node.getLine() + ": 'print' requer pelo menos 1 argumento");
                     }
                     for (ExprNode arg : args) {
-                        ExprType printType = arg.accept(this);
+                        unshared(arg);
+                        ExprType printType = typeOf(arg);
                         if (printType != ExprType.STRING && printType != ExprType.NUMBER &&
                                 printType != ExprType.BOOL && printType != ExprType.ARRAY_NUMBER &&
                                 printType != ExprType.ARRAY_STRING && printType != ExprType.ARRAY_BOOL) {
@@ -399,7 +938,8 @@ public class SemanticAnalyzer implements ASTVisitor {
                     if (args.size() != 1) {
                         throw new SemanticException("Linha " + node.getLine() + ": 'len' requer exatamente 1 argumento");
                     }
-                    ExprType lenType = args.get(0).accept(this);
+                    unshared(args.get(0));
+                    ExprType lenType = typeOf(args.get(0));
                     if (lenType != ExprType.STRING && lenType != ExprType.ARRAY_NUMBER &&
                             lenType != ExprType.ARRAY_STRING && lenType != ExprType.ARRAY_BOOL) {
                         throw new SemanticException("Linha " + node.getLine() + ": 'len' só aceita STRING ou arrays");
@@ -412,14 +952,14 @@ public class SemanticAnalyzer implements ASTVisitor {
                     if (args.size() != 1) {
                         throw new SemanticException("Linha " + node.getLine() + ": '" + funcName + "' requer exatamente 1 argumento");
                     }
-                    args.get(0).accept(this); // Aceita qualquer tipo
+                    typeOf(args.get(0)); // Aceita qualquer tipo
                     break;
 
                 case "sleep":
                     if (args.size() != 1) {
                         throw new SemanticException("Linha " + node.getLine() + ": 'sleep' requer exatamente 1 argumento");
                     }
-                    ExprType sleepType = args.get(0).accept(this);
+                    ExprType sleepType = typeOf(args.get(0));
                     if (sleepType != ExprType.NUMBER) {
                         throw new SemanticException("Linha " + node.getLine() + ": 'sleep' só aceita NUMBER");
                     }
@@ -429,18 +969,42 @@ public class SemanticAnalyzer implements ASTVisitor {
                     if (args.size() != 2) {
                         throw new SemanticException("Linha " + node.getLine() + ": 'split' requer exatamente 2 argumentos");
                     }
-                    ExprType strType = args.get(0).accept(this);
-                    ExprType delimType = args.get(1).accept(this);
+                    ExprType strType = typeOf(args.get(0));
+                    ExprType delimType = typeOf(args.get(1));
                     if (strType != ExprType.STRING || delimType != ExprType.STRING) {
                         throw new SemanticException("Linha " + node.getLine() + ": 'split' requer STRING como argumentos");
                     }
                     break;
 
+                case "zeros":
+                    if (args.size() != 1) {
+                        throw new SemanticException("Linha " + node.getLine() + ": 'zeros' requer exatamente 1 argumento");
+                    }
+                    if (typeOf(args.get(0)) != ExprType.NUMBER) {
+                        throw new SemanticException("Linha " + node.getLine() + ": 'zeros' requer NUMBER como tamanho");
+                    }
+                    break;
+
+                case "fill":
+                    if (args.size() != 2) {
+                        throw new SemanticException("Linha " + node.getLine() + ": 'fill' requer exatamente 2 argumentos");
+                    }
+                    if (typeOf(args.get(0)) != ExprType.NUMBER) {
+                        throw new SemanticException("Linha " + node.getLine() + ": 'fill' requer NUMBER como tamanho");
+                    }
+                    returnType = switch (typeOf(args.get(1))) {
+                        case NUMBER -> ExprType.ARRAY_NUMBER;
+                        case STRING -> ExprType.ARRAY_STRING;
+                        case BOOL -> ExprType.ARRAY_BOOL;
+                        default -> throw new SemanticException("Linha " + node.getLine() + ": 'fill' requer NUMBER, STRING ou BOOL como valor");
+                    };
+                    break;
+
                 case "isnum":
                     if (args.size() != 1) {
                         throw new SemanticException("Linha " + node.getLine() + ": 'isnum' requer exatamente 1 argumento");
                     }
-                    ExprType argType = args.get(0).accept(this);
+                    ExprType argType = typeOf(args.get(0));
                     if (argType != ExprType.STRING) {
                         throw new SemanticException("Linha " + node.getLine() + ": 'isnum' requer STRING como argumento");
                     }
@@ -449,7 +1013,7 @@ public class SemanticAnalyzer implements ASTVisitor {
                     if (args.size() != 1) {
                         throw new SemanticException("Linha " + node.getLine() + ": 'isalpha' requer exatamente 1 argumento");
                     }
-                    ExprType isAlphaType = args.get(0).accept(this);
+                    ExprType isAlphaType = typeOf(args.get(0));
                     if (isAlphaType != ExprType.STRING) {
                         throw new SemanticException("Linha " + node.getLine() + ": 'isalpha' requer STRING como argumento");
                     }
@@ -458,22 +1022,141 @@ public class SemanticAnalyzer implements ASTVisitor {
                     if (args.size() != 2) {
                         throw new SemanticException("Linha " + node.getLine() + ": 'send' requer exatamente 2 argumentos");
                     }
-                    ExprType channelType = args.get(0).accept(this);
-                    ExprType messageType = args.get(1).accept(this);
+                    ExprType channelType = typeOf(args.get(0));
+                    ExprType messageType = typeOf(args.get(1));
                     // Supondo que c_channel seja representado como STRING ou outro tipo específico
                     if (channelType != ExprType.STRING && messageType != ExprType.STRING) {
                         throw new SemanticException("Linha " + node.getLine() + ": 'send' requer c_channel e STRING como argumentos");
                     }
                     break;
+                case "send_batch":
+                    checkArgCount(node, 2);
+                    unshared(args.get(1)); // os pedidos só são lidos durante a chamada
+                    if (typeOf(args.get(0)) != ExprType.STRING || typeOf(args.get(1)) != ExprType.ARRAY_STRING) {
+                        throw new SemanticException("Linha " + node.getLine()
+                                + ": 'send_batch' requer c_channel e [string] como argumentos");
+                    }
+                    break;
+                case "send_async":
+                    checkArgCount(node, 2);
+                    if (typeOf(args.get(0)) != ExprType.STRING || typeOf(args.get(1)) != ExprType.STRING) {
+                        throw new SemanticException("Linha " + node.getLine()
+                                + ": 'send_async' requer c_channel e STRING como argumentos");
+                    }
+                    break;
+                case "recv":
+                    checkArgCount(node, 1);
+                    if (typeOf(args.get(0)) != ExprType.FUTURE || awaitedOf(args.get(0)) != ExprType.STRING) {
+                        throw new SemanticException("Linha " + node.getLine()
+                                + ": 'recv' requer o future<string> de um send_async");
+                    }
+                    break;
                 case "close":
                     if (args.size() != 1) {
                         throw new SemanticException("Linha " + node.getLine() + ": 'close' requer exatamente 1 argumento");
                     }
-                    ExprType closeChannelType = args.get(0).accept(this);
+                    ExprType closeChannelType = typeOf(args.get(0));
                     if (closeChannelType != ExprType.STRING) {
                         throw new SemanticException("Linha " + node.getLine() + ": 'close' requer c_channel como argumento");
                     }
                     break;
+                case "map": {
+                    checkArgCount(node, 2);
+                    ExprType arrayType = arrayArgument(node, 1);
+                    ExprType result = functionArgument(node, List.of(elementType(arrayType)));
+                    returnType = switch (result) {
+                        case NUMBER -> ExprType.ARRAY_NUMBER;
+                        case STRING -> ExprType.ARRAY_STRING;
+                        case BOOL -> ExprType.ARRAY_BOOL;
+                        default -> throw new SemanticException("Linha " + node.getLine()
+                                + ": 'map' requer uma função que retorna NUMBER, STRING ou BOOL");
+                    };
+                    hasPar = true; // a função roda em várias threads
+                    break;
+                }
+                case "filter": {
+                    checkArgCount(node, 2);
+                    ExprType arrayType = arrayArgument(node, 1);
+                    if (functionArgument(node, List.of(elementType(arrayType))) != ExprType.BOOL) {
+                        throw new SemanticException("Linha " + node.getLine() + ": 'filter' requer uma função que retorna BOOL");
+                    }
+                    returnType = arrayType;
+                    hasPar = true;
+                    break;
+                }
+                case "reduce": {
+                    checkArgCount(node, 3);
+                    ExprType arrayType = arrayArgument(node, 1);
+                    ExprType acc = typeOf(node.getArgs().get(2));
+                    if (functionArgument(node, List.of(acc, elementType(arrayType))) != acc) {
+                        throw new SemanticException("Linha " + node.getLine()
+                                + ": 'reduce' requer uma função que retorna " + acc + ", o tipo do valor inicial");
+                    }
+                    returnType = acc;
+                    break;
+                }
+                case "reduce_assoc": {
+                    // quem chama garante que a função é associativa: os blocos são reduzidos em paralelo
+                    checkArgCount(node, 3);
+                    ExprType element = elementType(arrayArgument(node, 1));
+                    if (typeOf(node.getArgs().get(2)) != element
+                            || functionArgument(node, List.of(element, element)) != element) {
+                        throw new SemanticException("Linha " + node.getLine() + ": 'reduce_assoc' requer uma função ("
+                                + element + ", " + element + ") -> " + element + " e valor inicial " + element
+                                + ", o tipo dos elementos");
+                    }
+                    returnType = element;
+                    hasPar = true;
+                    break;
+                }
+                case "sum":
+                    checkArgCount(node, 1);
+                    if (arrayArgument(node, 0) != ExprType.ARRAY_NUMBER) {
+                        throw new SemanticException("Linha " + node.getLine() + ": 'sum' requer [number]");
+                    }
+                    break;
+                case "atomic_add":
+                    checkArgCount(node, 2);
+                    atomicTarget(node);
+                    if (typeOf(args.get(1)) != ExprType.NUMBER) {
+                        throw new SemanticException("Linha " + node.getLine() + ": 'atomic_add' requer NUMBER como incremento");
+                    }
+                    break;
+                case "compare_and_set":
+                    checkArgCount(node, 3);
+                    atomicTarget(node);
+                    if (typeOf(args.get(1)) != ExprType.NUMBER || typeOf(args.get(2)) != ExprType.NUMBER) {
+                        throw new SemanticException("Linha " + node.getLine() + ": 'compare_and_set' requer NUMBER como valor esperado e novo valor");
+                    }
+                    break;
+                case "chan":
+                    checkArgCount(node, 1);
+                    if (typeOf(args.get(0)) != ExprType.NUMBER) {
+                        throw new SemanticException("Linha " + node.getLine() + ": 'chan' requer NUMBER como capacidade");
+                    }
+                    break;
+                case "chan_send": {
+                    checkArgCount(node, 2);
+                    ExprType element = channelArgument(node, args.get(0));
+                    ExprType sent = typeOf(args.get(1));
+                    if (sent != element) {
+                        throw new SemanticException("Linha " + node.getLine() + ": 'chan_send' não pode enviar "
+                                + sent + " por um canal de " + element);
+                    }
+                    break;
+                }
+                case "chan_recv":
+                    checkArgCount(node, 1);
+                    returnType = channelArgument(node, args.get(0));
+                    break;
+                case "select":
+                    if (args.isEmpty()) {
+                        throw new SemanticException("Linha " + node.getLine() + ": 'select' requer pelo menos 1 canal");
+                    }
+                    for (ExprNode arg : args) {
+                        channelArgument(node, arg);
+                    }
+                    break;
                 default:
                     throw new SemanticException("Linha " + node.getLine() + ": Função embutida '" + funcName + "' não implementada");
             }
@@ -483,8 +1166,27 @@ public class SemanticAnalyzer implements ASTVisitor {
 
         // Funções declaradas pelo usuário
         FuncDefNode fn = functions.get(funcName);
-        if (fn == null) {
-            throw new SemanticException("Linha " + node.getLine() + ": função '" + funcName + "' não declarada");
+        Symbol variable = fn == null ? findVar(funcName) : null;
+        if (variable != null && variable.getType() == ExprType.FUNC) {
+            // chamada por variável func: a assinatura é a da função que ela guarda
+            IdentifierNode callee = new IdentifierNode(funcName, node.getLine());
+            typeOf(callee);
+            node.setCallee(callee);
+            fn = variable.getSignature();
+            // qualquer função usada como valor com essa assinatura, conferida no fim
+            if (currentFunction != null) {
+                indirectCalls.computeIfAbsent(currentFunction, f -> new ArrayList<>()).add(fn);
+            }
+            if (parFor != null) {
+                parFor.indirect.add(fn);
+            }
+        } else {
+            if (fn == null) {
+                throw new SemanticException("Linha " + node.getLine() + ": função '" + funcName + "' não declarada");
+            }
+            checkReachable(fn, node.getLine());
+            node.setFunction(fn);
+            calls(fn);
         }
 
         List<Pair<String, String>> params = fn.getParams().entrySet().stream()
@@ -507,11 +1209,14 @@ public class SemanticAnalyzer implements ASTVisitor {
 
         // Verificação de tipos
         for (int i = 0; i < args.size(); i++) {
-            ExprType argType = args.get(i).accept(this); // Corrigido: usa args.get(i)
             ExprType paramType = ExprType.fromString(params.get(i).getSecond());
+            ExprType argType = newChannelAs(args.get(i), paramType, typeOf(args.get(i)));
             if (!isAssignable(paramType, argType)) {
                 throw new SemanticException("Linha " + node.getLine() + ": tipo inválido para argumento " + (i+1) + ": esperado " + paramType + ", recebido " + argType);
             }
+            if (paramType == ExprType.FUTURE) {
+                checkAwaited(awaitedType(params.get(i).getSecond()), args.get(i), node.getLine());
+            }
         }
 
         return ExprType.fromString(fn.getReturnType());
@@ -519,8 +1224,9 @@ public class SemanticAnalyzer implements ASTVisitor {
 
     @Override
     public ExprType visit(IndexNode node) throws SemanticException {
-        ExprType base = node.getTarget().accept(this);
-        ExprType idx = node.getIndex().accept(this);
+        unshared(node.getTarget());
+        ExprType base = typeOf(node.getTarget());
+        ExprType idx = typeOf(node.getIndex());
 
         // Valida o índice
         if (idx != ExprType.NUMBER) {
@@ -537,9 +1243,37 @@ public class SemanticAnalyzer implements ASTVisitor {
         };
     }
 
+    @Override
+    public ExprType visit(SpawnNode node) throws SemanticException {
+        CallNode call = node.getCall();
+        if (FuncoesEmbutidas.isFuncaoEmbutida(call.getFuncName())) {
+            throw new SemanticException("Linha " + node.getLine() + ": 'spawn' requer uma função declarada, e '"
+                    + call.getFuncName() + "' é embutida");
+        }
+        typeOf(call);
+        FuncDefNode fn = call.getFunction() != null
+                ? call.getFunction() : lookupVar(call.getFuncName(), call.getLine()).getSignature();
+        if (enclosingFunctions.containsKey(fn)) {
+            // o quadro da função de fora pode acabar (e ser reaproveitado) antes do await
+            throw new SemanticException("Linha " + node.getLine() + ": 'spawn' de função aninhada ('"
+                    + fn.getName() + "') não é suportado");
+        }
+        hasPar = true; // a chamada roda em outra thread
+        return ExprType.FUTURE;
+    }
+
+    @Override
+    public ExprType visit(AwaitNode node) throws SemanticException {
+        ExprType type = typeOf(node.getFuture());
+        if (type != ExprType.FUTURE) {
+            throw new SemanticException("Linha " + node.getLine() + ": 'await' requer um future, veio " + type);
+        }
+        return awaitedOf(node.getFuture());
+    }
+
     @Override
     public void visit(ExpressionStmt node) throws SemanticException {
-        node.getExpr().accept(this);
+        typeOf(node.getExpr());
     }
 
     @Override
@@ -563,9 +1297,9 @@ public class SemanticAnalyzer implements ASTVisitor {
             return ExprType.ARRAY_NUMBER; // Padrão, pode ser ajustado conforme contexto
         }
 
-        ExprType firstType = elems.get(0).accept(this);
+        ExprType firstType = typeOf(elems.get(0));
         for (int i = 1; i < elems.size(); i++) {
-            ExprType elemType = elems.get(i).accept(this);
+            ExprType elemType = typeOf(elems.get(i));
             if (firstType != elemType) {
                 throw new SemanticException("Linha " + node.getLine() +
                         ": elementos do array têm tipos diferentes: " +
@@ -582,10 +1316,118 @@ public class SemanticAnalyzer implements ASTVisitor {
     }
 
     // *** Auxiliar ***
-    private ExprType lookupVar(String name, int line) throws SemanticException {
-        for (Map<String, ExprType> scope : scopes) {
-            if (scope.containsKey(name)) return scope.get(name);
+    private Symbol lookupVar(String name, int line) throws SemanticException {
+        Symbol symbol = findVar(name);
+        if (symbol == null) {
+            throw new SemanticException("Linha " + line + ": variável '" + name + "' não declarada");
+        }
+        return symbol;
+    }
+
+    /** Variável visível com esse nome, ou null */
+    private Symbol findVar(String name) {
+        // do escopo mais interno para o mais externo
+        for (int i = scopes.size() - 1; i >= 0; i--) {
+            Symbol symbol = scopes.get(i).get(name);
+            if (symbol != null) return symbol;
+        }
+        return null;
+    }
+
+    /** Índice em 'scopes' do escopo que declara {@code name} */
+    private int scopeOf(String name) {
+        int i = scopes.size() - 1;
+        while (i > 0 && !scopes.get(i).containsKey(name)) {
+            i--;
+        }
+        return i;
+    }
+
+    /** Calcula o tipo da expressão e o registra no nó para os motores de execução */
+    private ExprType typeOf(ExprNode expr) throws SemanticException {
+        ExprType type = expr.accept(this);
+        expr.setExprType(type);
+        return type;
+    }
+
+    /** Anota o identificador com seu endereço léxico e retorna o tipo */
+    private ExprType resolve(IdentifierNode node) throws SemanticException {
+        Symbol symbol = lookupVar(node.getName(), node.getLine());
+        node.resolve(frame.level - symbol.getLevel(), symbol.getSlot());
+        int copies = 0;
+        for (ParFor p = parFor; p != null && symbol.getLevel() == frame.level && !p.locals.contains(symbol); p = p.outer) {
+            copies++;
+        }
+        node.setLoopCopies(copies);
+        // declarada fora do ramo (ou no escopo do 'par', visível aos ramos seguintes)
+        if (!parScopes.isEmpty() && scopeOf(node.getName()) <= parScopes.peek()) {
+            symbol.markConcurrent();
+        }
+        if (symbol.getLevel() < frame.level) {
+            outerUses.add(symbol);
+        }
+        uses.add(new Pair<>(node, symbol));
+        node.setExprType(symbol.getType());
+        return symbol.getType();
+    }
+
+    /**
+     * Registra a variável no escopo atual com o próximo slot livre do quadro.
+     * Variáveis NUMBER ficam num vetor double[] à parte, sem boxing.
+     */
+    private Symbol declare(String name, ExprType type) {
+        // slots não são reaproveitados entre blocos irmãos: ramos de 'par' podem rodar ao mesmo tempo
+        int slot = type == ExprType.NUMBER ? frame.numberSize++ : frame.size++;
+        Symbol symbol = new Symbol(name, type, frame.level, slot);
+        scopes.peek().put(name, symbol);
+        frameSymbols.computeIfAbsent(currentFunction, f -> new ArrayList<>()).add(symbol);
+        if (parFor != null) {
+            parFor.locals.add(symbol);
+        }
+        return symbol;
+    }
+
+    /**
+     * Uma função aninhada acessa o quadro da função que a envolve, então só
+     * pode ser chamada de dentro dela.
+     */
+    private void checkReachable(FuncDefNode fn, int line) throws SemanticException {
+        FuncDefNode owner = enclosingFunctions.get(fn);
+        if (owner == null) {
+            return;
+        }
+        for (FuncDefNode f = currentFunction; f != null; f = enclosingFunctions.get(f)) {
+            if (f == owner) {
+                return;
+            }
+        }
+        throw new SemanticException("Linha " + line + ": função '" + fn.getName()
+                + "' só pode ser chamada dentro de '" + owner.getName() + "'");
+    }
+
+    private static final class ParFor {
+        // variáveis declaradas no laço, que cada iteração tem só para si
+        final Set<Symbol> locals = Collections.newSetFromMap(new IdentityHashMap<>());
+        // funções que o corpo chama, e assinaturas das variáveis func que ele chama
+        final Set<FuncDefNode> calls = new LinkedHashSet<>();
+        final List<FuncDefNode> indirect = new ArrayList<>();
+        // 'par for' que envolve este no mesmo quadro
+        final ParFor outer;
+        final int line;
+
+        ParFor(ParFor outer, int line) {
+            this.outer = outer;
+            this.line = line;
+        }
+    }
+
+    private static final class FrameLayout {
+        final int level;
+        int size;
+        int numberSize;
+
+        FrameLayout(int level) {
+            this.level = level;
         }
-        throw new SemanticException("Linha " + line + ": variável '" + name + "' não declarada");
     }
 }
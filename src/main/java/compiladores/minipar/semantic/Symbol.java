@@ -0,0 +1,89 @@
+package compiladores.minipar.semantic;
+
+import compiladores.minipar.ast.stmt.FuncDefNode;
+
+/**
+ * Variável declarada: tipo e endereço léxico (nível do quadro e slot).
+ * O nível 0 é o quadro global; cada função aninhada soma 1. Variáveis
+ * NUMBER têm slot no vetor numérico do quadro, as demais no vetor de objetos.
+ */
+public class Symbol {
+    private final String name;
+    private final ExprType type;
+    private final int level;
+    private final int slot;
+    // o array da variável pode ter outra referência (parâmetro, alias, passado adiante)
+    private boolean shared;
+    // ramos de 'par' podem acessar a variável ao mesmo tempo
+    private boolean concurrent;
+    // alvo de atomic_add ou compare_and_set
+    private boolean atomic;
+    // variável func: função de mesma assinatura que ela guarda
+    private FuncDefNode signature;
+    // variável future<T>: o tipo T que 'await' devolve
+    private ExprType awaited;
+
+    public Symbol(String name, ExprType type, int level, int slot) {
+        this.name = name;
+        this.type = type;
+        this.level = level;
+        this.slot = slot;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public ExprType getType() {
+        return type;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public int getSlot() {
+        return slot;
+    }
+
+    public boolean isShared() {
+        return shared;
+    }
+
+    public void markShared() {
+        shared = true;
+    }
+
+    public FuncDefNode getSignature() {
+        return signature;
+    }
+
+    public void setSignature(FuncDefNode signature) {
+        this.signature = signature;
+    }
+
+    public ExprType getAwaited() {
+        return awaited;
+    }
+
+    public void setAwaited(ExprType awaited) {
+        this.awaited = awaited;
+    }
+
+    public boolean isConcurrent() {
+        return concurrent;
+    }
+
+    public void markConcurrent() {
+        concurrent = true;
+    }
+
+    public boolean isAtomic() {
+        return atomic;
+    }
+
+    public void markAtomic() {
+        atomic = true;
+        concurrent = true;
+    }
+}
@@ -19,10 +19,27 @@ public class FuncoesEmbutidas {
         funcoes.put("to_bool", ExprType.BOOL);
         funcoes.put("sleep", ExprType.VOID);
         funcoes.put("split", ExprType.ARRAY_STRING);
+        funcoes.put("zeros", ExprType.ARRAY_NUMBER);
+        funcoes.put("fill", ExprType.ARRAY_NUMBER); // o tipo real vem do valor
         funcoes.put("isnum", ExprType.BOOL);
         funcoes.put("isalpha", ExprType.BOOL);
         funcoes.put("send", ExprType.STRING);
+        funcoes.put("send_batch", ExprType.ARRAY_STRING);
+        funcoes.put("send_async", ExprType.FUTURE);
+        funcoes.put("recv", ExprType.STRING);
         funcoes.put("close", ExprType.VOID);
+        // recebem uma func; o tipo real vem da assinatura dela
+        funcoes.put("map", ExprType.ARRAY_NUMBER);
+        funcoes.put("filter", ExprType.ARRAY_NUMBER);
+        funcoes.put("reduce", ExprType.NUMBER);
+        funcoes.put("reduce_assoc", ExprType.NUMBER);
+        funcoes.put("sum", ExprType.NUMBER);
+        funcoes.put("atomic_add", ExprType.NUMBER);
+        funcoes.put("compare_and_set", ExprType.BOOL);
+        funcoes.put("chan", ExprType.CHAN_NUMBER); // o tipo real vem da declaração
+        funcoes.put("chan_send", ExprType.VOID);
+        funcoes.put("chan_recv", ExprType.NUMBER);
+        funcoes.put("select", ExprType.NUMBER);
     }
 
     public static boolean isFuncaoEmbutida(String nome) {
@@ -0,0 +1,321 @@
+package compiladores.minipar.vm;
+
+import compiladores.minipar.ast.core.ProgramNode;
+import compiladores.minipar.ast.expr.*;
+import compiladores.minipar.ast.stmt.*;
+import compiladores.minipar.semantic.ExprType;
+import compiladores.minipar.utils.FuncoesEmbutidas;
+import compiladores.minipar.utils.Pair;
+
+import java.util.*;
+
+/**
+ * Compila a AST já verificada pelo SemanticAnalyzer para o bytecode da VM.
+ * Variáveis usam o endereço léxico que o SemanticAnalyzer anotou nos nós,
+ * então a VM enxerga exatamente os escopos do analisador: as do nível global
+ * viram slots do vetor de globais e as de função viram slots locais.
+ */
+public class BytecodeCompiler {
+    private final List<Chunk> functions = new ArrayList<>();
+    private final Map<String, Integer> functionIndex = new HashMap<>();
+
+    // slots de objetos do quadro global; os numéricos vêm depois deles
+    private int globalObjects;
+
+    // contexto da função sendo compilada (function == null no nível global)
+    private Chunk chunk;
+    private FuncDefNode function;
+    private Deque<Loop> loops = new ArrayDeque<>();
+
+    public CompiledProgram compile(ProgramNode program) {
+        chunk = new Chunk("<main>", 0);
+        globalObjects = program.getFrameSize();
+        for (StmtNode stmt : program.getStatements()) {
+            compileStmt(stmt);
+        }
+        chunk.emit(program.getLine(), OpCode.HALT);
+        return new CompiledProgram(chunk, functions, program.getFrameSize() + program.getNumberFrameSize());
+    }
+
+    // ---------- statements ----------
+
+    private void compileStmt(StmtNode stmt) {
+        int line = stmt.getLine();
+        switch (stmt) {
+            case DeclarationNode node -> {
+                compileExpr(node.getInit());
+                // o analisador só abre quadro novo em funções: dentro de uma, toda declaração é local
+                emitStore(function != null, ExprType.fromString(node.getTypeName()), node.getSlot(), line);
+            }
+            case AssignmentNode node -> compileAssignment(node);
+            case ExpressionStmt node -> {
+                compileExpr(node.getExpr());
+                chunk.emit(line, OpCode.POP);
+            }
+            case IfNode node -> {
+                compileExpr(node.getCond());
+                int toElse = chunk.emitJump(line, OpCode.JUMP_IF_FALSE);
+                compileBlock(node.getThenBranch());
+                if (node.getElseBranch() != null) {
+                    int toEnd = chunk.emitJump(line, OpCode.JUMP);
+                    chunk.patchJump(toElse);
+                    compileBlock(node.getElseBranch());
+                    chunk.patchJump(toEnd);
+                } else {
+                    chunk.patchJump(toElse);
+                }
+            }
+            case WhileNode node -> {
+                int start = chunk.position();
+                compileExpr(node.getCond());
+                int exit = chunk.emitJump(line, OpCode.JUMP_IF_FALSE);
+                Loop loop = new Loop();
+                loops.push(loop);
+                compileBlock(node.getBody());
+                loops.pop();
+                loop.patchContinues(chunk);
+                chunk.emitLoop(line, start);
+                chunk.patchJump(exit);
+                loop.patchBreaks(chunk);
+            }
+            case ForNode node when node.isParallel() ->
+                    throw new CompileException("Linha " + line + ": 'par for' ainda não é suportado pela VM");
+            case ForNode node -> {
+                // como no analisador, o índice declarado no init continua visível depois do laço
+                compileStmt(node.getInit());
+                int start = chunk.position();
+                compileExpr(node.getCondition());
+                int exit = chunk.emitJump(line, OpCode.JUMP_IF_FALSE);
+                Loop loop = new Loop();
+                loops.push(loop);
+                compileBlock(node.getBody());
+                loops.pop();
+                loop.patchContinues(chunk);
+                compileStmt(node.getUpdate());
+                chunk.emitLoop(line, start);
+                chunk.patchJump(exit);
+                loop.patchBreaks(chunk);
+            }
+            case BreakNode node -> {
+                if (loops.isEmpty()) {
+                    throw new CompileException("Linha " + line + ": 'break' fora de laço");
+                }
+                loops.peek().breaks.add(chunk.emitJump(line, OpCode.JUMP));
+            }
+            case ContinueNode node -> {
+                if (loops.isEmpty()) {
+                    throw new CompileException("Linha " + line + ": 'continue' fora de laço");
+                }
+                loops.peek().continues.add(chunk.emitJump(line, OpCode.JUMP));
+            }
+            case ReturnNode node -> {
+                compileExpr(node.getExpr());
+                chunk.emit(line, OpCode.RETURN);
+            }
+            case FuncDefNode node -> compileFunction(node);
+            case BlockNode node -> compileBlock(node);
+            case SeqNode node -> compileBlock(node.getBody());
+            case ParNode node ->
+                    throw new CompileException("Linha " + line + ": 'par' ainda não é suportado pela VM");
+            case PublishNode node ->
+                    throw new CompileException("Linha " + line + ": 'publish' ainda não é suportado pela VM");
+            case ChannelNode node ->
+                    throw new CompileException("Linha " + line + ": canais ainda não são suportados pela VM");
+            default ->
+                    throw new CompileException("Linha " + line + ": comando não suportado: "
+                            + stmt.getClass().getSimpleName());
+        }
+    }
+
+    private void compileBlock(BlockNode block) {
+        for (StmtNode stmt : block.getStmts()) {
+            compileStmt(stmt);
+        }
+    }
+
+    private void compileAssignment(AssignmentNode node) {
+        int line = node.getLine();
+        ExprNode target = node.getTarget();
+        if (target instanceof IdentifierNode idNode && node.isAppendInPlace()) {
+            BinaryOpNode value = (BinaryOpNode) node.getValue();
+            compileExpr(value.getLeft());
+            compileExpr(value.getRight());
+            chunk.emit(line, OpCode.APPEND);
+            emitStore(idNode, line);
+        } else if (target instanceof IdentifierNode idNode) {
+            compileExpr(node.getValue());
+            emitStore(idNode, line);
+        } else if (target instanceof IndexNode idxNode) {
+            // mesma ordem de avaliação do Interpreter: valor, array, índice
+            compileExpr(node.getValue());
+            compileExpr(idxNode.getTarget());
+            compileExpr(idxNode.getIndex());
+            chunk.emit(line, OpCode.STORE_INDEX);
+        } else {
+            throw new CompileException("Linha " + line + ": target inesperado em atribuição: "
+                    + target.getClass().getSimpleName());
+        }
+    }
+
+    private void compileFunction(FuncDefNode node) {
+        if (function != null) {
+            throw new CompileException("Linha " + node.getLine() + ": funções aninhadas ainda não são suportadas pela VM");
+        }
+        int argc = node.getParams().size();
+        Chunk fn = new Chunk(node.getName(), argc);
+        functionIndex.put(node.getName(), functions.size());
+        functions.add(fn);
+
+        Chunk outerChunk = chunk;
+        Deque<Loop> outerLoops = loops;
+        chunk = fn;
+        loops = new ArrayDeque<>();
+        function = node;
+
+        // os argumentos chegam nos locais [0, argc); cada um vai para o slot que o analisador deu ao parâmetro
+        int[] paramSlots = node.getParamSlots();
+        int p = 0;
+        for (Pair<String, ExprNode> param : node.getParams().values()) {
+            fn.emit(node.getLine(), OpCode.LOAD_LOCAL, p);
+            emitStore(true, ExprType.fromString(param.getFirst()), paramSlots[p], node.getLine());
+            p++;
+        }
+        compileBlock(node.getBody());
+        // função sem return explícito devolve null
+        fn.emit(node.getLine(), OpCode.CONST, fn.addConstant(null));
+        fn.emit(node.getLine(), OpCode.RETURN);
+        fn.setLocalCount(argc + node.getFrameSize() + node.getNumberFrameSize());
+
+        chunk = outerChunk;
+        loops = outerLoops;
+        function = null;
+    }
+
+    // ---------- expressões ----------
+
+    private void compileExpr(ExprNode expr) {
+        int line = expr.getLine();
+        switch (expr) {
+            case LiteralNode node -> chunk.emit(line, OpCode.CONST, chunk.addConstant(node.getValue()));
+            case IdentifierNode node when node.getFunction() != null ->
+                    throw new CompileException("Linha " + line + ": funções como valores ainda não são suportadas pela VM");
+            case IdentifierNode node -> emitLoad(node, line);
+            case BinaryOpNode node -> {
+                compileExpr(node.getLeft());
+                compileExpr(node.getRight());
+                chunk.emit(line, binaryOpCode(node.getOp()));
+            }
+            case UnaryOpNode node -> {
+                compileExpr(node.getExpr());
+                chunk.emit(line, node.getOp() == UnaryOp.NEG ? OpCode.NEG : OpCode.NOT);
+            }
+            case IndexNode node -> {
+                compileExpr(node.getTarget());
+                compileExpr(node.getIndex());
+                chunk.emit(line, OpCode.INDEX);
+            }
+            case ArrayLiteralNode node -> {
+                for (ExprNode elem : node.getElements()) {
+                    compileExpr(elem);
+                }
+                chunk.emit(line, OpCode.NEW_ARRAY, node.getElements().size());
+            }
+            case CallNode node -> compileCall(node);
+            case SpawnNode node -> throw new CompileException("Linha " + line + ": 'spawn' ainda não é suportado pela VM");
+            case AwaitNode node -> throw new CompileException("Linha " + line + ": 'await' ainda não é suportado pela VM");
+            default -> throw new CompileException("Linha " + line + ": expressão não suportada: "
+                    + expr.getClass().getSimpleName());
+        }
+    }
+
+    private void compileCall(CallNode node) {
+        int line = node.getLine();
+        if (node.getCallee() != null) {
+            throw new CompileException("Linha " + line + ": funções como valores ainda não são suportadas pela VM");
+        }
+        if (node.getFuncName().equals("atomic_add") || node.getFuncName().equals("compare_and_set")) {
+            throw new CompileException("Linha " + line + ": '" + node.getFuncName() + "' ainda não é suportado pela VM");
+        }
+        for (ExprNode arg : node.getArgs()) {
+            compileExpr(arg);
+        }
+        int argc = node.getArgs().size();
+        if (FuncoesEmbutidas.isFuncaoEmbutida(node.getFuncName())) {
+            chunk.emit(line, OpCode.CALL_BUILTIN, chunk.addConstant(node.getFuncName()), argc);
+            return;
+        }
+        Integer index = functionIndex.get(node.getFuncName());
+        if (index == null) {
+            throw new CompileException("Linha " + line + ": função não definida: " + node.getFuncName());
+        }
+        chunk.emit(line, OpCode.CALL, index, argc);
+    }
+
+    private static int binaryOpCode(BinaryOp op) {
+        return switch (op) {
+            case ADD -> OpCode.ADD;
+            case SUB -> OpCode.SUB;
+            case MUL -> OpCode.MUL;
+            case DIV -> OpCode.DIV;
+            case MOD -> OpCode.MOD;
+            case EQ -> OpCode.EQ;
+            case NE -> OpCode.NE;
+            case LT -> OpCode.LT;
+            case LE -> OpCode.LE;
+            case GT -> OpCode.GT;
+            case GE -> OpCode.GE;
+            case AND -> OpCode.AND;
+            case OR -> OpCode.OR;
+        };
+    }
+
+    // ---------- variáveis ----------
+
+    private void emitLoad(IdentifierNode node, int line) {
+        boolean local = isLocal(node);
+        chunk.emit(line, local ? OpCode.LOAD_LOCAL : OpCode.LOAD_GLOBAL,
+                slot(local, node.getExprType(), node.getSlot()));
+    }
+
+    private void emitStore(IdentifierNode node, int line) {
+        emitStore(isLocal(node), node.getExprType(), node.getSlot(), line);
+    }
+
+    private void emitStore(boolean local, ExprType type, int slot, int line) {
+        chunk.emit(line, local ? OpCode.STORE_LOCAL : OpCode.STORE_GLOBAL, slot(local, type, slot));
+    }
+
+    /** Dentro de uma função (sempre global na VM), profundidade 0 é o quadro dela */
+    private boolean isLocal(IdentifierNode node) {
+        return function != null && node.getDepth() == 0;
+    }
+
+    /**
+     * O analisador numera à parte os slots de objetos e os numéricos; na VM
+     * eles ficam num vetor só, com os numéricos depois dos objetos. Os locais
+     * de uma função começam depois dos argumentos.
+     */
+    private int slot(boolean local, ExprType type, int slot) {
+        int objects = local ? function.getFrameSize() : globalObjects;
+        int base = local ? function.getParams().size() : 0;
+        return base + (type == ExprType.NUMBER ? objects + slot : slot);
+    }
+
+    /** Saltos de break/continue pendentes de um laço */
+    private static final class Loop {
+        final List<Integer> breaks = new ArrayList<>();
+        final List<Integer> continues = new ArrayList<>();
+
+        void patchBreaks(Chunk chunk) {
+            for (int pos : breaks) {
+                chunk.patchJump(pos);
+            }
+        }
+
+        void patchContinues(Chunk chunk) {
+            for (int pos : continues) {
+                chunk.patchJump(pos);
+            }
+        }
+    }
+}
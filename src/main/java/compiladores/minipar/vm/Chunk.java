@@ -0,0 +1,155 @@
+package compiladores.minipar.vm;
+
+import java.util.*;
+
+/**
+ * Unidade de código da VM: uma função (ou o programa principal) com seu
+ * bytecode, tabela de linhas, pool de constantes e número de slots locais.
+ */
+public final class Chunk {
+    private final String name;
+    private final int arity;
+    private int[] code = new int[64];
+    private int[] lines = new int[64];
+    private int size;
+    private Object[] constants = new Object[8];
+    private int constantCount;
+    private final Map<Object, Integer> constantIndex = new HashMap<>();
+    private int localCount;
+    private int maxStack;
+    private int depth;
+
+    public Chunk(String name, int arity) {
+        this.name = name;
+        this.arity = arity;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getArity() {
+        return arity;
+    }
+
+    public int[] getCode() {
+        return code;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getLocalCount() {
+        return localCount;
+    }
+
+    public int getMaxStack() {
+        return maxStack;
+    }
+
+    public Object[] getConstants() {
+        return constants;
+    }
+
+    /** Linha do fonte que gerou a instrução em {@code ip} */
+    public int lineAt(int ip) {
+        return lines[ip];
+    }
+
+    void setLocalCount(int localCount) {
+        this.localCount = localCount;
+    }
+
+    int addConstant(Object value) {
+        // Double(1.0) e Boolean(true) são chaves distintas, então não há colisão entre tipos
+        Integer k = constantIndex.get(value);
+        if (k == null) {
+            k = constantCount++;
+            if (k == constants.length) {
+                constants = Arrays.copyOf(constants, k * 2);
+            }
+            constants[k] = value;
+            constantIndex.put(value, k);
+        }
+        return k;
+    }
+
+    /** Emite uma instrução e retorna sua posição */
+    int emit(int line, int op, int... operands) {
+        int at = size;
+        put(op, line);
+        for (int operand : operands) {
+            put(operand, line);
+        }
+        depth += stackEffect(op, operands);
+        maxStack = Math.max(maxStack, depth);
+        return at;
+    }
+
+    /** Emite um salto com deslocamento a ser corrigido e retorna a posição do operando */
+    int emitJump(int line, int op) {
+        emit(line, op, 0);
+        return size - 1;
+    }
+
+    /** Corrige o salto em {@code operandPos} para cair na posição atual */
+    void patchJump(int operandPos) {
+        code[operandPos] = size - (operandPos + 1);
+    }
+
+    /** Emite um salto para trás até {@code target} */
+    void emitLoop(int line, int target) {
+        emit(line, OpCode.JUMP, target - (size + 2));
+    }
+
+    int position() {
+        return size;
+    }
+
+    private void put(int value, int line) {
+        if (size == code.length) {
+            code = Arrays.copyOf(code, size * 2);
+            lines = Arrays.copyOf(lines, size * 2);
+        }
+        code[size] = value;
+        lines[size] = line;
+        size++;
+    }
+
+    private static int stackEffect(int op, int[] operands) {
+        return switch (op) {
+            case OpCode.CONST, OpCode.LOAD_LOCAL, OpCode.LOAD_GLOBAL -> 1;
+            case OpCode.STORE_LOCAL, OpCode.STORE_GLOBAL, OpCode.JUMP_IF_FALSE, OpCode.POP,
+                 OpCode.RETURN -> -1;
+            case OpCode.ADD, OpCode.SUB, OpCode.MUL, OpCode.DIV, OpCode.MOD,
+                 OpCode.EQ, OpCode.NE, OpCode.LT, OpCode.LE, OpCode.GT, OpCode.GE,
+                 OpCode.AND, OpCode.OR, OpCode.INDEX, OpCode.APPEND -> -1;
+            case OpCode.STORE_INDEX -> -3;
+            case OpCode.CALL, OpCode.CALL_BUILTIN -> 1 - operands[1];
+            case OpCode.NEW_ARRAY -> 1 - operands[0];
+            default -> 0;
+        };
+    }
+
+    /** Listagem legível do bytecode, útil para depuração */
+    public String disassemble() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("== ").append(name).append(" (args=").append(arity)
+                .append(", locais=").append(localCount).append(") ==\n");
+        int ip = 0;
+        while (ip < size) {
+            int op = code[ip];
+            sb.append(String.format("%04d  L%-4d %-14s", ip, lines[ip], OpCode.name(op)));
+            for (int i = 1; i <= OpCode.operandCount(op); i++) {
+                sb.append(' ').append(code[ip + i]);
+            }
+            if (op == OpCode.CONST) {
+                sb.append("    ; ").append(constants[code[ip + 1]]);
+            }
+            sb.append('\n');
+            ip += 1 + OpCode.operandCount(op);
+        }
+        return sb.toString();
+    }
+}
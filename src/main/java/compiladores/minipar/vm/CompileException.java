@@ -0,0 +1,12 @@
+package compiladores.minipar.vm;
+
+/**
+ * Construção que o compilador de bytecode ainda não suporta
+ */
+public class CompileException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public CompileException(String message) {
+        super(message);
+    }
+}
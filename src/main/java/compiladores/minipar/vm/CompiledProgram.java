@@ -0,0 +1,38 @@
+package compiladores.minipar.vm;
+
+import java.util.List;
+
+/**
+ * Resultado da compilação: código do programa principal e das funções
+ */
+public final class CompiledProgram {
+    private final Chunk main;
+    private final Chunk[] functions;
+    private final int globalCount;
+
+    public CompiledProgram(Chunk main, List<Chunk> functions, int globalCount) {
+        this.main = main;
+        this.functions = functions.toArray(new Chunk[0]);
+        this.globalCount = globalCount;
+    }
+
+    public Chunk getMain() {
+        return main;
+    }
+
+    public Chunk[] getFunctions() {
+        return functions;
+    }
+
+    public int getGlobalCount() {
+        return globalCount;
+    }
+
+    public String disassemble() {
+        StringBuilder sb = new StringBuilder(main.disassemble());
+        for (Chunk fn : functions) {
+            sb.append('\n').append(fn.disassemble());
+        }
+        return sb.toString();
+    }
+}
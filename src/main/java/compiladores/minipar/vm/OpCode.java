@@ -0,0 +1,65 @@
+package compiladores.minipar.vm;
+
+/**
+ * Instruções da VM. O código é um int[]: cada instrução ocupa uma posição
+ * seguida de seus operandos. Saltos usam deslocamento relativo à instrução
+ * seguinte.
+ */
+public final class OpCode {
+    public static final int CONST = 0;          // k         -> empilha constants[k]
+    public static final int LOAD_LOCAL = 1;     // slot
+    public static final int STORE_LOCAL = 2;    // slot
+    public static final int LOAD_GLOBAL = 3;    // slot
+    public static final int STORE_GLOBAL = 4;   // slot
+    public static final int ADD = 5;
+    public static final int SUB = 6;
+    public static final int MUL = 7;
+    public static final int DIV = 8;
+    public static final int MOD = 9;
+    public static final int EQ = 10;
+    public static final int NE = 11;
+    public static final int LT = 12;
+    public static final int LE = 13;
+    public static final int GT = 14;
+    public static final int GE = 15;
+    public static final int AND = 16;
+    public static final int OR = 17;
+    public static final int NEG = 18;
+    public static final int NOT = 19;
+    public static final int JUMP = 20;          // deslocamento
+    public static final int JUMP_IF_FALSE = 21; // deslocamento
+    public static final int CALL = 22;          // índice da função, nº de argumentos
+    public static final int CALL_BUILTIN = 23;  // k (nome), nº de argumentos
+    public static final int RETURN = 24;
+    public static final int POP = 25;
+    public static final int NEW_ARRAY = 26;     // nº de elementos
+    public static final int INDEX = 27;
+    public static final int STORE_INDEX = 28;
+    public static final int HALT = 29;
+    public static final int APPEND = 30;        // a = a + x sem copiar o array
+
+    private static final String[] NAMES = {
+            "CONST", "LOAD_LOCAL", "STORE_LOCAL", "LOAD_GLOBAL", "STORE_GLOBAL",
+            "ADD", "SUB", "MUL", "DIV", "MOD",
+            "EQ", "NE", "LT", "LE", "GT", "GE", "AND", "OR", "NEG", "NOT",
+            "JUMP", "JUMP_IF_FALSE", "CALL", "CALL_BUILTIN", "RETURN", "POP",
+            "NEW_ARRAY", "INDEX", "STORE_INDEX", "HALT", "APPEND"
+    };
+
+    private OpCode() {
+    }
+
+    public static String name(int op) {
+        return NAMES[op];
+    }
+
+    /** Quantidade de operandos que seguem a instrução no código */
+    public static int operandCount(int op) {
+        return switch (op) {
+            case CONST, LOAD_LOCAL, STORE_LOCAL, LOAD_GLOBAL, STORE_GLOBAL,
+                 JUMP, JUMP_IF_FALSE, NEW_ARRAY -> 1;
+            case CALL, CALL_BUILTIN -> 2;
+            default -> 0;
+        };
+    }
+}
@@ -0,0 +1,326 @@
+package compiladores.minipar.vm;
+
+import compiladores.minipar.interpreter.Builtins;
+import compiladores.minipar.interpreter.ClientConnection;
+import compiladores.minipar.interpreter.Interpreter;
+import compiladores.minipar.interpreter.MiniParArray;
+
+import java.util.*;
+
+/**
+ * Máquina de pilha que executa o bytecode gerado pelo BytecodeCompiler.
+ * Os locais de cada chamada ficam na própria pilha de valores, a partir do
+ * ponteiro de base (bp) da chamada.
+ */
+public class VirtualMachine {
+    private static final int MAX_FRAMES = 1 << 16;
+
+    private final CompiledProgram program;
+    private final Object[] globals;
+    private final Builtins builtins = new Builtins(new HashMap<String, ClientConnection>());
+
+    private Object[] stack = new Object[1024];
+
+    // pilha de chamadas: função, ip de retorno e base de cada quadro
+    private Chunk[] frameChunks = new Chunk[64];
+    private int[] frameIps = new int[64];
+    private int[] frameBases = new int[64];
+
+    public VirtualMachine(CompiledProgram program) {
+        this.program = program;
+        this.globals = new Object[program.getGlobalCount()];
+    }
+
+    public void run() {
+        Chunk chunk = program.getMain();
+        Chunk[] functions = program.getFunctions();
+        int[] code = chunk.getCode();
+        Object[] constants = chunk.getConstants();
+        Object[] globals = this.globals;
+        Object[] stack = this.stack;
+        if (chunk.getMaxStack() >= stack.length) {
+            stack = growStack(chunk.getMaxStack());
+        }
+        int ip = 0;
+        int bp = 0;
+        int sp = 0;
+        int fp = 0;
+
+        try {
+            while (true) {
+                switch (code[ip++]) {
+                    case OpCode.CONST:
+                        stack[sp++] = constants[code[ip++]];
+                        break;
+                    case OpCode.LOAD_LOCAL:
+                        stack[sp++] = stack[bp + code[ip++]];
+                        break;
+                    case OpCode.STORE_LOCAL:
+                        stack[bp + code[ip++]] = stack[--sp];
+                        break;
+                    case OpCode.LOAD_GLOBAL:
+                        stack[sp++] = globals[code[ip++]];
+                        break;
+                    case OpCode.STORE_GLOBAL:
+                        globals[code[ip++]] = stack[--sp];
+                        break;
+                    case OpCode.ADD: {
+                        Object right = stack[--sp];
+                        Object left = stack[sp - 1];
+                        stack[sp - 1] = add(left, right);
+                        break;
+                    }
+                    case OpCode.SUB: {
+                        double right = number(stack[--sp], "-");
+                        stack[sp - 1] = number(stack[sp - 1], "-") - right;
+                        break;
+                    }
+                    case OpCode.MUL: {
+                        double right = number(stack[--sp], "*");
+                        stack[sp - 1] = number(stack[sp - 1], "*") * right;
+                        break;
+                    }
+                    case OpCode.DIV: {
+                        double right = number(stack[--sp], "/");
+                        stack[sp - 1] = number(stack[sp - 1], "/") / right;
+                        break;
+                    }
+                    case OpCode.MOD: {
+                        double right = number(stack[--sp], "%");
+                        stack[sp - 1] = number(stack[sp - 1], "%") % right;
+                        break;
+                    }
+                    case OpCode.EQ: {
+                        Object right = stack[--sp];
+                        Object left = stack[sp - 1];
+                        stack[sp - 1] = Interpreter.equal(left, right);
+                        break;
+                    }
+                    case OpCode.NE: {
+                        Object right = stack[--sp];
+                        Object left = stack[sp - 1];
+                        stack[sp - 1] = !Interpreter.equal(left, right);
+                        break;
+                    }
+                    case OpCode.LT: {
+                        double right = number(stack[--sp], "<");
+                        stack[sp - 1] = number(stack[sp - 1], "<") < right;
+                        break;
+                    }
+                    case OpCode.LE: {
+                        double right = number(stack[--sp], "<=");
+                        stack[sp - 1] = number(stack[sp - 1], "<=") <= right;
+                        break;
+                    }
+                    case OpCode.GT: {
+                        double right = number(stack[--sp], ">");
+                        stack[sp - 1] = number(stack[sp - 1], ">") > right;
+                        break;
+                    }
+                    case OpCode.GE: {
+                        double right = number(stack[--sp], ">=");
+                        stack[sp - 1] = number(stack[sp - 1], ">=") >= right;
+                        break;
+                    }
+                    case OpCode.AND: {
+                        boolean right = bool(stack[--sp], "&&");
+                        stack[sp - 1] = bool(stack[sp - 1], "&&") && right;
+                        break;
+                    }
+                    case OpCode.OR: {
+                        boolean right = bool(stack[--sp], "||");
+                        stack[sp - 1] = bool(stack[sp - 1], "||") || right;
+                        break;
+                    }
+                    case OpCode.NEG:
+                        if (!(stack[sp - 1] instanceof Number n)) {
+                            throw new RuntimeException("Tipo inválido para operação: -");
+                        }
+                        stack[sp - 1] = -n.doubleValue();
+                        break;
+                    case OpCode.NOT:
+                        if (!(stack[sp - 1] instanceof Boolean b)) {
+                            throw new RuntimeException("Tipo inválido para operação: !");
+                        }
+                        stack[sp - 1] = !b;
+                        break;
+                    case OpCode.JUMP: {
+                        int offset = code[ip++];
+                        ip += offset;
+                        break;
+                    }
+                    case OpCode.JUMP_IF_FALSE: {
+                        int offset = code[ip++];
+                        if (!(stack[--sp] instanceof Boolean cond)) {
+                            throw new RuntimeException("Condição deve ser booleana");
+                        }
+                        if (!cond) {
+                            ip += offset;
+                        }
+                        break;
+                    }
+                    case OpCode.CALL: {
+                        Chunk callee = functions[code[ip++]];
+                        int argc = code[ip++];
+                        if (fp + 1 == frameChunks.length) {
+                            growFrames();
+                        }
+                        frameChunks[fp] = chunk;
+                        frameIps[fp] = ip;
+                        frameBases[fp] = bp;
+                        fp++;
+
+                        bp = sp - argc;
+                        int top = bp + callee.getLocalCount();
+                        if (top + callee.getMaxStack() >= stack.length) {
+                            stack = growStack(top + callee.getMaxStack());
+                        }
+                        // locais que não são parâmetros começam vazios
+                        Arrays.fill(stack, sp, top, null);
+                        sp = top;
+                        chunk = callee;
+                        code = chunk.getCode();
+                        constants = chunk.getConstants();
+                        ip = 0;
+                        break;
+                    }
+                    case OpCode.CALL_BUILTIN: {
+                        String name = (String) constants[code[ip++]];
+                        int argc = code[ip++];
+                        Object[] args = new Object[argc];
+                        sp -= argc;
+                        System.arraycopy(stack, sp, args, 0, argc);
+                        stack[sp++] = builtins.call(name, args);
+                        break;
+                    }
+                    case OpCode.RETURN: {
+                        Object result = stack[--sp];
+                        Arrays.fill(stack, bp, sp, null);
+                        sp = bp;
+                        fp--;
+                        chunk = frameChunks[fp];
+                        ip = frameIps[fp];
+                        bp = frameBases[fp];
+                        frameChunks[fp] = null;
+                        code = chunk.getCode();
+                        constants = chunk.getConstants();
+                        stack[sp++] = result;
+                        break;
+                    }
+                    case OpCode.POP:
+                        stack[--sp] = null;
+                        break;
+                    case OpCode.NEW_ARRAY: {
+                        int n = code[ip++];
+                        MiniParArray elements = MiniParArray.forElement(n > 0 ? stack[sp - n] : null, n);
+                        for (int i = sp - n; i < sp; i++) {
+                            elements.add(stack[i]);
+                            stack[i] = null;
+                        }
+                        sp -= n;
+                        stack[sp++] = elements;
+                        break;
+                    }
+                    case OpCode.APPEND: {
+                        Object value = stack[--sp];
+                        stack[sp - 1] = MiniParArray.appendInPlace(stack[sp - 1], value);
+                        stack[sp] = null;
+                        break;
+                    }
+                    case OpCode.INDEX: {
+                        Object index = stack[--sp];
+                        Object base = stack[sp - 1];
+                        stack[sp - 1] = index(base, index);
+                        break;
+                    }
+                    case OpCode.STORE_INDEX: {
+                        int line = chunk.lineAt(ip - 1);
+                        Object idxVal = stack[--sp];
+                        Object arrayObj = stack[--sp];
+                        Object val = stack[--sp];
+                        storeIndex(arrayObj, idxVal, val, line);
+                        break;
+                    }
+                    case OpCode.HALT:
+                        return;
+                    default:
+                        throw new IllegalStateException("Instrução inválida: " + code[ip - 1]);
+                }
+            }
+        } finally {
+            this.stack = stack;
+        }
+    }
+
+    private void growFrames() {
+        if (frameChunks.length >= MAX_FRAMES) {
+            throw new RuntimeException("Estouro da pilha de chamadas");
+        }
+        int n = frameChunks.length * 2;
+        frameChunks = Arrays.copyOf(frameChunks, n);
+        frameIps = Arrays.copyOf(frameIps, n);
+        frameBases = Arrays.copyOf(frameBases, n);
+    }
+
+    private Object[] growStack(int needed) {
+        int n = stack.length;
+        while (n <= needed) {
+            n *= 2;
+        }
+        stack = Arrays.copyOf(stack, n);
+        return stack;
+    }
+
+    private static double number(Object value, String op) {
+        if (value instanceof Number n) {
+            return n.doubleValue();
+        }
+        throw new RuntimeException("Tipos incompatíveis para operação: " + op);
+    }
+
+    private static boolean bool(Object value, String op) {
+        if (value instanceof Boolean b) {
+            return b;
+        }
+        throw new RuntimeException("Tipos incompatíveis para operação: " + op);
+    }
+
+    private static Object add(Object left, Object right) {
+        if (left instanceof Number l && right instanceof Number r) {
+            return l.doubleValue() + r.doubleValue();
+        }
+        if (left instanceof List<?> l) {
+            return right instanceof List<?> r ? MiniParArray.concat(l, r) : MiniParArray.append(l, right);
+        }
+        if (left instanceof String l && right instanceof String r) {
+            return l + r;
+        }
+        throw new RuntimeException("Tipos incompatíveis para operação: +");
+    }
+
+    private static Object index(Object base, Object index) {
+        if (base instanceof List<?> list) {
+            return list.get(((Number) index).intValue());
+        } else if (base instanceof String str) {
+            // o tipo semântico de string[i] é STRING
+            return String.valueOf(str.charAt(((Number) index).intValue()));
+        }
+        throw new RuntimeException("Tipo inválido para indexação");
+    }
+
+    private static void storeIndex(Object arrayObj, Object idxVal, Object val, int line) {
+        if (!(arrayObj instanceof List<?>)) {
+            throw new RuntimeException("Linha " + line + ": tentativa de indexar valor não-array");
+        }
+        @SuppressWarnings("unchecked")
+        List<Object> array = (List<Object>) arrayObj;
+        if (!(idxVal instanceof Number)) {
+            throw new RuntimeException("Linha " + line + ": índice de array não é número");
+        }
+        int index = ((Number) idxVal).intValue();
+        if (index < 0 || index >= array.size()) {
+            throw new RuntimeException("Linha " + line + ": índice fora dos limites: " + index);
+        }
+        array.set(index, val);
+    }
+}
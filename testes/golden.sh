@@ -0,0 +1,74 @@
+#!/bin/sh
+# Testes de saída: cada testes/golden/X.minipar roda em todos os motores e a
+# saída padrão tem que ser igual a X.saida. Se existe X.erro, cada linha dele
+# tem que aparecer na saída de erro. Se existe X.servidor.minipar, ele é
+# iniciado antes do programa, com as mesmas opções, e encerrado depois.
+#
+# Uso: sh testes/golden.sh [arquivo.jar]
+
+JAR=${1:-target/MiniParJava-1.0-SNAPSHOT.jar}
+DIR=$(dirname "$0")/golden
+TMP=$(mktemp -d)
+trap 'rm -rf "$TMP"' EXIT
+
+# uma configuração por linha; todas têm que dar a mesma saída
+CONFIGS="--engine=ast
+--engine=vm
+--engine=spec
+--jit
+--engine=spec --jit
+--threads=1
+--threads=virtual"
+
+falhas=0
+total=0
+
+for programa in "$DIR"/*.minipar; do
+    case "$programa" in
+        *.servidor.minipar) continue ;;
+    esac
+    nome=${programa%.minipar}
+    while IFS= read -r opcoes; do
+        total=$((total + 1))
+        servidor=
+        if [ -f "$nome.servidor.minipar" ]; then
+            java -jar "$JAR" $opcoes "$nome.servidor.minipar" >/dev/null 2>&1 </dev/null &
+            servidor=$!
+            sleep 3 # o servidor precisa estar escutando antes do c_channel conectar
+        fi
+        timeout 120 java -jar "$JAR" $opcoes "$programa" >"$TMP/saida" 2>"$TMP/erro" </dev/null
+        status=$?
+        if [ -n "$servidor" ]; then
+            kill "$servidor"
+            wait "$servidor" 2>/dev/null
+        fi
+
+        motivo=
+        if [ "$status" -eq 124 ]; then
+            motivo="tempo esgotado"
+        elif ! diff -u "$nome.saida" "$TMP/saida" >"$TMP/diff"; then
+            motivo="saída diferente"
+        elif [ -f "$nome.erro" ]; then
+            while IFS= read -r linha; do
+                if ! grep -qF -- "$linha" "$TMP/erro"; then
+                    motivo="faltou na saída de erro: $linha"
+                    break
+                fi
+            done <"$nome.erro"
+        fi
+
+        if [ -z "$motivo" ]; then
+            echo "ok      $(basename "$programa") $opcoes"
+        else
+            falhas=$((falhas + 1))
+            echo "FALHOU  $(basename "$programa") $opcoes: $motivo"
+            cat "$TMP/diff" "$TMP/erro"
+        fi
+        : >"$TMP/diff"
+    done <<FIM
+$CONFIGS
+FIM
+done
+
+echo "$((total - falhas)) de $total execuções passaram"
+[ "$falhas" -eq 0 ]